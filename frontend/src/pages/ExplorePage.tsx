@@ -19,6 +19,7 @@ interface Character {
 const ExplorePage: React.FC = () => {
     const [messages, setMessages] = useState<string[]>([]);
     const [isSimulating, setIsSimulating] = useState(false);
+    const [streamingText, setStreamingText] = useState<string | null>(null);
     const [error, setError] = useState<string | null>(null);
     const [currentLocationId, setCurrentLocationId] = useState<number | null>(null);
     const [characters, setCharacters] = useState<Character[]>([]);
@@ -76,18 +77,43 @@ const ExplorePage: React.FC = () => {
     const handleSimulate = async (input: string) => {
         setIsSimulating(true);
         try {
-            const response = await fetch(`${API_BASE_URL}/simulate`, {
+            const response = await fetch(`${API_BASE_URL}/simulate/stream`, {
                 method: 'POST',
                 headers: {
                     'Content-Type': 'application/json',
+                    'Accept': 'text/event-stream',
                 },
                 body: input,
             });
 
-            if (!response.ok) {
+            if (!response.ok || !response.body) {
                 throw new Error(`HTTP error! status: ${response.status}`);
             }
 
+            // Show narration as it is generated, below the messages we already have
+            const reader = response.body.getReader();
+            const decoder = new TextDecoder();
+            let buffered = '';
+            let streamed = '';
+            while (true) {
+                const { done, value } = await reader.read();
+                if (done) {
+                    break;
+                }
+                buffered += decoder.decode(value, { stream: true });
+                const events = buffered.split(/\r?\n\r?\n/);
+                buffered = events.pop() ?? '';
+                for (const event of events) {
+                    const lines = event.split(/\r?\n/);
+                    const name = lines.find(line => line.startsWith('event:'))?.slice('event:'.length).trim();
+                    const data = lines.filter(line => line.startsWith('data:')).map(line => line.slice('data:'.length)).join('\n');
+                    if (name === 'token' && data) {
+                        streamed += JSON.parse(data).text;
+                        setStreamingText(streamed);
+                    }
+                }
+            }
+
             // After simulation completes, fetch both messages and current location
             await Promise.all([
                 fetchMessages(),
@@ -97,6 +123,7 @@ const ExplorePage: React.FC = () => {
             console.error('Error during simulation:', err);
             setError('Failed to process command. Please try again.');
         } finally {
+            setStreamingText(null);
             setIsSimulating(false);
         }
     };
@@ -123,7 +150,7 @@ const ExplorePage: React.FC = () => {
                     <div className="explore-scene-view">
                         <SceneView currentLocationId={currentLocationId} />
                         <MessageLog 
-                            messages={messages} 
+                            messages={streamingText !== null ? [...messages, streamingText] : messages} 
                             onRefresh={handleRefresh}
                             error={error}
                         />
@@ -6,10 +6,16 @@ import io.github.austinhoover.rpg.process.ProcessManager;
 import io.github.austinhoover.rpg.process.ServiceConfig;
 import io.github.austinhoover.rpg.game.sim.Simulation;
 import io.github.austinhoover.rpg.game.world.World;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import io.github.austinhoover.rpg.game.Global;
+import io.github.austinhoover.rpg.game.location.RegionGenerator;
 import io.github.austinhoover.rpg.game.model.DefaultGameData;
+import io.github.austinhoover.rpg.game.name.NameSource;
 
 /**
  * Main app class
@@ -30,14 +36,30 @@ public class App {
         ServiceConfig koboldConfig = ProcessManager.INSTANCE.loadConfigFile("kobold");
         if(koboldConfig != null) {
             ProcessManager.INSTANCE.registerService(koboldConfig);
-            ProcessManager.INSTANCE.startService("kobold");
+            Global.kobold.getScheduler().setSlots(koboldConfig.getConcurrentSlots() * koboldConfig.getInstances());
+            Global.kobold.getScheduler().setPreemptionEnabled(true);
+            CompletableFuture<Boolean> koboldReady = ProcessManager.INSTANCE.startServiceAndAwaitReady("kobold");
+            Global.kobold.getScheduler().awaitBackend(koboldReady);
+            if(!koboldReady.isDone()){
+                System.out.println("Waiting for kobold to load the model...");
+            }
         } else {
             System.out.println("Failed to load kobold config");
         }
 
         // Load default game data
         DefaultGameData defaultData = DefaultGameData.loadFromFile("data/defaultData.json");
-        Global.world = new World(defaultData);
+        // -Drpg.names=synthesized builds the world without asking the LLM for any names
+        if("synthesized".equalsIgnoreCase(System.getProperty("rpg.names"))){
+            RegionGenerator.setNameSource(NameSource.SYNTHESIZED);
+        } else {
+            // Fill the name pools in the background while the rest of the world loads
+            Global.nameCache.prewarm(RegionGenerator.getNameQueries(defaultData.getRaces()));
+        }
+        // -Drpg.seed=<n> regenerates the same world
+        long seed = Long.getLong("rpg.seed", new Random().nextLong());
+        System.out.println("Generating world from seed " + seed);
+        Global.world = new World(defaultData, seed);
         Global.conversation.setWorld(Global.world);
         Global.mover.setWorld(Global.world);
         Global.story.setWorld(Global.world);
@@ -46,6 +68,7 @@ public class App {
         Scanner scanner = new Scanner(System.in);
 
         Global.player.currentLocationId = 1;
+        RegionGenerator.ensureResidents(Global.world, Global.world.getLocationMap().getLocationById(Global.player.currentLocationId));
 
         // Add initial location description to game log
         String initialDescription = Global.mover.describeCurrentLocationWithReturn();
@@ -62,7 +85,14 @@ public class App {
             String input = scanner.nextLine();
             if (input.equalsIgnoreCase("exit")) break;
 
-            Simulation.simulate(input);
+            try {
+                Simulation.simulateAsync(Simulation.CONSOLE_CLIENT, input, System.out::print).join();
+            } catch (CancellationException e) {
+                System.out.print("(turn superseded)");
+            } catch (CompletionException e) {
+                System.out.print("(turn failed: " + e.getCause() + ")");
+            }
+            System.out.println();
         }
 
         //cleanup
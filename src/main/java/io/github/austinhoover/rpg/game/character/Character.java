@@ -1,7 +1,9 @@
 package io.github.austinhoover.rpg.game.character;
 
-import io.github.austinhoover.rpg.game.location.Location;
-import io.github.austinhoover.rpg.game.location.LocationMap;
+import java.io.IOException;
+
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
 
 /**
  * Represents a character in the world
@@ -111,30 +113,46 @@ public class Character {
     }
 
     /**
-     * Sets the current location id
+     * Sets the current location id. Only the character map may do this, so its occupancy index stays consistent.
      * @param currentLocationId The new location id
      */
-    public void setCurrentLocationId(long currentLocationId) {
+    void setCurrentLocationId(long currentLocationId) {
         this.currentLocationId = currentLocationId;
     }
 
     /**
-     * Moves the character to a new location and updates the characterIds lists in both the original and destination locations.
+     * Moves the character to a new location, updating the occupancy index of the character map
      * @param newLocationId The ID of the new location
-     * @param locationMap The map of locations
-     */
-    public void moveToLocation(long newLocationId, LocationMap locationMap) {
-        if (newLocationId == currentLocationId) {
-            return; // No change needed
-        }
-        Location oldLocation = locationMap.getLocationById(currentLocationId);
-        Location newLocation = locationMap.getLocationById(newLocationId);
-        if (oldLocation != null) {
-            oldLocation.getCharacterIds().remove(this.id);
-        }
-        if (newLocation != null) {
-            newLocation.getCharacterIds().add(this.id);
-        }
-        this.currentLocationId = newLocationId;
+     * @param characterMap The map the character is registered with
+     */
+    public void moveToLocation(long newLocationId, CharacterMap characterMap) {
+        characterMap.moveCharacter(this, newLocationId);
+    }
+
+    /**
+     * Writes this character to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    void writeSnapshot(SnapshotWriter out) throws IOException {
+        out.writeLong(id);
+        out.writeString(name);
+        out.writeString(role);
+        out.writeString(gender);
+        out.writeLong(currentLocationId);
+    }
+
+    /**
+     * Reads a character written by {@link #writeSnapshot(SnapshotWriter)}
+     * @param in The snapshot
+     * @return The character, not yet registered with a map
+     * @throws IOException If the snapshot can't be read
+     */
+    static Character readSnapshot(SnapshotReader in) throws IOException {
+        long id = in.readLong();
+        Character rVal = new Character(in.readString(), in.readString(), in.readString(), 0);
+        rVal.setId(id);
+        rVal.currentLocationId = in.readLong();
+        return rVal;
     }
-} 
\ No newline at end of file
+}
@@ -1,8 +1,15 @@
 package io.github.austinhoover.rpg.game.character;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+
+import io.github.austinhoover.rpg.game.name.NameAllocator;
+import io.github.austinhoover.rpg.game.world.EntityStore;
+import io.github.austinhoover.rpg.game.world.IdBitmap;
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
 
 /**
  * Storage object for all characters
@@ -12,7 +19,22 @@ public class CharacterMap {
     /**
      * Map of id -> character
      */
-    private Map<Long, Character> idCharMap = new HashMap<Long, Character>();
+    private EntityStore<Character> idCharMap = new EntityStore<Character>();
+
+    /**
+     * The names in use by characters, rebuilt from the characters after a world is loaded
+     */
+    private transient NameAllocator nameAllocator;
+
+    /**
+     * Location id -> ids of the characters there, rebuilt from the characters after a world is loaded
+     */
+    private transient EntityStore<IdBitmap> occupancy;
+
+    /**
+     * Index of the characters at each location by name and role, rebuilt from the characters after a world is loaded
+     */
+    private transient CharacterNameIndex nameIndex;
 
     /**
      * Gets a character by its id
@@ -28,8 +50,154 @@ public class CharacterMap {
      * @param character The character
      */
     public void register(Character character) {
-        character.setId(idCharMap.size());
+        character.setId(idCharMap.allocateId());
         idCharMap.put(character.getId(), character);
+        synchronized (this) {
+            this.addOccupant(character.getCurrentLocationId(), character.getId());
+            this.getNameIndex().add(character.getCurrentLocationId(), character);
+        }
+        if (character.getName() != null) {
+            this.getNameAllocator().tryReserve(character.getName());
+        }
+    }
+
+    /**
+     * Moves a character to another location, keeping the occupancy and name indices up to date
+     * @param character The character
+     * @param locationId The id of the location to move to
+     */
+    public synchronized void moveCharacter(Character character, long locationId) {
+        long previous = character.getCurrentLocationId();
+        if (previous == locationId) {
+            return;
+        }
+        IdBitmap previousOccupants = this.getOccupancy().get(previous);
+        if (previousOccupants != null) {
+            previousOccupants.remove(character.getId());
+        }
+        this.addOccupant(locationId, character.getId());
+        this.getNameIndex().remove(previous, character);
+        this.getNameIndex().add(locationId, character);
+        character.setCurrentLocationId(locationId);
+    }
+
+    /**
+     * Gets the ids of the characters at a location
+     * @param locationId The id of the location
+     * @return The ids, in ascending order
+     */
+    public synchronized long[] getCharacterIdsAt(long locationId) {
+        IdBitmap ids = this.getOccupancy().get(locationId);
+        return ids != null ? ids.toArray() : new long[0];
+    }
+
+    /**
+     * Gets the ids of the characters at a location as a bitmap, for intersecting with other sets of characters
+     * @param locationId The id of the location
+     * @return A copy of the ids
+     */
+    public synchronized IdBitmap getOccupantIdsAt(long locationId) {
+        IdBitmap ids = this.getOccupancy().get(locationId);
+        return ids != null ? ids.copy() : new IdBitmap();
+    }
+
+    /**
+     * Gets the characters at a location
+     * @param locationId The id of the location
+     * @return The characters, in id order
+     */
+    public List<Character> getCharactersAt(long locationId) {
+        long[] ids = this.getCharacterIdsAt(locationId);
+        List<Character> rVal = new ArrayList<Character>(ids.length);
+        for (long id : ids) {
+            rVal.add(idCharMap.get(id));
+        }
+        return rVal;
+    }
+
+    /**
+     * Finds the characters at a location that a name, part of a name, or role could refer to, tolerating small typos
+     * @param locationId The id of the location
+     * @param query The name or role
+     * @return The best matching characters in id order; empty if no one matches, more than one if the query is ambiguous
+     */
+    public List<Character> findCharactersAt(long locationId, String query) {
+        long[] ids;
+        synchronized (this) {
+            ids = this.getNameIndex().find(locationId, query);
+        }
+        List<Character> rVal = new ArrayList<Character>(ids.length);
+        for (long id : ids) {
+            rVal.add(idCharMap.get(id));
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the number of characters at a location
+     * @param locationId The id of the location
+     * @return The number of characters
+     */
+    public synchronized int countCharactersAt(long locationId) {
+        IdBitmap ids = this.getOccupancy().get(locationId);
+        return ids != null ? ids.size() : 0;
+    }
+
+    /**
+     * Gets the occupancy index, building it from the characters if the world was just loaded. Callers hold the lock on this map.
+     * @return The index
+     */
+    private EntityStore<IdBitmap> getOccupancy() {
+        if (occupancy == null) {
+            occupancy = new EntityStore<IdBitmap>();
+            idCharMap.forEach((Character character) -> this.addOccupant(character.getCurrentLocationId(), character.getId()));
+        }
+        return occupancy;
+    }
+
+    /**
+     * Gets the name index, building it from the characters if the world was just loaded. Callers hold the lock on this map.
+     * @return The index
+     */
+    private CharacterNameIndex getNameIndex() {
+        if (nameIndex == null) {
+            CharacterNameIndex index = new CharacterNameIndex();
+            idCharMap.forEach((Character character) -> index.add(character.getCurrentLocationId(), character));
+            nameIndex = index;
+        }
+        return nameIndex;
+    }
+
+    /**
+     * Adds a character to the occupancy index. Callers hold the lock on this map.
+     * @param locationId The id of the location the character is at
+     * @param characterId The id of the character
+     */
+    private void addOccupant(long locationId, long characterId) {
+        EntityStore<IdBitmap> index = this.getOccupancy();
+        IdBitmap occupants = index.get(locationId);
+        if (occupants == null) {
+            occupants = new IdBitmap();
+            index.put(locationId, occupants);
+        }
+        occupants.add(characterId);
+    }
+
+    /**
+     * Gets the allocator tracking the names in use by characters
+     * @return The allocator
+     */
+    public synchronized NameAllocator getNameAllocator() {
+        if (nameAllocator == null) {
+            NameAllocator allocator = new NameAllocator();
+            idCharMap.forEach((Character character) -> {
+                if (character.getName() != null) {
+                    allocator.tryReserve(character.getName());
+                }
+            });
+            nameAllocator = allocator;
+        }
+        return nameAllocator;
     }
 
     /**
@@ -39,4 +207,38 @@ public class CharacterMap {
     public Collection<Character> getAllCharacters() {
         return idCharMap.values();
     }
-} 
\ No newline at end of file
+
+    /**
+     * Writes the characters to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        List<Character> all = new ArrayList<Character>(idCharMap.values());
+        out.writeLong(idCharMap.getIdBound());
+        out.writeInt(all.size());
+        for (Character character : all) {
+            character.writeSnapshot(out);
+        }
+    }
+
+    /**
+     * Reads the characters from a world snapshot into this empty map
+     * @param in The snapshot
+     * @throws IOException If the snapshot can't be read
+     */
+    public void readSnapshot(SnapshotReader in) throws IOException {
+        long idBound = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Character character = Character.readSnapshot(in);
+            idCharMap.put(character.getId(), character);
+        }
+        idCharMap.reserveIds(idBound);
+        synchronized (this) {
+            occupancy = null;
+            nameIndex = null;
+            nameAllocator = null;
+        }
+    }
+}
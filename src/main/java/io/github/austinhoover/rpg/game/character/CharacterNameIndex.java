@@ -0,0 +1,220 @@
+package io.github.austinhoover.rpg.game.character;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import io.github.austinhoover.rpg.game.world.EntityStore;
+import io.github.austinhoover.rpg.game.world.LongHashSet;
+
+/**
+ * Index of the characters at each location by the words of their names and roles, used to resolve who the player is talking to.
+ * Queries are matched exactly first, then as a prefix, then allowing a few typos; the first of those that matches anyone decides the result.
+ * Not thread safe, the character map guards it.
+ */
+public class CharacterNameIndex {
+
+    /**
+     * Matches the accents left behind by decomposing a string
+     */
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Matches runs of characters that separate words
+     */
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Shortest query matched as a prefix
+     */
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    /**
+     * Shortest query matched with one typo
+     */
+    private static final int MIN_ONE_TYPO_LENGTH = 4;
+
+    /**
+     * Shortest query matched with two typos
+     */
+    private static final int MIN_TWO_TYPO_LENGTH = 8;
+
+    /**
+     * Location id -> token -> ids of the characters there whose name or role contains the token
+     */
+    private final EntityStore<TreeMap<String, LongHashSet>> tokens = new EntityStore<TreeMap<String, LongHashSet>>();
+
+    /**
+     * Normalizes text for matching: lowercase, no accents, words separated by single spaces
+     * @param text The text
+     * @return The normalized text
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = ACCENTS.matcher(decomposed).replaceAll("");
+        return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Gets the tokens a character can be found by: its full name and role, and each of their words
+     * @param character The character
+     * @return The tokens
+     */
+    private static Set<String> getTokens(Character character) {
+        Set<String> rVal = new LinkedHashSet<String>();
+        for (String text : new String[]{character.getName(), character.getRole()}) {
+            String normalized = normalize(text);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            rVal.add(normalized);
+            for (String word : normalized.split(" ")) {
+                rVal.add(word);
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Adds a character at a location
+     * @param locationId The id of the location
+     * @param character The character
+     */
+    public void add(long locationId, Character character) {
+        TreeMap<String, LongHashSet> locationTokens = tokens.get(locationId);
+        if (locationTokens == null) {
+            locationTokens = new TreeMap<String, LongHashSet>();
+            tokens.put(locationId, locationTokens);
+        }
+        for (String token : getTokens(character)) {
+            locationTokens.computeIfAbsent(token, (String key) -> new LongHashSet()).add(character.getId());
+        }
+    }
+
+    /**
+     * Removes a character from a location
+     * @param locationId The id of the location
+     * @param character The character
+     */
+    public void remove(long locationId, Character character) {
+        TreeMap<String, LongHashSet> locationTokens = tokens.get(locationId);
+        if (locationTokens == null) {
+            return;
+        }
+        for (String token : getTokens(character)) {
+            LongHashSet ids = locationTokens.get(token);
+            if (ids != null) {
+                ids.remove(character.getId());
+                if (ids.isEmpty()) {
+                    locationTokens.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the characters at a location a query could refer to
+     * @param locationId The id of the location
+     * @param query The query, ie a name, part of a name or a role
+     * @return The ids of the best matching characters in ascending order, more than one if the query is ambiguous
+     */
+    public long[] find(long locationId, String query) {
+        TreeMap<String, LongHashSet> locationTokens = tokens.get(locationId);
+        String normalized = normalize(query);
+        if (locationTokens == null || normalized.isEmpty()) {
+            return new long[0];
+        }
+
+        LongHashSet exact = locationTokens.get(normalized);
+        if (exact != null) {
+            return exact.toSortedArray();
+        }
+
+        LongHashSet rVal = new LongHashSet();
+        if (normalized.length() >= MIN_PREFIX_LENGTH) {
+            SortedMap<String, LongHashSet> prefixed = locationTokens.subMap(normalized, normalized + java.lang.Character.MAX_VALUE);
+            for (LongHashSet ids : prefixed.values()) {
+                ids.forEach(rVal::add);
+            }
+            if (!rVal.isEmpty()) {
+                return rVal.toSortedArray();
+            }
+        }
+
+        int maxDistance = normalized.length() >= MIN_TWO_TYPO_LENGTH ? 2 : normalized.length() >= MIN_ONE_TYPO_LENGTH ? 1 : 0;
+        if (maxDistance == 0) {
+            return new long[0];
+        }
+        // keep only the closest tokens, so a near miss on one name isn't drowned out by a worse miss on another
+        int bestDistance = maxDistance;
+        List<LongHashSet> best = new ArrayList<LongHashSet>();
+        for (Map.Entry<String, LongHashSet> entry : locationTokens.entrySet()) {
+            int distance = boundedEditDistance(normalized, entry.getKey(), bestDistance);
+            if (distance > bestDistance) {
+                continue;
+            }
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best.clear();
+            }
+            best.add(entry.getValue());
+        }
+        for (LongHashSet ids : best) {
+            ids.forEach(rVal::add);
+        }
+        return rVal.toSortedArray();
+    }
+
+    /**
+     * Computes the edit distance between two strings, counting a swap of neighbouring characters as one edit,
+     * and giving up once it exceeds a bound
+     * @param a The first string
+     * @param b The second string
+     * @param max The bound
+     * @return The distance, or max + 1 if it exceeds the bound
+     */
+    public static int boundedEditDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        int previousRowMin = 0;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+                }
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            // later rows only grow from here, except that a swap reaches back one row further
+            if (rowMin > max && previousRowMin >= max) {
+                return max + 1;
+            }
+            previousRowMin = rowMin;
+            int[] swap = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+}
@@ -21,6 +21,11 @@ public class ConversationHandler {
         Pattern.CASE_INSENSITIVE
     );
 
+    /**
+     * Most characters listed when a talk target is ambiguous
+     */
+    private static final int MAX_AMBIGUOUS_SHOWN = 5;
+
     public ConversationHandler(World world, PlayerState player, Kobold kobold) {
         this.world = world;
         this.kobold = kobold;
@@ -35,21 +40,16 @@ public class ConversationHandler {
         }
 
         // Find the target character by name or role
-        String targetLower = targetName.toLowerCase();
-        Character targetCharacter = null;
-        for (Character character : world.getCharacterMap().getAllCharacters()) {
-            if (character.getCurrentLocationId() == currentLocation.getId() &&
-                (character.getName().toLowerCase().equals(targetLower) ||
-                 character.getRole().toLowerCase().equals(targetLower))) {
-                targetCharacter = character;
-                break;
-            }
-        }
-
-        if (targetCharacter == null) {
+        List<Character> matches = world.getCharacterMap().findCharactersAt(currentLocation.getId(), targetName);
+        if (matches.isEmpty()) {
             System.out.println("You don't see anyone like \"" + targetName + "\" here.");
             return;
         }
+        if (matches.size() > 1) {
+            System.out.println(describeAmbiguousTarget(targetName, matches));
+            return;
+        }
+        Character targetCharacter = matches.get(0);
 
         // Add player's message to conversation history
         currentConversation.addEntry("You", message, true);
@@ -113,21 +113,18 @@ public class ConversationHandler {
             System.out.println(error);
             return error;
         }
-        String targetLower = targetName.toLowerCase();
-        Character targetCharacter = null;
-        for (Character character : world.getCharacterMap().getAllCharacters()) {
-            if (character.getCurrentLocationId() == currentLocation.getId() &&
-                (character.getName().toLowerCase().equals(targetLower) ||
-                 character.getRole().toLowerCase().equals(targetLower))) {
-                targetCharacter = character;
-                break;
-            }
-        }
-        if (targetCharacter == null) {
+        List<Character> matches = world.getCharacterMap().findCharactersAt(currentLocation.getId(), targetName);
+        if (matches.isEmpty()) {
             String notFound = "You don't see anyone like \"" + targetName + "\" here.";
             System.out.println(notFound);
             return notFound;
         }
+        if (matches.size() > 1) {
+            String ambiguous = describeAmbiguousTarget(targetName, matches);
+            System.out.println(ambiguous);
+            return ambiguous;
+        }
+        Character targetCharacter = matches.get(0);
         currentConversation.addEntry("You", message, true);
         System.out.println("You say: \"" + message + "\"");
         StringBuilder promptBuilder = new StringBuilder();
@@ -178,6 +175,28 @@ public class ConversationHandler {
         }
     }
 
+    /**
+     * Describes the characters a talk target could refer to, so the player can pick one
+     * @param targetName The target the player gave
+     * @param matches The characters it matched
+     * @return The message to show the player
+     */
+    private static String describeAmbiguousTarget(String targetName, List<Character> matches) {
+        StringBuilder builder = new StringBuilder("Who do you mean by \"" + targetName + "\"? There's ");
+        int shown = Math.min(matches.size(), MAX_AMBIGUOUS_SHOWN);
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) {
+                builder.append(i == shown - 1 && shown == matches.size() ? " and " : ", ");
+            }
+            Character character = matches.get(i);
+            builder.append(character.getName()).append(" the ").append(character.getRole());
+        }
+        if (shown < matches.size()) {
+            builder.append(" and ").append(matches.size() - shown).append(" others");
+        }
+        return builder.append(".").toString();
+    }
+
     public void resetConversation() {
         currentConversation.clear();
     }
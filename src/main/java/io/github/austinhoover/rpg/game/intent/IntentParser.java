@@ -42,7 +42,7 @@ public class IntentParser {
     }
 
     private static final Pattern MOVE_PATTERN = Pattern.compile(
-        "\\b(go|walk|enter|head|move|step|climb)\\s+(to|into|through|up|down)?\\s*(the\\s+)?(?<target>[a-zA-Z0-9\\s'-]+)",
+        "\\b(go|walk|enter|head|move|step|climb|travel)\\s+(to|into|through|up|down)?\\s*(the\\s+)?(?<target>[a-zA-Z0-9\\s'-]+)",
         Pattern.CASE_INSENSITIVE
     );
 
@@ -101,7 +101,7 @@ public class IntentParser {
             "Message: \"" + message + "\"";
 
         try {
-            String response = kobold.request(prompt).trim().replace("\"", "");
+            String response = kobold.requestCached(prompt).trim().replace("\"", "");
             return response.equals("null") ? null : response;
         } catch (Exception e) {
             System.err.println("Error calling LLM: " + e.getMessage());
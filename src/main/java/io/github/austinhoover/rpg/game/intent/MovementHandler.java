@@ -1,13 +1,28 @@
 package io.github.austinhoover.rpg.game.intent;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import io.github.austinhoover.rpg.kobold.Kobold;
+import io.github.austinhoover.rpg.kobold.KoboldRequestBody;
 import io.github.austinhoover.rpg.game.location.Location;
+import io.github.austinhoover.rpg.game.location.Region;
+import io.github.austinhoover.rpg.game.location.RegionGenerator;
 import io.github.austinhoover.rpg.game.player.PlayerState;
 import io.github.austinhoover.rpg.game.world.World;
 
 public class MovementHandler {
+
+    /**
+     * Whether descriptions of newly discovered locations may be served from the llm response cache
+     */
+    private static final boolean CACHE_LOCATION_DESCRIPTIONS = true;
+
+    /**
+     * Most levels of subregions walked down from a named region that holds no locations itself
+     */
+    private static final int MAX_REGION_DESCENT = 8;
+
     private World world;
     private PlayerState player;
     private Kobold kobold;
@@ -21,29 +36,67 @@ public class MovementHandler {
     }
 
     public boolean attemptMove(String targetName) {
+        return this.attemptMove(targetName, null);
+    }
+
+    /**
+     * Moves the player to a neighboring location, or along the shortest route to a farther one
+     * @param targetName The name of the neighbor, or of the region or location to travel to
+     * @param onToken If non-null, the destination's description is streamed to this (as it is generated, if it is new)
+     * @return true if the player moved
+     */
+    public boolean attemptMove(String targetName, Consumer<String> onToken) {
         Location current = world.getLocationMap().getLocationById(player.currentLocationId);
         if (current == null) {
             System.out.println("Error: Invalid current location.");
             return false;
         }
 
-        Location neighbor = current.findConnectionTo(world.getLocationMap(), targetName);
-        if (neighbor == null) {
-            System.out.println("Error: Failed to find neighbor location " + targetName);
+        Location destination = this.findDestination(targetName);
+        long[] route = null;
+        if (destination != null) {
+            // direct moves skip the pathfinder, which would recompute its landmarks after every discovery
+            route = current.hasNeighbor(destination.getId())
+                ? new long[]{current.getId(), destination.getId()}
+                : world.getLocationMap().findRoute(current.getId(), destination.getId());
+        }
+        if (destination == null || route == null || route.length < 2) {
+            System.out.println("Error: Failed to find a route to " + targetName);
             return false;
         }
 
+        if (route.length > 2) {
+            StringBuilder through = new StringBuilder("You pass through");
+            for (int i = 1; i < route.length - 1; i++) {
+                through.append(i > 1 ? ", " : " ").append(world.getLocationMap().getLocationById(route[i]).getType());
+            }
+            System.out.println(through.append(".").toString());
+        }
+        System.out.println("You travel to " + destination.getType() + ".");
+        RegionGenerator.ensureResidents(world, destination);
+
         // If this is the first time visiting this location, generate its description
-        if (!neighbor.isDiscovered()) {
-            String descriptionPrompt = MovementHandler.generateLocationDetailPrompt(neighbor.getType());
-            String description = kobold.request(descriptionPrompt);
-            neighbor.setDescription(description);
-            neighbor.setDiscovered(true);
+        if (!destination.isDiscovered()) {
+            // The prompt only depends on the location type, so the description can come from the response cache
+            KoboldRequestBody descriptionRequest = kobold.createRequestBody(MovementHandler.generateLocationDetailPrompt(destination.getType()));
+            if (CACHE_LOCATION_DESCRIPTIONS) {
+                descriptionRequest.setTemperature(0.0);
+                descriptionRequest.setCacheable(true);
+            }
+            String description;
+            if (onToken != null) {
+                description = kobold.generateStream(descriptionRequest, onToken);
+            } else {
+                description = kobold.generate(descriptionRequest);
+            }
+            destination.setDescription(description);
+            destination.setDiscovered(true);
+        } else if (onToken != null) {
+            onToken.accept(destination.getDescription());
         }
 
-        player.currentLocationId = neighbor.getId();
+        player.currentLocationId = destination.getId();
         player.lastAction = "move";
-        System.out.println("You travel to " + neighbor.getType() + ".");
         
         // Reset conversation when moving to a new location
         conversationHandler.resetConversation();
@@ -51,18 +104,98 @@ public class MovementHandler {
         return true;
     }
 
+    /**
+     * Finds where the player means to go: a neighbor of their location by type, or else a named region mentioned in the target,
+     * ie "the capital of the kingdom of elves". Within a region, one of the locations it holds directly is picked, preferring one
+     * whose type is also mentioned, then its capital. A region holding no locations directly, ie a continent, stands for its first subregion.
+     * @param targetName The target
+     * @return The location, or null if nothing matches
+     */
+    public Location findDestination(String targetName) {
+        return this.findDestination(player.currentLocationId, targetName);
+    }
+
+    /**
+     * Finds where a target names as seen from a given location, the same way as {@link #findDestination(String)}
+     * @param fromId The id of the location the target is relative to
+     * @param targetName The target
+     * @return The location, or null if nothing matches
+     */
+    public Location findDestination(long fromId, String targetName) {
+        Location current = world.getLocationMap().getLocationById(fromId);
+        if (current == null || targetName == null) {
+            return null;
+        }
+        Location neighbor = current.findConnectionTo(world.getLocationMap(), targetName);
+        if (neighbor != null) {
+            return neighbor;
+        }
+
+        String target = targetName.toLowerCase().trim();
+        Region region = world.getRegionMap().findRegionNamedIn(target).orElse(null);
+        for (int depth = 0; region != null && depth < MAX_REGION_DESCENT; depth++) {
+            Location best = this.pickOwnLocation(region, target);
+            if (best != null) {
+                return best;
+            }
+            region = region.getSubregionIds().stream()
+                .min(Long::compare)
+                .flatMap((Long subregionId) -> world.getRegionMap().getRegionById(subregionId))
+                .orElse(null);
+        }
+        return null;
+    }
+
+    /**
+     * Picks the location a region stands for among the ones it holds directly
+     * @param region The region
+     * @param target The lower case target the player named
+     * @return The location whose type is mentioned in the target, else the capital, else the one with the lowest id; null if the region holds none
+     */
+    private Location pickOwnLocation(Region region, String target) {
+        Location[] best = new Location[1];
+        int[] bestScore = {-1};
+        world.getRegionMap().forEachOwnLocationIn(region, (long locationId) -> {
+            Location location = world.getLocationMap().getLocationById(locationId);
+            if (location == null) {
+                return;
+            }
+            int score = 0;
+            String type = location.getType() != null ? location.getType().toLowerCase() : "";
+            if (!type.isEmpty() && target.contains(type)) {
+                score += 2;
+            }
+            if (type.equals("capital")) {
+                score += 1;
+            }
+            if (score > bestScore[0] || (score == bestScore[0] && locationId < best[0].getId())) {
+                best[0] = location;
+                bestScore[0] = score;
+            }
+        });
+        return best[0];
+    }
+
     public void describeCurrentLocation(){
+        this.describeCurrentLocation(true);
+    }
+
+    /**
+     * Prints the current location and its exits
+     * @param includeDescription Whether to print the description (false if it was already streamed to the player)
+     */
+    public void describeCurrentLocation(boolean includeDescription){
         Location loc = world.getLocationMap().getLocationById(player.currentLocationId);
         if (loc == null) {
             System.out.println("Unknown location.");
             return;
         }
         System.out.println("=== " + loc.generateFallbackLabel() + " ===");
-        System.out.println(loc.getDescription());
-        System.out.println("Exits:");
-        for(Location neighbor : loc.getNeighbors(world.getLocationMap())) {
-            System.out.println(" - " + neighbor.generateFallbackLabel());
+        if (includeDescription) {
+            System.out.println(loc.getDescription());
         }
+        System.out.println("Exits:");
+        loc.forEachNeighbor(world.getLocationMap(), (Location neighbor) -> System.out.println(" - " + neighbor.generateFallbackLabel()));
     }
 
     /**
@@ -75,13 +208,13 @@ public class MovementHandler {
         // If we've already generated neighbors for this location, just describe what's available
         if (existingLocation.hasGeneratedNeighbors()) {
             System.out.println("You look around and see the following places:");
-            for(Location neighbor : existingLocation.getNeighbors(world.getLocationMap())) {
+            existingLocation.forEachNeighbor(world.getLocationMap(), (Location neighbor) -> {
                 if (neighbor.isDiscovered()) {
                     System.out.println(" - " + neighbor.generateFallbackLabel() + ": " + neighbor.getDescription());
                 } else {
                     System.out.println(" - " + neighbor.generateFallbackLabel() + " (undiscovered)");
                 }
-            }
+            });
             return;
         }
 
@@ -112,13 +245,13 @@ public class MovementHandler {
         // If we've already generated neighbors for this location, just describe what's available
         if (existingLocation.hasGeneratedNeighbors()) {
             sb.append("You look around and see the following places:\n");
-            for(Location neighbor : existingLocation.getNeighbors(world.getLocationMap())) {
+            existingLocation.forEachNeighbor(world.getLocationMap(), (Location neighbor) -> {
                 if (neighbor.isDiscovered()) {
                     sb.append(" - ").append(neighbor.generateFallbackLabel()).append(": ").append(neighbor.getDescription()).append("\n");
                 } else {
                     sb.append(" - ").append(neighbor.generateFallbackLabel()).append(" (undiscovered)\n");
                 }
-            }
+            });
             System.out.print(sb.toString());
             return sb.toString().trim();
         }
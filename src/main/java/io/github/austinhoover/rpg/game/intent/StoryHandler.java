@@ -1,7 +1,7 @@
 package io.github.austinhoover.rpg.game.intent;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 import io.github.austinhoover.rpg.kobold.Kobold;
 import io.github.austinhoover.rpg.game.character.Character;
@@ -26,6 +26,16 @@ public class StoryHandler {
     }
 
     public String handleUnknownIntent(String input) {
+        return this.handleUnknownIntent(input, null);
+    }
+
+    /**
+     * Narrates the result of an input that isn't a move, look or talk
+     * @param input The player's input
+     * @param onToken If non-null, the narration is streamed to this as it is generated instead of printed
+     * @return The narration
+     */
+    public String handleUnknownIntent(String input, Consumer<String> onToken) {
         Location currentLocation = world.getLocationMap().getLocationById(player.currentLocationId);
         if (currentLocation == null) {
             String errorMsg = "Error: Invalid current location.";
@@ -34,9 +44,7 @@ public class StoryHandler {
         }
 
         // Get nearby characters
-        List<Character> nearbyCharacters = world.getCharacterMap().getAllCharacters().stream()
-            .filter(c -> c.getCurrentLocationId() == currentLocation.getId())
-            .collect(Collectors.toList());
+        List<Character> nearbyCharacters = world.getCharacterMap().getCharactersAt(currentLocation.getId());
 
         // Build context for the story
         StringBuilder contextBuilder = new StringBuilder();
@@ -98,8 +106,12 @@ public class StoryHandler {
 
         String response;
         try {
-            response = kobold.request(contextBuilder.toString()).trim();
-            System.out.println(response);
+            if (onToken != null) {
+                response = kobold.requestStream(contextBuilder.toString(), onToken).trim();
+            } else {
+                response = kobold.request(contextBuilder.toString()).trim();
+                System.out.println(response);
+            }
         } catch (Exception e) {
             response = "Nothing particularly interesting happens.";
             System.err.println("Error generating story progression: " + e.getMessage());
@@ -1,9 +1,12 @@
 package io.github.austinhoover.rpg.game.location;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
 
 /**
  * A location
@@ -26,9 +29,15 @@ public class Location {
     private String description;
 
     /**
-     * The neighbor locations
+     * The neighbor locations, as saved with the world as json. Once the location belongs to a map its neighbors live in the map's graph only,
+     * and this is null except while {@link LocationMap#syncSavedNeighbors()} has filled it in for saving.
+     */
+    private List<Long> neighbors;
+
+    /**
+     * The map this location belongs to
      */
-    private List<Long> neighbors = new LinkedList<Long>();
+    private transient LocationMap map;
 
     /**
      * The parent region's ID
@@ -46,9 +55,14 @@ public class Location {
     private boolean isDiscovered = false;
 
     /**
-     * List of character IDs present in this location
+     * Seed the residents of this location are generated from, or null if they have been generated (or it never had any)
      */
-    private List<Long> characterIds = new ArrayList<>();
+    private Long residentSeed;
+
+    /**
+     * Id of the political state whose race the residents are generated for
+     */
+    private long residentStateId;
 
     /**
      * Sets whether neighbors have been generated for this location
@@ -82,6 +96,47 @@ public class Location {
         return this.isDiscovered;
     }
 
+    /**
+     * Defers generating the residents of this location until it is first visited
+     * @param seed Seed the residents are generated from
+     * @param stateId Id of the political state whose race the residents are generated for
+     */
+    public void setPendingResidents(long seed, long stateId) {
+        this.residentSeed = seed;
+        this.residentStateId = stateId;
+    }
+
+    /**
+     * Gets whether the residents of this location still have to be generated
+     * @return true if they do
+     */
+    public boolean hasPendingResidents() {
+        return this.residentSeed != null;
+    }
+
+    /**
+     * Gets the seed the residents of this location are generated from
+     * @return The seed, or null if they have been generated
+     */
+    public Long getResidentSeed() {
+        return this.residentSeed;
+    }
+
+    /**
+     * Gets the id of the political state whose race the residents are generated for
+     * @return The id
+     */
+    public long getResidentStateId() {
+        return this.residentStateId;
+    }
+
+    /**
+     * Marks the residents of this location as generated
+     */
+    public void clearPendingResidents() {
+        this.residentSeed = null;
+    }
+
     /**
      * Constructor
      * @param type Type of the location
@@ -132,12 +187,29 @@ public class Location {
         return type;
     }
 
+    /**
+     * Sets the map this location belongs to
+     * @param map The map
+     */
+    void setMap(LocationMap map){
+        this.map = map;
+    }
+
     /**
      * Adds a neighbor
      * @param neighborId The neighbor's id
      */
     public void addNeighbor(long neighborId){
-        this.neighbors.add(neighborId);
+        if(map == null){
+            if(this.neighbors == null){
+                this.neighbors = new ArrayList<>();
+            }
+            if(!this.neighbors.contains(neighborId)){
+                this.neighbors.add(neighborId);
+            }
+        } else {
+            map.getGraph().addEdge(this.id, neighborId);
+        }
     }
 
     /**
@@ -145,13 +217,29 @@ public class Location {
      * @param neighbor The neighbor
      */
     public void addNeighbor(Location neighbor){
-        if(this.neighbors == null){
-            this.neighbors = new ArrayList<>();
-        }
-        if(!this.neighbors.contains(neighbor.getId())){
-            this.neighbors.add(neighbor.getId());
-            neighbor.addNeighbor(this);
+        this.addNeighbor(neighbor.getId());
+        neighbor.addNeighbor(this.id);
+    }
+
+    /**
+     * Checks whether a location is a neighbor of this one
+     * @param neighborId The id of the location
+     * @return true if it is
+     */
+    public boolean hasNeighbor(long neighborId){
+        if(map == null){
+            return this.neighbors != null && this.neighbors.contains(neighborId);
         }
+        return map.getGraph().hasEdge(this.id, neighborId);
+    }
+
+    /**
+     * Calls a consumer with each neighbor of this location
+     * @param graph The graph
+     * @param consumer The consumer
+     */
+    public void forEachNeighbor(LocationMap graph, Consumer<Location> consumer){
+        graph.getGraph().forEachNeighbor(this.id, (long neighborId) -> consumer.accept(graph.getLocationById(neighborId)));
     }
 
     /**
@@ -160,14 +248,38 @@ public class Location {
      * @return The list of neighbors
      */
     public List<Location> getNeighbors(LocationMap graph){
-        if(this.neighbors == null){
-            return new ArrayList<>();
-        }
-        return this.neighbors.stream().map((Long neighborId) -> graph.getLocationById(neighborId)).collect(Collectors.toList());
+        List<Location> rVal = new ArrayList<>();
+        this.forEachNeighbor(graph, rVal::add);
+        return rVal;
     }
 
+    /**
+     * Gets the ids of the neighbors of this location
+     * @return The ids
+     */
     public List<Long> getNeighborIds(){
-        return this.neighbors;
+        if(map == null){
+            return this.getSavedNeighborIds();
+        }
+        List<Long> rVal = new ArrayList<>();
+        map.getGraph().forEachNeighbor(this.id, rVal::add);
+        return rVal;
+    }
+
+    /**
+     * Gets the ids of the neighbors of this location as saved with the world
+     * @return The ids
+     */
+    List<Long> getSavedNeighborIds(){
+        return this.neighbors != null ? this.neighbors : new ArrayList<>();
+    }
+
+    /**
+     * Sets the ids of the neighbors of this location as saved with the world
+     * @param neighborIds The ids
+     */
+    void setSavedNeighborIds(List<Long> neighborIds){
+        this.neighbors = neighborIds;
     }
 
     /**
@@ -193,8 +305,10 @@ public class Location {
      * @return The target if it exists, null otherwise
      */
     public Location findConnectionTo(LocationMap graph, String targetName){
-        List<Location> neighbors = this.getNeighbors(graph);
-        for(Location neighbor : neighbors){
+        LocationGraph connections = graph.getGraph();
+        int degree = connections.getDegree(this.id);
+        for(int i = 0; i < degree; i++){
+            Location neighbor = graph.getLocationById(connections.getNeighbor(this.id, i));
             if(neighbor.generateFallbackLabel().equalsIgnoreCase(targetName)){
                 return neighbor;
             }
@@ -220,10 +334,7 @@ public class Location {
         prompt.append("The player is currently in a location.");
         prompt.append("Description: " + this.description + "\n");
         prompt.append("Nearby, the player can already see: \n");
-        List<Location> neighbors = this.getNeighbors(graph);
-        for (Location neighbor : neighbors) {
-            prompt.append(" - " + neighbor.generateFallbackLabel() + "\n");
-        }
+        this.forEachNeighbor(graph, (Location neighbor) -> prompt.append(" - " + neighbor.generateFallbackLabel() + "\n"));
         prompt.append("Please list 1-2 plausible new nearby location types the player might discover. ");
         prompt.append("Examples of location types: alley, warehouse, tavern, cellar, courtyard, etc. ");
         prompt.append("Output ONLY the types, comma-separated. Do not repeat known ones.");
@@ -280,19 +391,44 @@ public class Location {
     }
 
     /**
-     * Gets the list of character IDs in this location
-     * @return List of character IDs
+     * Writes this location to a world snapshot. Its neighbors are written with the location map's graph.
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
      */
-    public List<Long> getCharacterIds() {
-        return characterIds;
+    void writeSnapshot(SnapshotWriter out) throws IOException {
+        out.writeLong(this.id);
+        out.writeString(this.type);
+        out.writeString(this.description);
+        out.writeLong(this.parentRegionId);
+        out.writeBoolean(this.hasGeneratedNeighbors);
+        out.writeBoolean(this.isDiscovered);
+        out.writeBoolean(this.residentSeed != null);
+        if(this.residentSeed != null){
+            out.writeLong(this.residentSeed);
+        }
+        out.writeLong(this.residentStateId);
     }
 
     /**
-     * Sets the list of character IDs in this location
-     * @param characterIds List of character IDs
+     * Reads a location written by {@link #writeSnapshot(SnapshotWriter)}
+     * @param in The snapshot
+     * @return The location, not yet registered with a map
+     * @throws IOException If the snapshot can't be read
      */
-    public void setCharacterIds(List<Long> characterIds) {
-        this.characterIds = characterIds;
+    static Location readSnapshot(SnapshotReader in) throws IOException {
+        long id = in.readLong();
+        String type = in.readString();
+        String description = in.readString();
+        Location rVal = new Location(type, description, in.readLong());
+        rVal.id = id;
+        rVal.neighbors = null;
+        rVal.hasGeneratedNeighbors = in.readBoolean();
+        rVal.isDiscovered = in.readBoolean();
+        if(in.readBoolean()){
+            rVal.residentSeed = in.readLong();
+        }
+        rVal.residentStateId = in.readLong();
+        return rVal;
     }
 
 }
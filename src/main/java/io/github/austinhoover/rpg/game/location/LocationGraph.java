@@ -0,0 +1,440 @@
+package io.github.austinhoover.rpg.game.location;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+import io.github.austinhoover.rpg.game.world.LongHashSet;
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
+
+/**
+ * Adjacency of the location network, stored as primitive arrays.
+ * Most edges live in compressed sparse rows: one array of every location's neighbors back to back, and one of where each location's run starts.
+ * Edges added since the rows were last built go to a small per-location overflow array, and are merged into the rows once there are enough of them.
+ * Neighbors keep the order they were added in, and walking them allocates nothing.
+ */
+public class LocationGraph {
+
+    /**
+     * Fewest overflow edges before they are merged into the rows
+     */
+    private static final int MIN_MERGE_EDGES = 64;
+
+    /**
+     * Most recently added edges remembered, so derived data can catch up on them instead of starting over
+     */
+    private static final int MAX_RECENT_EDGES = 4096;
+
+    /**
+     * Location id -> index into {@link #targets} of the location's first neighbor, with one extra entry closing the last run
+     */
+    private int[] offsets = new int[1];
+
+    /**
+     * Neighbor ids of every location in the rows, back to back
+     */
+    private long[] targets = new long[0];
+
+    /**
+     * Location id -> neighbors added since the rows were built, or null if there are none
+     */
+    private long[][] overflow = new long[0][];
+
+    /**
+     * Location id -> number of entries used in its overflow array
+     */
+    private int[] overflowCounts = new int[0];
+
+    /**
+     * Number of edges in the overflow arrays
+     */
+    private int overflowEdges = 0;
+
+    /**
+     * Every edge, packed as (from, to), for constant time duplicate checks. Built on first use after loading a snapshot.
+     */
+    private LongHashSet edges;
+
+    /**
+     * One more than the highest location id at either end of an edge
+     */
+    private int nodeBound = 0;
+
+    /**
+     * Number of times an edge has been added, so derived data can tell when it is out of date
+     */
+    private long version = 0;
+
+    /**
+     * The most recently added edges, packed as (from, to), oldest first
+     */
+    private long[] recentEdges = new long[0];
+
+    /**
+     * Number of entries used in {@link #recentEdges}
+     */
+    private int recentCount = 0;
+
+    /**
+     * Creates an empty graph
+     */
+    public LocationGraph() {
+        this.edges = new LongHashSet();
+    }
+
+    /**
+     * Creates a graph from compressed sparse rows
+     * @param offsets Location id -> index into targets of the location's first neighbor, with one extra entry closing the last run
+     * @param targets Neighbor ids of every location, back to back
+     */
+    private LocationGraph(int[] offsets, long[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.nodeBound = offsets.length - 1;
+        this.overflow = new long[nodeBound][];
+        this.overflowCounts = new int[nodeBound];
+        this.edges = null;
+        this.version = targets.length;
+    }
+
+    /**
+     * Adds an edge from one location to another, if it isn't there already
+     * @param from The id of the location the edge starts at
+     * @param to The id of the location the edge leads to
+     * @return true if the edge was added
+     */
+    public synchronized boolean addEdge(long from, long to) {
+        if (!this.getEdges().add(pack(from, to))) {
+            return false;
+        }
+        version++;
+        this.remember(pack(from, to));
+        nodeBound = (int) Math.max(nodeBound, Math.max(from, to) + 1);
+        int node = (int) from;
+        if (node >= overflowCounts.length) {
+            int length = Math.max(node + 1, overflowCounts.length * 2);
+            overflow = Arrays.copyOf(overflow, length);
+            overflowCounts = Arrays.copyOf(overflowCounts, length);
+        }
+        long[] extra = overflow[node];
+        if (extra == null) {
+            extra = overflow[node] = new long[2];
+        } else if (overflowCounts[node] == extra.length) {
+            extra = overflow[node] = Arrays.copyOf(extra, extra.length * 2);
+        }
+        extra[overflowCounts[node]++] = to;
+        overflowEdges++;
+        if (overflowEdges >= Math.max(MIN_MERGE_EDGES, targets.length / 4)) {
+            this.compact();
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether there is an edge from one location to another
+     * @param from The id of the location the edge starts at
+     * @param to The id of the location the edge leads to
+     * @return true if there is
+     */
+    public synchronized boolean hasEdge(long from, long to) {
+        return this.getEdges().contains(pack(from, to));
+    }
+
+    /**
+     * Gets the number of neighbors of a location
+     * @param id The id of the location
+     * @return The number of neighbors
+     */
+    public synchronized int getDegree(long id) {
+        return this.getRowLength(id) + this.getOverflowCount(id);
+    }
+
+    /**
+     * Gets one of the neighbors of a location
+     * @param id The id of the location
+     * @param index The index of the neighbor, less than the location's degree
+     * @return The id of the neighbor
+     */
+    public synchronized long getNeighbor(long id, int index) {
+        int rowLength = this.getRowLength(id);
+        if (index < rowLength) {
+            return targets[offsets[(int) id] + index];
+        }
+        if (index - rowLength >= this.getOverflowCount(id)) {
+            throw new IndexOutOfBoundsException("Neighbor " + index + " of location " + id);
+        }
+        return overflow[(int) id][index - rowLength];
+    }
+
+    /**
+     * Calls a consumer with the id of each neighbor of a location, in the order they were added.
+     * The consumer runs while this graph is locked, so it must not add edges from another thread.
+     * @param id The id of the location
+     * @param consumer The consumer
+     */
+    public synchronized void forEachNeighbor(long id, LongConsumer consumer) {
+        int rowLength = this.getRowLength(id);
+        if (rowLength > 0) {
+            int start = offsets[(int) id];
+            for (int i = start; i < start + rowLength; i++) {
+                consumer.accept(targets[i]);
+            }
+        }
+        int extraCount = this.getOverflowCount(id);
+        if (extraCount > 0) {
+            long[] extra = overflow[(int) id];
+            for (int i = 0; i < extraCount; i++) {
+                consumer.accept(extra[i]);
+            }
+        }
+    }
+
+    /**
+     * Copies the ids of the neighbors of a location
+     * @param id The id of the location
+     * @return The ids, in the order they were added
+     */
+    public synchronized long[] getNeighbors(long id) {
+        long[] rVal = new long[this.getDegree(id)];
+        int rowLength = this.getRowLength(id);
+        if (rowLength > 0) {
+            System.arraycopy(targets, offsets[(int) id], rVal, 0, rowLength);
+        }
+        int extraCount = this.getOverflowCount(id);
+        if (extraCount > 0) {
+            System.arraycopy(overflow[(int) id], 0, rVal, rowLength, extraCount);
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the number of edges
+     * @return The number of edges
+     */
+    public synchronized int getEdgeCount() {
+        return targets.length + overflowEdges;
+    }
+
+    /**
+     * Gets one more than the highest location id at either end of an edge
+     * @return The bound
+     */
+    public synchronized int getNodeBound() {
+        return nodeBound;
+    }
+
+    /**
+     * Gets the number of times an edge has been added
+     * @return The version
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the edges added after a version of this graph
+     * @param since The version
+     * @return The edges packed as (from, to), oldest first, or null if this graph no longer remembers all of them
+     */
+    synchronized long[] getEdgesSince(long since) {
+        long added = version - since;
+        if (added < 0 || added > recentCount) {
+            return null;
+        }
+        return Arrays.copyOfRange(recentEdges, recentCount - (int) added, recentCount);
+    }
+
+    /**
+     * Gets the location an edge packed by {@link #getEdgesSince(long)} starts at
+     * @param edge The packed edge
+     * @return The id of the location
+     */
+    static int getEdgeSource(long edge) {
+        return (int) (edge >>> 32);
+    }
+
+    /**
+     * Gets the location an edge packed by {@link #getEdgesSince(long)} leads to
+     * @param edge The packed edge
+     * @return The id of the location
+     */
+    static int getEdgeTarget(long edge) {
+        return (int) edge;
+    }
+
+    /**
+     * Gets where each location's run of neighbors starts in the rows, without locking.
+     * Callers hold the lock on this graph. The rows hold the edges as of the last compaction, the rest are in {@link #getOverflowTargets()}.
+     * @return Location id -> index into {@link #getRowTargets()}, with one extra entry closing the last run
+     */
+    int[] getRowOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Gets the neighbors of every location in the rows, back to back, without locking. Callers hold the lock on this graph.
+     * @return The neighbor ids
+     */
+    long[] getRowTargets() {
+        return targets;
+    }
+
+    /**
+     * Gets the neighbors added since the last compaction, without locking. Callers hold the lock on this graph.
+     * @return Location id -> neighbors, or null if there are none. Only the first {@link #getOverflowCounts()} entries of each are used.
+     */
+    long[][] getOverflowTargets() {
+        return overflow;
+    }
+
+    /**
+     * Gets the number of neighbors added to each location since the last compaction, without locking. Callers hold the lock on this graph.
+     * @return Location id -> number of neighbors, shorter than {@link #getNodeBound()} if the last locations have none
+     */
+    int[] getOverflowCounts() {
+        return overflowCounts;
+    }
+
+    /**
+     * Writes this graph to a world snapshot as its compressed sparse rows
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    synchronized void writeSnapshot(SnapshotWriter out) throws IOException {
+        this.compact();
+        out.writeIntArray(offsets);
+        out.writeLongArray(targets);
+    }
+
+    /**
+     * Reads a graph written by {@link #writeSnapshot(SnapshotWriter)}
+     * @param in The snapshot
+     * @return The graph
+     * @throws IOException If the rows don't fit together
+     */
+    static LocationGraph readSnapshot(SnapshotReader in) throws IOException {
+        int[] offsets = in.readIntArray();
+        long[] targets = in.readLongArray();
+        if (offsets.length == 0 || offsets[0] != 0 || offsets[offsets.length - 1] != targets.length) {
+            throw new IOException("Location graph rows don't match its " + targets.length + " edges");
+        }
+        for (int node = 1; node < offsets.length; node++) {
+            if (offsets[node] < offsets[node - 1]) {
+                throw new IOException("Location graph row " + node + " starts before the previous one");
+            }
+        }
+        for (long target : targets) {
+            if (target < 0 || target >= offsets.length - 1) {
+                throw new IOException("Location graph edge leads to unknown location " + target);
+            }
+        }
+        return new LocationGraph(offsets, targets);
+    }
+
+    /**
+     * Merges the overflow edges into the rows
+     */
+    public synchronized void compact() {
+        if (overflowEdges == 0) {
+            return;
+        }
+        int nodeCount = nodeBound;
+        int[] newOffsets = new int[nodeCount + 1];
+        long[] newTargets = new long[targets.length + overflowEdges];
+        int position = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            newOffsets[node] = position;
+            int rowLength = this.getRowLength(node);
+            if (rowLength > 0) {
+                System.arraycopy(targets, offsets[node], newTargets, position, rowLength);
+                position += rowLength;
+            }
+            int extraCount = this.getOverflowCount(node);
+            if (extraCount > 0) {
+                System.arraycopy(overflow[node], 0, newTargets, position, extraCount);
+                position += extraCount;
+            }
+        }
+        newOffsets[nodeCount] = position;
+        offsets = newOffsets;
+        targets = newTargets;
+        overflow = new long[nodeCount][];
+        overflowCounts = new int[nodeCount];
+        overflowEdges = 0;
+    }
+
+    /**
+     * Remembers an added edge, forgetting the older half of the ones remembered once there are too many
+     * @param edge The packed edge
+     */
+    private void remember(long edge) {
+        if (recentCount == MAX_RECENT_EDGES) {
+            int kept = MAX_RECENT_EDGES / 2;
+            System.arraycopy(recentEdges, recentCount - kept, recentEdges, 0, kept);
+            recentCount = kept;
+        } else if (recentCount == recentEdges.length) {
+            recentEdges = Arrays.copyOf(recentEdges, Math.max(16, recentEdges.length * 2));
+        }
+        recentEdges[recentCount++] = edge;
+    }
+
+    /**
+     * Gets the set of every edge, building it from the rows if the graph was just loaded. Callers hold the lock on this graph.
+     * @return The set
+     */
+    private LongHashSet getEdges() {
+        if (edges == null) {
+            LongHashSet built = new LongHashSet(targets.length + overflowEdges);
+            for (int node = 0; node < offsets.length - 1; node++) {
+                for (int i = offsets[node]; i < offsets[node + 1]; i++) {
+                    built.add(pack(node, targets[i]));
+                }
+            }
+            for (int node = 0; node < overflowCounts.length; node++) {
+                for (int i = 0; i < overflowCounts[node]; i++) {
+                    built.add(pack(node, overflow[node][i]));
+                }
+            }
+            edges = built;
+        }
+        return edges;
+    }
+
+    /**
+     * Gets the number of neighbors of a location stored in the rows
+     * @param id The id of the location
+     * @return The number of neighbors
+     */
+    private int getRowLength(long id) {
+        if (id < 0 || id >= offsets.length - 1) {
+            return 0;
+        }
+        return offsets[(int) id + 1] - offsets[(int) id];
+    }
+
+    /**
+     * Gets the number of neighbors of a location stored in its overflow array
+     * @param id The id of the location
+     * @return The number of neighbors
+     */
+    private int getOverflowCount(long id) {
+        if (id < 0 || id >= overflowCounts.length) {
+            return 0;
+        }
+        return overflowCounts[(int) id];
+    }
+
+    /**
+     * Packs an edge into a single value
+     * @param from The id of the location the edge starts at
+     * @param to The id of the location the edge leads to
+     * @return The packed edge
+     */
+    private static long pack(long from, long to) {
+        if (from < 0 || from > Integer.MAX_VALUE || to < 0 || to > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Location id out of range " + from + " -> " + to);
+        }
+        return (from << 32) | to;
+    }
+}
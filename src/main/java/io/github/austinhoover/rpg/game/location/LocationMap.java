@@ -1,7 +1,12 @@
 package io.github.austinhoover.rpg.game.location;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.austinhoover.rpg.game.world.EntityStore;
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
 
 /**
  * Storage object for all locations
@@ -11,7 +16,17 @@ public class LocationMap {
     /**
      * Map of id -> location
      */
-    private Map<Long,Location> idLocMap = new HashMap<Long,Location>();
+    private EntityStore<Location> idLocMap = new EntityStore<Location>();
+
+    /**
+     * Connections between the locations, rebuilt from the locations after a world is loaded
+     */
+    private transient LocationGraph graph;
+
+    /**
+     * Finds routes over the graph
+     */
+    private transient LocationPathfinder pathfinder;
 
     /**
      * Gets a location by its id
@@ -27,8 +42,108 @@ public class LocationMap {
      * @param loc The location
      */
     public void register(Location loc){
-        loc.setId(idLocMap.size());
+        loc.setId(idLocMap.allocateId());
         idLocMap.put(loc.getId(),loc);
+        loc.setMap(this);
+    }
+
+    /**
+     * Gets the graph of connections between the locations, building it from the locations' saved neighbors if the world was just loaded
+     * @return The graph
+     */
+    public synchronized LocationGraph getGraph(){
+        if(graph == null){
+            LocationGraph built = new LocationGraph();
+            idLocMap.forEach((Location location) -> {
+                location.setMap(this);
+                for(long neighborId : location.getSavedNeighborIds()){
+                    built.addEdge(location.getId(), neighborId);
+                }
+                // the graph holds them from now on
+                location.setSavedNeighborIds(null);
+            });
+            built.compact();
+            graph = built;
+        }
+        return graph;
+    }
+
+    /**
+     * Rebuilds the indices over the locations, ie after the map was loaded from a file
+     */
+    public synchronized void rebuildIndices(){
+        if(graph != null){
+            this.syncSavedNeighbors();
+        }
+        graph = null;
+        pathfinder = null;
+        this.getGraph();
+    }
+
+    /**
+     * Copies the graph into each location's saved neighbors, so the locations can be written as json
+     */
+    public synchronized void syncSavedNeighbors(){
+        LocationGraph current = this.getGraph();
+        idLocMap.forEach((Location location) -> {
+            List<Long> neighborIds = new ArrayList<>(current.getDegree(location.getId()));
+            current.forEachNeighbor(location.getId(), neighborIds::add);
+            location.setSavedNeighborIds(neighborIds);
+        });
+    }
+
+    /**
+     * Gets the pathfinder over the graph of connections between the locations
+     * @return The pathfinder
+     */
+    public synchronized LocationPathfinder getPathfinder(){
+        if(pathfinder == null){
+            pathfinder = new LocationPathfinder(this.getGraph());
+        }
+        return pathfinder;
+    }
+
+    /**
+     * Finds a shortest route between two locations
+     * @param from The id of the starting location
+     * @param to The id of the destination
+     * @return The ids of the locations along the route, starting with from and ending with to, or null if there is no route
+     */
+    public long[] findRoute(long from, long to){
+        return this.getPathfinder().findRoute(from, to);
+    }
+
+    /**
+     * Writes the locations and the graph of connections between them to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        List<Location> locations = new ArrayList<>(idLocMap.values());
+        out.writeLong(idLocMap.getIdBound());
+        out.writeInt(locations.size());
+        for(Location location : locations){
+            location.writeSnapshot(out);
+        }
+        this.getGraph().writeSnapshot(out);
+    }
+
+    /**
+     * Reads the locations and their graph from a world snapshot into this empty map
+     * @param in The snapshot
+     * @throws IOException If the snapshot can't be read
+     */
+    public synchronized void readSnapshot(SnapshotReader in) throws IOException {
+        long idBound = in.readLong();
+        int count = in.readInt();
+        for(int i = 0; i < count; i++){
+            Location location = Location.readSnapshot(in);
+            location.setMap(this);
+            idLocMap.put(location.getId(), location);
+        }
+        idLocMap.reserveIds(idBound);
+        graph = LocationGraph.readSnapshot(in);
+        pathfinder = null;
     }
 
 }
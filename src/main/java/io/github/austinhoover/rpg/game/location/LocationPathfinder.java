@@ -0,0 +1,635 @@
+package io.github.austinhoover.rpg.game.location;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Finds shortest routes over the location graph, where every connection is one hop.
+ * Searches run A* from both ends at once, guided by landmarks: the hop counts from a few far-apart locations to every other location
+ * are computed up front, and by the triangle inequality the difference between two locations' counts is a lower bound on the hops between them.
+ * Both searches steer by the average of the bound to the destination and the bound from the start, which keeps them consistent with each other,
+ * so the search can stop as soon as neither side can improve on the best meeting point found.
+ * Connections are assumed to go both ways, as {@link Location#addNeighbor(Location)} makes them.
+ * Once the graph changes, the landmark distances are lowered from the ends of the new edges, and only the cached routes a new edge could shorten are dropped.
+ * The landmarks are picked again when the graph has grown too much since they were picked, or has forgotten the edges it gained.
+ * Searches read the graph's rows and its overflow of recently added edges directly, so the graph is never compacted on their account,
+ * and they reuse their working arrays, so a search allocates nothing but the route it returns.
+ */
+public class LocationPathfinder {
+
+    /**
+     * Most landmarks to pick
+     */
+    private static final int MAX_LANDMARKS = 8;
+
+    /**
+     * Number of routes kept in the cache
+     */
+    private static final int ROUTE_CACHE_SIZE = 1024;
+
+    /**
+     * The landmarks are picked again rather than updated once the edges added since make up more than this fraction of the graph
+     */
+    private static final int UPDATE_FRACTION = 16;
+
+    /**
+     * Distance to a location no landmark can reach
+     */
+    private static final int UNREACHABLE = -1;
+
+    /**
+     * The graph searched
+     */
+    private final LocationGraph graph;
+
+    /**
+     * Version of the graph the landmarks were computed for
+     */
+    private long builtVersion = -1;
+
+    /**
+     * One more than the highest location id as of the last refresh
+     */
+    private int nodeBound = 0;
+
+    /**
+     * The rows of the graph as of the last refresh, see {@link LocationGraph#getRowOffsets()}
+     */
+    private int[] rowOffsets = new int[1];
+
+    /**
+     * The neighbors in the rows of the graph as of the last refresh, see {@link LocationGraph#getRowTargets()}
+     */
+    private long[] rowTargets = new long[0];
+
+    /**
+     * The neighbors added to the graph since it was last compacted, as of the last refresh, see {@link LocationGraph#getOverflowTargets()}
+     */
+    private long[][] overflowTargets = new long[0][];
+
+    /**
+     * The number of neighbors in each of {@link #overflowTargets}, see {@link LocationGraph#getOverflowCounts()}
+     */
+    private int[] overflowCounts = new int[0];
+
+    /**
+     * Ids of the landmarks
+     */
+    private int[] landmarks = new int[0];
+
+    /**
+     * Landmark index -> location id -> hops from the landmark, or {@link #UNREACHABLE}
+     */
+    private int[][] landmarkDistances = new int[0][];
+
+    /**
+     * Working space for the breadth first searches over the landmarks
+     */
+    private int[] queue = new int[0];
+
+    /**
+     * (from, to) -> the route between them, least recently used first
+     */
+    private final LinkedHashMap<Long, long[]> routes = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+            return this.size() > ROUTE_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * The search from the start
+     */
+    private final Frontier forward = new Frontier();
+
+    /**
+     * The search from the destination
+     */
+    private final Frontier backward = new Frontier();
+
+    /**
+     * Number of the current search, so the working arrays never have to be cleared
+     */
+    private int stamp = 0;
+
+    /**
+     * Start of the current search
+     */
+    private int source;
+
+    /**
+     * Destination of the current search
+     */
+    private int goal;
+
+    /**
+     * Creates a pathfinder
+     * @param graph The graph to search
+     */
+    public LocationPathfinder(LocationGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Finds a shortest route between two locations
+     * @param from The id of the starting location
+     * @param to The id of the destination
+     * @return The ids of the locations along the route, starting with from and ending with to, or null if there is no route
+     */
+    public long[] findRoute(long from, long to) {
+        synchronized (graph) {
+            this.refresh();
+            if (from == to) {
+                return new long[]{from};
+            }
+            if (from < 0 || to < 0 || from >= nodeBound || to >= nodeBound) {
+                return null;
+            }
+            Long key = (from << 32) | to;
+            if (routes.containsKey(key)) {
+                long[] cached = routes.get(key);
+                return cached != null ? cached.clone() : null;
+            }
+            long[] rVal = this.search((int) from, (int) to);
+            routes.put(key, rVal);
+            return rVal != null ? rVal.clone() : null;
+        }
+    }
+
+    /**
+     * Gets the number of hops between two locations
+     * @param from The id of the starting location
+     * @param to The id of the destination
+     * @return The number of hops, or -1 if there is no route
+     */
+    public int getDistance(long from, long to) {
+        long[] route = this.findRoute(from, to);
+        return route != null ? route.length - 1 : -1;
+    }
+
+    /**
+     * Gets the ids of the landmarks, computing them if the graph changed
+     * @return The ids
+     */
+    public long[] getLandmarks() {
+        synchronized (graph) {
+            this.refresh();
+            return Arrays.stream(landmarks).asLongStream().toArray();
+        }
+    }
+
+    /**
+     * Runs the search. Callers hold the lock on the graph.
+     * @param from The id of the starting location
+     * @param to The id of the destination
+     * @return The route, or null if there is none
+     */
+    private long[] search(int from, int to) {
+        if (this.bound(from, to) == Integer.MAX_VALUE) {
+            // some landmark reaches one end but not the other, so they are in different parts of the graph
+            return null;
+        }
+        stamp++;
+        if (stamp == Integer.MAX_VALUE) {
+            forward.clearStamps();
+            backward.clearStamps();
+            stamp = 1;
+        }
+        source = from;
+        goal = to;
+        forward.size = 0;
+        backward.size = 0;
+        forward.reach(from, 0, from, stamp, this.potential(from));
+        backward.reach(to, 0, to, stamp, -this.potential(to));
+
+        int best = Integer.MAX_VALUE;
+        int meeting = -1;
+        while (forward.size > 0 && backward.size > 0) {
+            // keys are doubled, and the potentials cancel out across the two sides
+            if (best != Integer.MAX_VALUE && (long) forward.topKey() + backward.topKey() >= 2L * best) {
+                break;
+            }
+            boolean isForward = forward.size <= backward.size;
+            Frontier current = isForward ? forward : backward;
+            Frontier other = isForward ? backward : forward;
+            int node = current.pop();
+            if (current.settled[node] == stamp) {
+                continue;
+            }
+            current.settled[node] = stamp;
+            int neighborHops = current.hops[node] + 1;
+            int degree = this.degree(node);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = this.neighbor(node, i);
+                if (current.reached[neighbor] == stamp && current.hops[neighbor] <= neighborHops) {
+                    continue;
+                }
+                int potential = this.potential(neighbor);
+                current.reach(neighbor, neighborHops, node, stamp, isForward ? potential : -potential);
+                if (other.reached[neighbor] == stamp && neighborHops + other.hops[neighbor] < best) {
+                    best = neighborHops + other.hops[neighbor];
+                    meeting = neighbor;
+                }
+            }
+        }
+        return meeting >= 0 ? this.buildRoute(meeting, best) : null;
+    }
+
+    /**
+     * Gets the doubled potential that steers the search from the start: the bound on the hops left to the destination,
+     * less the bound on the hops already taken from the start. The search from the destination steers by its negation.
+     * @param node The id of the location
+     * @return The potential
+     */
+    private int potential(int node) {
+        int toGoal = 0;
+        int fromSource = 0;
+        for (int[] distances : landmarkDistances) {
+            int fromLandmark = distances[node];
+            if (fromLandmark == UNREACHABLE) {
+                continue;
+            }
+            if (distances[goal] != UNREACHABLE) {
+                toGoal = Math.max(toGoal, Math.abs(fromLandmark - distances[goal]));
+            }
+            if (distances[source] != UNREACHABLE) {
+                fromSource = Math.max(fromSource, Math.abs(fromLandmark - distances[source]));
+            }
+        }
+        return toGoal - fromSource;
+    }
+
+    /**
+     * Bounds the hops between two locations from the landmarks, never overestimating
+     * @param node The id of one location
+     * @param target The id of the other location
+     * @return The bound, or {@link Integer#MAX_VALUE} if they can't be connected
+     */
+    private int bound(int node, int target) {
+        int rVal = 0;
+        for (int[] distances : landmarkDistances) {
+            int fromNode = distances[node];
+            int fromTarget = distances[target];
+            if (fromNode == UNREACHABLE || fromTarget == UNREACHABLE) {
+                if (fromNode != fromTarget) {
+                    return Integer.MAX_VALUE;
+                }
+                continue;
+            }
+            rVal = Math.max(rVal, Math.abs(fromNode - fromTarget));
+        }
+        return rVal;
+    }
+
+    /**
+     * Joins the two halves of a finished search at the location where they met
+     * @param meeting The id of the location
+     * @param hops The length of the route
+     * @return The route
+     */
+    private long[] buildRoute(int meeting, int hops) {
+        long[] rVal = new long[hops + 1];
+        int node = meeting;
+        for (int i = forward.hops[meeting]; i >= 0; i--) {
+            rVal[i] = node;
+            node = forward.previous[node];
+        }
+        node = meeting;
+        for (int i = forward.hops[meeting]; i <= hops; i++) {
+            rVal[i] = node;
+            node = backward.previous[node];
+        }
+        return rVal;
+    }
+
+    /**
+     * Brings the landmarks, the working arrays and the route cache up to date if the graph changed. Callers hold the lock on the graph.
+     */
+    private void refresh() {
+        long version = graph.getVersion();
+        if (builtVersion == version) {
+            return;
+        }
+        long[] added = null;
+        if (builtVersion >= 0 && version - builtVersion <= graph.getEdgeCount() / UPDATE_FRACTION) {
+            added = graph.getEdgesSince(builtVersion);
+        }
+        nodeBound = graph.getNodeBound();
+        rowOffsets = graph.getRowOffsets();
+        rowTargets = graph.getRowTargets();
+        overflowTargets = graph.getOverflowTargets();
+        overflowCounts = graph.getOverflowCounts();
+        int bound = nodeBound;
+        if (bound > queue.length) {
+            // grow ahead of the graph, so locations discovered one at a time don't each resize every array
+            int capacity = Math.max(bound, queue.length + (queue.length >> 1));
+            forward.resize(capacity);
+            backward.resize(capacity);
+            stamp = 0;
+            queue = new int[capacity];
+        }
+        if (added == null) {
+            routes.clear();
+            this.pickLandmarks(bound);
+        } else {
+            for (int i = 0; i < landmarkDistances.length; i++) {
+                int previousCapacity = landmarkDistances[i].length;
+                if (previousCapacity < bound) {
+                    landmarkDistances[i] = Arrays.copyOf(landmarkDistances[i], queue.length);
+                    Arrays.fill(landmarkDistances[i], previousCapacity, queue.length, UNREACHABLE);
+                }
+                for (long edge : added) {
+                    this.lowerDistances(landmarkDistances[i], LocationGraph.getEdgeSource(edge), LocationGraph.getEdgeTarget(edge));
+                }
+            }
+            this.dropShortenedRoutes(added);
+        }
+        builtVersion = version;
+    }
+
+    /**
+     * Lowers a landmark's distances after an edge is added. Adding an edge never makes a location farther away,
+     * so only the locations the edge brings closer are visited, spreading out from the end it leads to.
+     * @param distances Location id -> hops from the landmark
+     * @param from The id of the location the edge starts at
+     * @param to The id of the location the edge leads to
+     */
+    private void lowerDistances(int[] distances, int from, int to) {
+        if (distances[from] == UNREACHABLE || (distances[to] != UNREACHABLE && distances[to] <= distances[from] + 1)) {
+            return;
+        }
+        distances[to] = distances[from] + 1;
+        queue[0] = to;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int node = queue[head++];
+            int neighborHops = distances[node] + 1;
+            int degree = this.degree(node);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = this.neighbor(node, i);
+                if (distances[neighbor] == UNREACHABLE || distances[neighbor] > neighborHops) {
+                    distances[neighbor] = neighborHops;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the cached routes that added edges could shorten or, for pairs with no route, connect.
+     * A route through an edge is at least the bound to the edge's start plus one plus the bound from its end, so a route already that short is kept.
+     * @param added The edges packed as (from, to), with the landmark distances already lowered for them
+     */
+    private void dropShortenedRoutes(long[] added) {
+        Iterator<Map.Entry<Long, long[]>> iterator = routes.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, long[]> entry = iterator.next();
+            int from = (int) (entry.getKey() >>> 32);
+            int to = (int) (entry.getKey() & 0xFFFFFFFFL);
+            long[] route = entry.getValue();
+            for (long edge : added) {
+                int toEdge = this.bound(from, LocationGraph.getEdgeSource(edge));
+                int fromEdge = this.bound(LocationGraph.getEdgeTarget(edge), to);
+                if (toEdge == Integer.MAX_VALUE || fromEdge == Integer.MAX_VALUE) {
+                    continue;
+                }
+                if (route == null || toEdge + 1 + fromEdge < route.length - 1) {
+                    iterator.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks landmarks spread across the graph: each one is the location farthest from the ones already picked,
+     * and a part of the graph none of them can reach gets a landmark of its own first
+     * @param bound One more than the highest location id
+     */
+    private void pickLandmarks(int bound) {
+        int[] nearest = new int[bound];
+        Arrays.fill(nearest, UNREACHABLE);
+        int[] picked = new int[Math.min(MAX_LANDMARKS, bound)];
+        int[][] distances = new int[picked.length][];
+        int count = 0;
+        while (count < picked.length) {
+            int next = -1;
+            int farthest = 0;
+            for (int node = 0; node < bound; node++) {
+                if (this.degree(node) == 0) {
+                    continue;
+                }
+                if (nearest[node] == UNREACHABLE) {
+                    next = node;
+                    break;
+                }
+                if (nearest[node] > farthest) {
+                    farthest = nearest[node];
+                    next = node;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            picked[count] = next;
+            distances[count] = this.breadthFirst(next, bound);
+            for (int node = 0; node < bound; node++) {
+                int distance = distances[count][node];
+                if (distance != UNREACHABLE && (nearest[node] == UNREACHABLE || distance < nearest[node])) {
+                    nearest[node] = distance;
+                }
+            }
+            count++;
+        }
+        landmarks = Arrays.copyOf(picked, count);
+        landmarkDistances = Arrays.copyOf(distances, count);
+    }
+
+    /**
+     * Counts the hops from a location to every other location
+     * @param start The id of the location
+     * @param bound One more than the highest location id
+     * @return Location id -> hops, or {@link #UNREACHABLE}
+     */
+    private int[] breadthFirst(int start, int bound) {
+        // sized like the working arrays, so the graph can grow a while before the distances have to
+        int[] rVal = new int[Math.max(bound, queue.length)];
+        Arrays.fill(rVal, UNREACHABLE);
+        rVal[start] = 0;
+        queue[0] = start;
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int node = queue[head++];
+            int degree = this.degree(node);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = this.neighbor(node, i);
+                if (rVal[neighbor] == UNREACHABLE) {
+                    rVal[neighbor] = rVal[node] + 1;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the number of neighbors of a location, in the rows and the overflow
+     * @param node The id of the location
+     * @return The number of neighbors
+     */
+    private int degree(int node) {
+        int rVal = node < rowOffsets.length - 1 ? rowOffsets[node + 1] - rowOffsets[node] : 0;
+        return node < overflowCounts.length ? rVal + overflowCounts[node] : rVal;
+    }
+
+    /**
+     * Gets one of the neighbors of a location, the ones in the rows first
+     * @param node The id of the location
+     * @param index The index of the neighbor, less than {@link #degree(int)}
+     * @return The id of the neighbor
+     */
+    private int neighbor(int node, int index) {
+        int rowLength = node < rowOffsets.length - 1 ? rowOffsets[node + 1] - rowOffsets[node] : 0;
+        if (index < rowLength) {
+            return (int) rowTargets[rowOffsets[node] + index];
+        }
+        return (int) overflowTargets[node][index - rowLength];
+    }
+
+    /**
+     * One side of a search: what it has reached and the locations it has yet to expand
+     */
+    private static class Frontier {
+
+        /**
+         * Offset that keeps keys positive when packed
+         */
+        private static final int KEY_BIAS = 1 << 30;
+
+        /**
+         * Location id -> hops from this side's end, valid where {@link #reached} matches the search
+         */
+        private int[] hops = new int[0];
+
+        /**
+         * Location id -> the location this side reached it from
+         */
+        private int[] previous = new int[0];
+
+        /**
+         * Location id -> the search in which this side last reached it
+         */
+        private int[] reached = new int[0];
+
+        /**
+         * Location id -> the search in which this side last expanded it
+         */
+        private int[] settled = new int[0];
+
+        /**
+         * Heap of locations to expand, keyed by doubled hops plus potential, ties going to the location farther along
+         */
+        private long[] keys = new long[16];
+
+        /**
+         * The locations in the heap, alongside {@link #keys}
+         */
+        private int[] nodes = new int[16];
+
+        /**
+         * Number of entries in the heap
+         */
+        private int size = 0;
+
+        /**
+         * Resizes the working arrays for a graph
+         * @param bound One more than the highest location id
+         */
+        private void resize(int bound) {
+            hops = new int[bound];
+            previous = new int[bound];
+            reached = new int[bound];
+            settled = new int[bound];
+        }
+
+        /**
+         * Forgets every search, once the search numbers wrap around
+         */
+        private void clearStamps() {
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+        }
+
+        /**
+         * Records a shorter way to a location and queues it
+         * @param node The id of the location
+         * @param nodeHops The hops to it
+         * @param from The id of the location it was reached from
+         * @param stamp The number of the search
+         * @param potential The doubled potential of the location for this side
+         */
+        private void reach(int node, int nodeHops, int from, int stamp, int potential) {
+            reached[node] = stamp;
+            hops[node] = nodeHops;
+            previous[node] = from;
+            long key = ((long) (2 * nodeHops + potential + KEY_BIAS) << 32) | (Integer.MAX_VALUE - nodeHops);
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        /**
+         * Gets the smallest key in the heap, without the tie breaker
+         * @return The key
+         */
+        private int topKey() {
+            return (int) (keys[0] >>> 32) - KEY_BIAS;
+        }
+
+        /**
+         * Removes the location with the smallest key from the heap
+         * @return The id of the location
+         */
+        private int pop() {
+            int rVal = nodes[0];
+            long lastKey = keys[--size];
+            int lastNode = nodes[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= lastKey) {
+                    break;
+                }
+                keys[i] = keys[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            keys[i] = lastKey;
+            nodes[i] = lastNode;
+            return rVal;
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package io.github.austinhoover.rpg.game.location;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Optional;
+import java.util.function.LongConsumer;
+
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
 
 import io.github.austinhoover.rpg.kobold.Kobold;
+import io.github.austinhoover.rpg.kobold.KoboldPriority;
 
 /**
  * Represents a region that can contain locations and nested regions
@@ -17,6 +23,11 @@ public class Region {
     private Set<Long> subregionIds;
     private Long parentRegionId;
 
+    /**
+     * The map this region belongs to, told about changes so it can keep its indices up to date
+     */
+    private transient RegionMap map;
+
     protected Region(long id, String type, Optional<String> name) {
         this.id = id;
         this.type = type;
@@ -49,7 +60,7 @@ public class Region {
                        "Examples of region types: city, forest, desert, mountain range, coastal area, etc.\n" +
                        "Respond with ONLY the region type, nothing else. Keep it to 1-3 words.";
         
-        String response = kobold.request(prompt).trim();
+        String response = kobold.requestCached(prompt, KoboldPriority.BACKGROUND).trim();
         
         // Clean up the response to ensure we get just the region type
         return response.replaceAll("(?i)^(a|an|the)\\s+", "")  // Remove leading articles
@@ -72,7 +83,11 @@ public class Region {
     }
 
     public void setName(Optional<String> name) {
+        String previous = this.name;
         this.name = name.orElse(null);
+        if (map != null) {
+            map.onRenamed(this, previous);
+        }
     }
 
     public Set<Long> getLocationIds() {
@@ -87,6 +102,40 @@ public class Region {
         return Optional.ofNullable(parentRegionId);
     }
 
+    /**
+     * Sets the map this region belongs to
+     * @param map The map
+     */
+    void setMap(RegionMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Calls a consumer with the id of each location directly in this region, without copying them
+     * @param consumer The consumer
+     */
+    void forEachOwnLocationId(LongConsumer consumer) {
+        if (locationIds == null) {
+            return;
+        }
+        for (Long locationId : locationIds) {
+            consumer.accept(locationId);
+        }
+    }
+
+    /**
+     * Calls a consumer with the id of each direct subregion, without copying them
+     * @param consumer The consumer
+     */
+    void forEachOwnSubregionId(LongConsumer consumer) {
+        if (subregionIds == null) {
+            return;
+        }
+        for (Long subregionId : subregionIds) {
+            consumer.accept(subregionId);
+        }
+    }
+
     /**
      * Adds a location to this region
      * @param location The location to add
@@ -96,6 +145,9 @@ public class Region {
             locationIds = new HashSet<>();
         }
         locationIds.add(location.getId());
+        if (map != null) {
+            map.onLocationAdded(this, location.getId());
+        }
     }
 
     /**
@@ -103,7 +155,9 @@ public class Region {
      * @param location The location to remove
      */
     public void removeLocation(Location location) {
-        locationIds.remove(location.getId());
+        if (locationIds.remove(location.getId()) && map != null) {
+            map.onLocationRemoved(this, location.getId());
+        }
     }
 
     /**
@@ -111,12 +165,14 @@ public class Region {
      * @param subregion The subregion to add
      */
     public void addSubregion(Region subregion) {
-        if (subregion.parentRegionId != null) {
-            // Note: This will need to be handled by the RegionMap to properly update the parent region
-            subregion.parentRegionId = null;
+        if (subregion.parentRegionId != null && map != null) {
+            map.getRegionById(subregion.parentRegionId).ifPresent(parent -> parent.subregionIds.remove(subregion.getId()));
         }
         subregion.parentRegionId = this.id;
         subregionIds.add(subregion.getId());
+        if (map != null) {
+            map.onTreeChanged();
+        }
     }
 
     /**
@@ -126,6 +182,9 @@ public class Region {
     public void removeSubregion(Region subregion) {
         if (subregionIds.remove(subregion.getId())) {
             subregion.parentRegionId = null;
+            if (map != null) {
+                map.onTreeChanged();
+            }
         }
     }
 
@@ -138,8 +197,7 @@ public class Region {
         if (locationIds.contains(location.getId())) {
             return true;
         }
-        // Note: This will need to be handled by the RegionMap to properly check subregions
-        return false;
+        return map != null && map.containsLocation(this, location.getId());
     }
 
     /**
@@ -147,8 +205,62 @@ public class Region {
      * @return Set of all location IDs in this region and subregions
      */
     public Set<Long> getAllLocationIds() {
-        Set<Long> allLocationIds = new HashSet<>(locationIds);
-        // Note: This will need to be handled by the RegionMap to properly get subregion locations
+        if (map == null) {
+            return new HashSet<>(locationIds);
+        }
+        Set<Long> allLocationIds = new HashSet<>();
+        map.forEachLocationIn(this, allLocationIds::add);
         return allLocationIds;
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes this region to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    void writeSnapshot(SnapshotWriter out) throws IOException {
+        out.writeLong(id);
+        out.writeString(type);
+        out.writeString(name);
+        out.writeLongArray(toArray(locationIds));
+        out.writeLongArray(toArray(subregionIds));
+        out.writeBoolean(parentRegionId != null);
+        if (parentRegionId != null) {
+            out.writeLong(parentRegionId);
+        }
+    }
+
+    /**
+     * Reads a region written by {@link #writeSnapshot(SnapshotWriter)}
+     * @param in The snapshot
+     * @return The region, not yet added to a map
+     * @throws IOException If the snapshot can't be read
+     */
+    static Region readSnapshot(SnapshotReader in) throws IOException {
+        long id = in.readLong();
+        String type = in.readString();
+        Region rVal = new Region(id, type, Optional.ofNullable(in.readString()));
+        for (long locationId : in.readLongArray()) {
+            rVal.locationIds.add(locationId);
+        }
+        for (long subregionId : in.readLongArray()) {
+            rVal.subregionIds.add(subregionId);
+        }
+        if (in.readBoolean()) {
+            rVal.parentRegionId = in.readLong();
+        }
+        return rVal;
+    }
+
+    /**
+     * Copies a set of ids into an array
+     * @param ids The ids, or null if an older save left them out
+     * @return The ids
+     */
+    private static long[] toArray(Set<Long> ids) {
+        if (ids == null) {
+            return new long[0];
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
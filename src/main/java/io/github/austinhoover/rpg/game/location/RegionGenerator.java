@@ -1,6 +1,7 @@
 package io.github.austinhoover.rpg.game.location;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
@@ -10,12 +11,13 @@ import io.github.austinhoover.rpg.game.race.Race;
 import io.github.austinhoover.rpg.game.world.World;
 import io.github.austinhoover.rpg.game.Global;
 import io.github.austinhoover.rpg.game.character.Character;
+import io.github.austinhoover.rpg.game.name.NameAllocator;
+import io.github.austinhoover.rpg.game.name.NameSource;
 
 /**
  * Generates regions for the world
  */
 public class RegionGenerator {
-    private static final Random random = new Random();
     private static final String[] TOWN_TYPES = {
         "town", "village", "hamlet", "settlement", "outpost"
     };
@@ -30,97 +32,115 @@ public class RegionGenerator {
     };
 
     /**
-     * Generates a continent with subregions for each political state
+     * Where generated characters get their names from
+     */
+    private static NameSource nameSource = NameSource.LLM;
+
+    /**
+     * Generates a continent with subregions for each political state.
+     * Each state's territory is generated from its own seed, one state at a time in id order,
+     * so the same seed always produces the same world (names from the LLM aside).
+     * Towns are left without residents until they are first visited, see {@link #ensureResidents(World, Location)}.
      * @param world The world to generate regions in
+     * @param seed The seed of the continent
      * @return The generated continent region
      */
-    public static Region generateContinent(World world) {
+    public static Region generateContinent(World world, long seed) {
+        Random continentRandom = new Random(seed);
+
         // Create the top-level continent region
         Region continent = Region.create(world.getRegionMap(), "continent", Optional.of("Continent"));
-        
+
+        // Go through the states in id order, so ids and seeds are the same every run
+        List<PoliticalState> states = new ArrayList<>(world.getPoliticalStateMap().getAllStates());
+        states.sort(Comparator.comparingLong(PoliticalState::getId));
+
         // Keep track of state locations to connect them later
         List<Location> stateLocations = new ArrayList<>();
-        
-        // Create a subregion for each political state
-        world.getPoliticalStateMap().getAllStates().forEach(state -> {
-            // Create a subregion named after the state
-            Region stateRegion = Region.create(world.getRegionMap(), "territory", Optional.of(state.getName()));
-            
-            // Add it as a subregion of the continent
-            continent.addSubregion(stateRegion);
-            
-            // Create a location for this state
-            Location stateLocation = Location.create(
-                world.getLocationMap(),
-                "capital",
-                String.format("The capital city of %s.", state.getName()),
-                stateRegion.getId()
-            );
-            
-            // Add the location to the state's region
-            stateRegion.addLocation(stateLocation);
-            
-            // Add to our list for later connection
-            stateLocations.add(stateLocation);
-            
-            // Generate towns within this state's territory
-            generateTown(world, stateRegion, state, stateLocation);
-        });
-        
-        // Create a sparse but connected graph of locations
-        if (!stateLocations.isEmpty()) {
-            // First, create a minimum spanning tree to ensure connectivity
-            List<Location> unconnected = new ArrayList<>(stateLocations);
-            List<Location> connected = new ArrayList<>();
-            
-            // Start with a random location
-            Location start = unconnected.remove(random.nextInt(unconnected.size()));
-            connected.add(start);
-            
-            // Connect all locations in a tree structure
-            while (!unconnected.isEmpty()) {
-                Location toConnect = unconnected.remove(random.nextInt(unconnected.size()));
-                Location connectTo = connected.get(random.nextInt(connected.size()));
-                toConnect.addNeighbor(connectTo);
-                connected.add(toConnect);
-            }
-            
-            // Add a few random additional connections to create some cycles
-            // but keep the graph sparse
-            int numExtraConnections = stateLocations.size() / 2; // Add connections for half the locations
-            for (int i = 0; i < numExtraConnections; i++) {
-                Location loc1 = stateLocations.get(random.nextInt(stateLocations.size()));
-                Location loc2 = stateLocations.get(random.nextInt(stateLocations.size()));
-                if (loc1 != loc2 && !loc1.getNeighbors(world.getLocationMap()).contains(loc2)) {
-                    loc1.addNeighbor(loc2);
-                }
-            }
+        for (PoliticalState state : states) {
+            stateLocations.add(RegionGenerator.generateTerritory(world, continent, state, new Random(continentRandom.nextLong())));
         }
-        
+
+        RegionGenerator.connectStates(world, stateLocations, continentRandom);
+
         return continent;
     }
 
     /**
-     * Generates towns within a region for a given political state
+     * Creates a sparse but connected graph of state capitals
      * @param world The world instance
-     * @param region The region to generate towns in
-     * @param state The political state that owns these towns
-     * @param stateCapital The capital location of the state
+     * @param stateLocations The capitals
+     * @param random The source of randomness
      */
-    public static void generateTown(World world, Region region, PoliticalState state, Location stateCapital) {
+    private static void connectStates(World world, List<Location> stateLocations, Random random) {
+        if (stateLocations.isEmpty()) {
+            return;
+        }
+        // First, create a minimum spanning tree to ensure connectivity
+        List<Location> unconnected = new ArrayList<>(stateLocations);
+        List<Location> connected = new ArrayList<>();
+
+        // Start with a random location
+        Location start = unconnected.remove(random.nextInt(unconnected.size()));
+        connected.add(start);
+
+        // Connect all locations in a tree structure
+        while (!unconnected.isEmpty()) {
+            Location toConnect = unconnected.remove(random.nextInt(unconnected.size()));
+            Location connectTo = connected.get(random.nextInt(connected.size()));
+            toConnect.addNeighbor(connectTo);
+            connected.add(toConnect);
+        }
+
+        // Add a few random additional connections to create some cycles
+        // but keep the graph sparse
+        int numExtraConnections = stateLocations.size() / 2; // Add connections for half the locations
+        for (int i = 0; i < numExtraConnections; i++) {
+            Location loc1 = stateLocations.get(random.nextInt(stateLocations.size()));
+            Location loc2 = stateLocations.get(random.nextInt(stateLocations.size()));
+            if (loc1 != loc2 && !loc1.hasNeighbor(loc2.getId())) {
+                loc1.addNeighbor(loc2);
+            }
+        }
+    }
+
+    /**
+     * Generates the territory of a state
+     * @param world The world instance
+     * @param continent The continent the territory belongs to
+     * @param state The political state
+     * @param random The state's source of randomness
+     * @return The capital of the territory
+     */
+    private static Location generateTerritory(World world, Region continent, PoliticalState state, Random random) {
+        // Create a subregion named after the state
+        Region stateRegion = Region.create(world.getRegionMap(), "territory", Optional.of(state.getName()));
+
+        // Add it as a subregion of the continent
+        continent.addSubregion(stateRegion);
+
+        // Create a location for this state
+        Location stateLocation = Location.create(
+            world.getLocationMap(),
+            "capital",
+            String.format("The capital city of %s.", state.getName()),
+            stateRegion.getId()
+        );
+
+        // Add the location to the state's region
+        stateRegion.addLocation(stateLocation);
+
         // Generate 2-4 towns for each state
         int numTowns = random.nextInt(3) + 2;
-        
         for (int i = 0; i < numTowns; i++) {
             String townType = TOWN_TYPES[random.nextInt(TOWN_TYPES.length)];
-            String townName = String.format("%s %s %d", state.getRace(), townType, i + 1);
-            
+
             // Create the town region
-            Region town = Region.create(world.getRegionMap(), townType, Optional.of(townName));
-            
+            Region town = Region.create(world.getRegionMap(), townType, Optional.of(String.format("%s %s %d", state.getRace(), townType, i + 1)));
+
             // Add it as a subregion of the state's territory
-            region.addSubregion(town);
-            
+            stateRegion.addSubregion(town);
+
             // Create a location for this town
             Location townLocation = Location.create(
                 world.getLocationMap(),
@@ -128,15 +148,38 @@ public class RegionGenerator {
                 String.format("A %s in the territory of %s.", townType, state.getName()),
                 town.getId()
             );
-            
+
             // Add the location to the town's region
             town.addLocation(townLocation);
-            
+
             // Connect the town to the state capital
-            townLocation.addNeighbor(stateCapital);
+            townLocation.addNeighbor(stateLocation);
 
-            // Generate characters for this town
-            generateTownCharacters(world, state, townLocation);
+            // Leave the residents to be generated on the first visit, from their own seed
+            townLocation.setPendingResidents(random.nextLong(), state.getId());
+        }
+        return stateLocation;
+    }
+
+    /**
+     * Generates the residents of a location if that was deferred until its first visit. Safe to call more than once.
+     * Called on the turn thread, when the player moves and at startup; web requests only read the occupants already there.
+     * @param world The world instance
+     * @param location The location
+     */
+    public static void ensureResidents(World world, Location location) {
+        if (location == null) {
+            return;
+        }
+        synchronized (location) {
+            if (!location.hasPendingResidents()) {
+                return;
+            }
+            PoliticalState state = world.getPoliticalStateMap().getStateById(location.getResidentStateId());
+            if (state != null) {
+                RegionGenerator.generateTownCharacters(world, state, location, new Random(location.getResidentSeed()));
+            }
+            location.clearPendingResidents();
         }
     }
 
@@ -145,17 +188,22 @@ public class RegionGenerator {
      * @param world The world instance
      * @param state The political state that owns the town
      * @param location The town location
+     * @param random The town's source of randomness
      */
-    private static void generateTownCharacters(World world, PoliticalState state, Location location) {
+    private static void generateTownCharacters(World world, PoliticalState state, Location location, Random random) {
+        Race race = world.getRaceMap().getRaceByName(state.getRace());
+        NameAllocator allocator = world.getCharacterMap().getNameAllocator();
+
         // Generate 3-6 characters for each town
         int numCharacters = random.nextInt(4) + 3;
-        
         for (int i = 0; i < numCharacters; i++) {
             String role = TOWN_ROLES[random.nextInt(TOWN_ROLES.length)];
             String gender = GENDERS[random.nextInt(GENDERS.length)];
-            String name = RegionGenerator.generateName(world.getRaceMap().getRaceByName(state.getRace()), gender, role);
-            
-            // Create the character
+            String name = nameSource == NameSource.SYNTHESIZED
+                ? Global.nameCache.synthesizeName(RegionGenerator.buildNameQuery(race.getName(), gender), allocator, random)
+                : RegionGenerator.generateName(world, race, gender, role);
+
+            // Create the character, which also adds it to the location's occupants
             Character character = Character.create(
                 world.getCharacterMap(),
                 name,
@@ -163,18 +211,40 @@ public class RegionGenerator {
                 gender,
                 location.getId()
             );
+            state.addCitizen(character);
+        }
+    }
 
-            // Add the character to the location's character list
-            location.getCharacterIds().add(character.getId());
+    /**
+     * Builds the query that names of characters of a race and gender are cached under
+     * @param raceName The name of the race
+     * @param gender The gender
+     * @return The query
+     */
+    public static String buildNameQuery(String raceName, String gender){
+        return "I am generating names for characters for a " + gender + " " + raceName + ". Can you give me a name? Please write just the name.";
+    }
+
+    /**
+     * Gets the queries for every race and gender characters can be generated with
+     * @param raceNames The names of the races
+     * @return The queries
+     */
+    public static List<String> getNameQueries(List<String> raceNames){
+        List<String> rVal = new ArrayList<String>();
+        for(String raceName : raceNames){
+            for(String gender : GENDERS){
+                rVal.add(RegionGenerator.buildNameQuery(raceName, gender));
+            }
         }
+        return rVal;
     }
 
-    private static String generateName(Race race, String gender, String role){
-        String prompt = 
-            "I am generating names for characters for a " + gender + " " + race.getName() + ". Can you give me a name? Please write just the name."
-        ;
+    private static String generateName(World world, Race race, String gender, String role){
+        String prompt = RegionGenerator.buildNameQuery(race.getName(), gender);
         try {
-            String response = Global.nameCache.getName(prompt);
+            // names are unique across the world so characters can be told apart by name
+            String response = Global.nameCache.allocateName(prompt, world.getCharacterMap().getNameAllocator());
             return response.equals("null") ? null : response;
         } catch (Exception e) {
             System.err.println("Error calling LLM: " + e.getMessage());
@@ -182,4 +252,20 @@ public class RegionGenerator {
         }
     }
 
-} 
\ No newline at end of file
+    /**
+     * Gets where generated characters get their names from
+     * @return The name source
+     */
+    public static NameSource getNameSource(){
+        return nameSource;
+    }
+
+    /**
+     * Sets where generated characters get their names from
+     * @param nameSource The name source
+     */
+    public static void setNameSource(NameSource nameSource){
+        RegionGenerator.nameSource = nameSource;
+    }
+
+}
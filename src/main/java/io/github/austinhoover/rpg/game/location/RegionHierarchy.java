@@ -0,0 +1,178 @@
+package io.github.austinhoover.rpg.game.location;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import io.github.austinhoover.rpg.game.world.EntityStore;
+
+/**
+ * Indices over the region tree kept by the region map.
+ * Tracks which region directly holds each location, and numbers the regions in the order a depth-first walk of the tree enters them,
+ * so every region's subregions sit in one contiguous range of numbers after it. Whether a location is anywhere under a region is then
+ * a comparison of two numbers, and the regions under a region can be walked without searching.
+ * The numbering is redone lazily after the tree changes. Not thread safe, the region map guards it.
+ */
+class RegionHierarchy {
+
+    /**
+     * Location id -> the region that directly holds the location
+     */
+    private final EntityStore<Region> owners = new EntityStore<Region>();
+
+    /**
+     * Region id -> position of the region in the walk, or -1 if it is not numbered
+     */
+    private int[] enter = new int[0];
+
+    /**
+     * Region id -> position just past the region's last subregion in the walk
+     */
+    private int[] exit = new int[0];
+
+    /**
+     * The regions in the order the walk enters them
+     */
+    private Region[] walk = new Region[0];
+
+    /**
+     * Whether the tree changed since it was last numbered
+     */
+    private boolean stale = true;
+
+    /**
+     * Records that a region holds a location
+     * @param region The region
+     * @param locationId The id of the location
+     */
+    void addLocation(Region region, long locationId) {
+        owners.put(locationId, region);
+    }
+
+    /**
+     * Records that a region no longer holds a location
+     * @param region The region
+     * @param locationId The id of the location
+     */
+    void removeLocation(Region region, long locationId) {
+        if (owners.get(locationId) == region) {
+            owners.remove(locationId);
+        }
+    }
+
+    /**
+     * Gets the region that directly holds a location
+     * @param locationId The id of the location
+     * @return The region, or null if no region holds it
+     */
+    Region getOwner(long locationId) {
+        return owners.get(locationId);
+    }
+
+    /**
+     * Marks the numbering out of date after regions were added, removed or moved
+     */
+    void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Checks whether one region is the other or lies anywhere under it
+     * @param regions The regions of the map
+     * @param ancestor The outer region
+     * @param region The region to check
+     * @return true if the region is the ancestor or one of its subregions, at any depth
+     */
+    boolean isWithin(EntityStore<Region> regions, Region ancestor, Region region) {
+        this.number(regions);
+        int position = this.positionOf(region);
+        int start = this.positionOf(ancestor);
+        return start >= 0 && position >= start && position < exit[(int) ancestor.getId()];
+    }
+
+    /**
+     * Calls a consumer with every region under a region, starting with the region itself
+     * @param regions The regions of the map
+     * @param ancestor The outer region
+     * @param consumer The consumer
+     */
+    void forEachWithin(EntityStore<Region> regions, Region ancestor, Consumer<Region> consumer) {
+        this.number(regions);
+        int start = this.positionOf(ancestor);
+        if (start < 0) {
+            return;
+        }
+        int end = exit[(int) ancestor.getId()];
+        for (int i = start; i < end; i++) {
+            consumer.accept(walk[i]);
+        }
+    }
+
+    /**
+     * Calls a consumer with the id of every location under a region, at any depth
+     * @param regions The regions of the map
+     * @param ancestor The outer region
+     * @param consumer The consumer
+     */
+    void forEachLocationWithin(EntityStore<Region> regions, Region ancestor, LongConsumer consumer) {
+        this.forEachWithin(regions, ancestor, (Region region) -> region.forEachOwnLocationId(consumer));
+    }
+
+    /**
+     * Gets the position of a region in the walk
+     * @param region The region
+     * @return The position, or -1 if the region is not numbered
+     */
+    private int positionOf(Region region) {
+        long id = region.getId();
+        return id < enter.length ? enter[(int) id] : -1;
+    }
+
+    /**
+     * Numbers the regions if the tree changed since they were last numbered
+     * @param regions The regions of the map
+     */
+    private void number(EntityStore<Region> regions) {
+        if (!stale) {
+            return;
+        }
+        int bound = (int) regions.getIdBound();
+        enter = new int[bound];
+        exit = new int[bound];
+        Arrays.fill(enter, -1);
+        walk = new Region[regions.size()];
+        int position = 0;
+        // ids of regions to enter, and the complement of ids of regions whose subregions have all been numbered
+        Deque<Long> pending = new ArrayDeque<Long>();
+        for (Region root : regions.values()) {
+            // start from every region without a parent, so a region left without one is still numbered
+            Long parentId = root.getParentRegionId().orElse(null);
+            if (parentId != null && regions.get(parentId) != null) {
+                continue;
+            }
+            pending.push(root.getId());
+            while (!pending.isEmpty()) {
+                long id = pending.pop();
+                if (id < 0) {
+                    exit[(int) ~id] = position;
+                    continue;
+                }
+                Region region = regions.get(id);
+                if (enter[(int) id] >= 0) {
+                    continue;
+                }
+                enter[(int) id] = position;
+                walk[position++] = region;
+                pending.push(~id);
+                region.forEachOwnSubregionId((long subregionId) -> {
+                    if (regions.get(subregionId) != null && enter[(int) subregionId] < 0) {
+                        pending.push(subregionId);
+                    }
+                });
+            }
+        }
+        stale = false;
+    }
+}
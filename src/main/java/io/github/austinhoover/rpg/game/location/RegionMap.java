@@ -1,19 +1,44 @@
 package io.github.austinhoover.rpg.game.location;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.LongConsumer;
+
+import io.github.austinhoover.rpg.game.world.EntityStore;
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
 
 /**
  * Manages all regions in the game world
  */
 public class RegionMap {
-    private final Map<Long, Region> regions;
+    private final EntityStore<Region> regions;
     private Region topLevelRegion;
 
+    /**
+     * Which region holds each location and where each region sits in the tree, rebuilt from the regions after a world is loaded
+     */
+    private transient RegionHierarchy hierarchy;
+
+    /**
+     * Normalized region name -> the regions with that name, rebuilt from the regions after a world is loaded
+     */
+    private transient Map<String, List<Region>> names;
+
+    /**
+     * Most words in any indexed region name, so lookups only try phrases that could match
+     */
+    private transient int longestNameWords;
+
     public RegionMap() {
-        this.regions = new HashMap<>();
+        this.regions = new EntityStore<>();
         this.topLevelRegion = null;
     }
 
@@ -23,9 +48,14 @@ public class RegionMap {
      * @param name Optional name for the region
      * @return The created region
      */
-    public Region createRegion(String type, Optional<String> name) {
-        Region region = new Region(this.regions.size(), type, name);
+    public synchronized Region createRegion(String type, Optional<String> name) {
+        Region region = new Region(this.regions.allocateId(), type, name);
         regions.put(region.getId(), region);
+        region.setMap(this);
+        this.getHierarchy().invalidate();
+        if (names != null) {
+            this.addName(region);
+        }
         
         // If this is the first region, set it as the top level region
         if (topLevelRegion == null) {
@@ -56,8 +86,11 @@ public class RegionMap {
      * Removes a region from the map
      * @param region The region to remove
      */
-    public void removeRegion(Region region) {
+    public synchronized void removeRegion(Region region) {
         regions.remove(region.getId());
+        this.removeName(region, region.getName().orElse(null));
+        region.forEachOwnLocationId((long locationId) -> this.getHierarchy().removeLocation(region, locationId));
+        this.getHierarchy().invalidate();
         // Remove from parent if it exists
         region.getParentRegionId().ifPresent(parentId -> {
             Region parent = regions.get(parentId);
@@ -76,15 +109,234 @@ public class RegionMap {
         }
     }
 
+    /**
+     * Finds the region whose name appears in a piece of text, ie "the capital of the kingdom of elves".
+     * Names match whole words, ignoring case and punctuation. The longest name found wins, then the lowest id.
+     * @param text The text
+     * @return The region, or empty if no region's name appears in it
+     */
+    public synchronized Optional<Region> findRegionNamedIn(String text) {
+        if (text == null) {
+            return Optional.empty();
+        }
+        Map<String, List<Region>> index = this.getNames();
+        String normalized = normalizeName(text);
+        if (normalized.isEmpty()) {
+            return Optional.empty();
+        }
+        String[] words = normalized.split(" ");
+        for (int length = Math.min(words.length, longestNameWords); length > 0; length--) {
+            Region best = null;
+            for (int start = 0; start + length <= words.length; start++) {
+                List<Region> matches = index.get(String.join(" ", Arrays.asList(words).subList(start, start + length)));
+                if (matches == null) {
+                    continue;
+                }
+                for (Region match : matches) {
+                    if (best == null || match.getId() < best.getId()) {
+                        best = match;
+                    }
+                }
+            }
+            if (best != null) {
+                return Optional.of(best);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Calls a consumer with the id of each location held directly by a region, not by its subregions
+     * @param region The region
+     * @param consumer The consumer
+     */
+    public synchronized void forEachOwnLocationIn(Region region, LongConsumer consumer) {
+        region.forEachOwnLocationId(consumer);
+    }
+
     /**
      * Finds the region containing a specific location
      * @param location The location to find
-     * @return Optional containing the region if found
+     * @return Optional containing the region directly holding the location if found
+     */
+    public synchronized Optional<Region> findRegionForLocation(Location location) {
+        return Optional.ofNullable(this.getHierarchy().getOwner(location.getId()));
+    }
+
+    /**
+     * Checks whether a location is anywhere inside a region, including its subregions at any depth
+     * @param region The region
+     * @param locationId The id of the location
+     * @return true if the location is inside the region
+     */
+    public synchronized boolean containsLocation(Region region, long locationId) {
+        Region owner = this.getHierarchy().getOwner(locationId);
+        return owner != null && this.getHierarchy().isWithin(regions, region, owner);
+    }
+
+    /**
+     * Calls a consumer with the id of every location inside a region, including its subregions at any depth.
+     * The consumer runs while this map is locked, so it must not change the regions.
+     * @param region The region
+     * @param consumer The consumer
+     */
+    public synchronized void forEachLocationIn(Region region, LongConsumer consumer) {
+        this.getHierarchy().forEachLocationWithin(regions, region, consumer);
+    }
+
+    /**
+     * Rebuilds the indices over the regions, ie after the map was loaded from a file
+     */
+    public synchronized void rebuildIndices() {
+        hierarchy = null;
+        names = null;
+        this.getHierarchy();
+        this.getNames();
+    }
+
+    /**
+     * Writes the regions to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    public synchronized void writeSnapshot(SnapshotWriter out) throws IOException {
+        List<Region> all = new ArrayList<>(regions.values());
+        out.writeLong(regions.getIdBound());
+        out.writeLong(topLevelRegion != null ? topLevelRegion.getId() : -1);
+        out.writeInt(all.size());
+        for (Region region : all) {
+            region.writeSnapshot(out);
+        }
+    }
+
+    /**
+     * Reads the regions from a world snapshot into this empty map
+     * @param in The snapshot
+     * @throws IOException If the snapshot can't be read
+     */
+    public synchronized void readSnapshot(SnapshotReader in) throws IOException {
+        long idBound = in.readLong();
+        long topLevelId = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Region region = Region.readSnapshot(in);
+            regions.put(region.getId(), region);
+        }
+        regions.reserveIds(idBound);
+        topLevelRegion = topLevelId >= 0 ? regions.get(topLevelId) : null;
+        this.rebuildIndices();
+    }
+
+    /**
+     * Called by a region when it is renamed
+     * @param region The region
+     * @param previousName The name it had before, or null if it had none
+     */
+    synchronized void onRenamed(Region region, String previousName) {
+        if (names == null) {
+            return;
+        }
+        this.removeName(region, previousName);
+        this.addName(region);
+    }
+
+    /**
+     * Called by a region when a location is added to it
+     * @param region The region
+     * @param locationId The id of the location
+     */
+    synchronized void onLocationAdded(Region region, long locationId) {
+        this.getHierarchy().addLocation(region, locationId);
+    }
+
+    /**
+     * Called by a region when a location is removed from it
+     * @param region The region
+     * @param locationId The id of the location
+     */
+    synchronized void onLocationRemoved(Region region, long locationId) {
+        this.getHierarchy().removeLocation(region, locationId);
+    }
+
+    /**
+     * Called by a region when a subregion is added to or removed from it
+     */
+    synchronized void onTreeChanged() {
+        this.getHierarchy().invalidate();
+    }
+
+    /**
+     * Gets the indices over the regions, building them if the map was just loaded. Callers hold the lock on this map.
+     * @return The indices
+     */
+    private RegionHierarchy getHierarchy() {
+        if (hierarchy == null) {
+            RegionHierarchy built = new RegionHierarchy();
+            regions.forEach((Region region) -> {
+                region.setMap(this);
+                region.forEachOwnLocationId((long locationId) -> built.addLocation(region, locationId));
+            });
+            // a loaded map holds its own copy of the top level region, swap in the one in the store
+            if (topLevelRegion != null && regions.get(topLevelRegion.getId()) != null) {
+                topLevelRegion = regions.get(topLevelRegion.getId());
+            }
+            hierarchy = built;
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Gets the name index, building it from the regions if the map was just loaded. Callers hold the lock on this map.
+     * @return The index
+     */
+    private Map<String, List<Region>> getNames() {
+        if (names == null) {
+            names = new HashMap<String, List<Region>>();
+            longestNameWords = 0;
+            regions.forEach(this::addName);
+        }
+        return names;
+    }
+
+    /**
+     * Adds a region to the name index, which has been built. Callers hold the lock on this map.
+     * @param region The region
+     */
+    private void addName(Region region) {
+        String name = normalizeName(region.getName().orElse(""));
+        if (name.isEmpty()) {
+            return;
+        }
+        names.computeIfAbsent(name, (String key) -> new ArrayList<Region>(1)).add(region);
+        longestNameWords = Math.max(longestNameWords, name.split(" ").length);
+    }
+
+    /**
+     * Removes a region from the name index. Callers hold the lock on this map.
+     * @param region The region
+     * @param name The name it is indexed under, or null if it has none
+     */
+    private void removeName(Region region, String name) {
+        if (name == null || names == null) {
+            return;
+        }
+        String normalized = normalizeName(name);
+        List<Region> matches = names.get(normalized);
+        if (matches != null) {
+            matches.remove(region);
+            if (matches.isEmpty()) {
+                names.remove(normalized);
+            }
+        }
+    }
+
+    /**
+     * Normalizes a region name for lookups: lower case, with runs of anything but letters and digits collapsed to single spaces
+     * @param name The name
+     * @return The normalized name
      */
-    public Optional<Region> findRegionForLocation(Location location) {
-        return regions.values().stream()
-            .filter(region -> region.getLocationIds().contains(location.getId()))
-            .findFirst();
+    private static String normalizeName(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
     }
 
     /**
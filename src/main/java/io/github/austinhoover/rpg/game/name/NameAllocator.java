@@ -0,0 +1,224 @@
+package io.github.austinhoover.rpg.game.name;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tracks which names are in use in a world so names can be handed out without replacement.
+ * Names are compared case-insensitively, a character at a time, so a lookup allocates nothing.
+ * The names are kept lowercase in one character array, and an open-addressed table holds each name's hash and where it starts,
+ * so most lookups of unused names are settled by the hashes alone without comparing any characters.
+ */
+public class NameAllocator {
+
+    /**
+     * Number of names the table is first sized for
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Every name in use, lowercase, each preceded by its length
+     */
+    private char[] chars = new char[INITIAL_CAPACITY * 8];
+
+    /**
+     * Number of entries used in {@link #chars}
+     */
+    private int charCount = 0;
+
+    /**
+     * Table of names, each slot packed as (hash, index into {@link #chars} plus one), or 0 if empty. Its length is a power of two.
+     */
+    private long[] slots = new long[INITIAL_CAPACITY * 2];
+
+    /**
+     * Number of names in use
+     */
+    private int size = 0;
+
+    /**
+     * Number of lookups of unused names that matched a name's hash and had to compare characters
+     */
+    private long falsePositives = 0;
+
+    /**
+     * Next numeral to try for each name that has been numbered, lowercase
+     */
+    private final Map<String, Integer> nextOrdinals = new HashMap<>();
+
+    /**
+     * Checks whether a name is in use
+     * @param name The name
+     * @return true if it is in use
+     */
+    public synchronized boolean isTaken(String name) {
+        return slots[this.find(name, hash(name))] != 0;
+    }
+
+    /**
+     * Marks a name as in use if it isn't already
+     * @param name The name
+     * @return true if the name was free and is now reserved, false if it was already in use
+     */
+    public synchronized boolean tryReserve(String name) {
+        int hash = hash(name);
+        int slot = this.find(name, hash);
+        if (slots[slot] != 0) {
+            return false;
+        }
+        if (name.length() > Character.MAX_VALUE) {
+            throw new IllegalArgumentException("Name too long: " + name.length() + " characters");
+        }
+        if (charCount + name.length() + 1 > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charCount + name.length() + 1));
+        }
+        int start = charCount;
+        chars[charCount++] = (char) name.length();
+        for (int i = 0; i < name.length(); i++) {
+            chars[charCount++] = Character.toLowerCase(name.charAt(i));
+        }
+        slots[slot] = pack(hash, start);
+        size++;
+        // keep the table at most half full so probes stay short
+        if (size * 2 > slots.length) {
+            this.resize(slots.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Reserves a taken name made unique with a numeral, ie "Aelar II"
+     * @param base The name
+     * @return The numbered name, which is now reserved
+     */
+    public synchronized String reserveNumbered(String base) {
+        String key = base.toLowerCase(Locale.ROOT);
+        int ordinal = nextOrdinals.getOrDefault(key, 2);
+        String rVal = base + " " + toRomanNumeral(ordinal);
+        while (!this.tryReserve(rVal)) {
+            ordinal++;
+            rVal = base + " " + toRomanNumeral(ordinal);
+        }
+        nextOrdinals.put(key, ordinal + 1);
+        return rVal;
+    }
+
+    /**
+     * Gets the number of names in use
+     * @return The number of names
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of lookups of unused names that matched a name's hash and had to compare characters
+     * @return The number of lookups
+     */
+    public synchronized long getFalsePositives() {
+        return falsePositives;
+    }
+
+    /**
+     * Finds the slot a name is in, or the empty slot it would go in
+     * @param name The name, in any case
+     * @param hash The hash of the name
+     * @return The slot
+     */
+    private int find(String name, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            if ((int) (slots[slot] >>> 32) == hash) {
+                if (this.matches((int) slots[slot] - 1, name)) {
+                    return slot;
+                }
+                falsePositives++;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Checks whether a stored name is a name, ignoring case
+     * @param start Index into {@link #chars} of the stored name's length
+     * @param name The name
+     * @return true if they are the same name
+     */
+    private boolean matches(int start, String name) {
+        if (chars[start] != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (chars[start + 1 + i] != Character.toLowerCase(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rehashes the names into a table of a new size
+     * @param capacity The new size, a power of two
+     */
+    private void resize(int capacity) {
+        long[] old = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+        for (long packed : old) {
+            if (packed != 0) {
+                int slot = (int) (packed >>> 32) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = packed;
+            }
+        }
+    }
+
+    /**
+     * Hashes a name, ignoring case
+     * @param name The name
+     * @return The hash
+     */
+    private static int hash(String name) {
+        int rVal = 0;
+        for (int i = 0; i < name.length(); i++) {
+            rVal = 31 * rVal + Character.toLowerCase(name.charAt(i));
+        }
+        // spread the bits, since the low ones pick the slot
+        rVal *= 0x9E3779B9;
+        return rVal ^ (rVal >>> 16);
+    }
+
+    /**
+     * Packs a slot of the table
+     * @param hash The hash of the name
+     * @param start Index into {@link #chars} of the name's length
+     * @return The slot, never 0
+     */
+    private static long pack(int hash, int start) {
+        return ((long) hash << 32) | (start + 1L);
+    }
+
+    /**
+     * Converts a number to a roman numeral
+     * @param number The number, at least 1
+     * @return The numeral
+     */
+    private static String toRomanNumeral(int number) {
+        int[] values = {1000, 900, 500, 400, 100, 90, 50, 40, 10, 9, 5, 4, 1};
+        String[] numerals = {"M", "CM", "D", "CD", "C", "XC", "L", "XL", "X", "IX", "V", "IV", "I"};
+        StringBuilder rVal = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            while (number >= values[i]) {
+                rVal.append(numerals[i]);
+                number -= values[i];
+            }
+        }
+        return rVal.toString();
+    }
+}
@@ -1,124 +1,672 @@
 package io.github.austinhoover.rpg.game.name;
 
 import java.util.List;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Random;
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.nio.file.Files;
-
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.nio.file.Path;
 
 import io.github.austinhoover.rpg.game.Global;
+import io.github.austinhoover.rpg.kobold.KoboldPriority;
+import io.github.austinhoover.rpg.kobold.KoboldRequestBody;
 
 /**
- * Service for caching and retrieving generated names
+ * Service for caching and retrieving generated names.
+ * Each query has a pool of names; names are handed out fresh until the pool runs low, at which point it is refilled in the background.
+ * Callers only wait on the LLM when a pool has no names at all.
  */
 public class NameCacheService {
+    private static final Logger logger = Logger.getLogger(NameCacheService.class.getName());
     private static final int NAMES_TO_GENERATE = 50;
+
+    /**
+     * Number of fresh names below which a pool is refilled in the background
+     */
+    private static final int LOW_WATERMARK = 10;
+
+    /**
+     * How long to wait before refilling a pool again after a refill produced no new names
+     */
+    private static final long REFILL_COOLDOWN_MS = 60 * 1000;
+
+    /**
+     * Most list completions made while filling a pool before falling back to asking for one name at a time
+     */
+    private static final int MAX_BATCH_CALLS = 4;
+
+    /**
+     * Most one-name completions made while a caller waits on a refill, the rest of the pool is filled in the background afterwards
+     */
+    private static final int MAX_WAITING_SINGLE_CALLS = 4;
+
+    /**
+     * Tokens budgeted per name in a list completion, including its number and line break
+     */
+    private static final int TOKENS_PER_NAME = 8;
+
+    /**
+     * Longest line that is still accepted as a name
+     */
+    private static final int MAX_NAME_LENGTH = 40;
+
+    /**
+     * Most words a name may have
+     */
+    private static final int MAX_NAME_WORDS = 4;
+
+    /**
+     * Matches one line of a generated list, ie "12. Name", "3) Name" or "- Name"
+     */
+    private static final Pattern LIST_ITEM = Pattern.compile("^\\s*(?:\\d+\\s*[.):-]|[-\u2022])\\s*(.+?)\\s*$");
+
+    /**
+     * Fewest names a pool needs before a synthesizer is trained on it alone rather than on every cached name
+     */
+    private static final int MIN_SYNTHESIZER_TRAINING = 10;
+
+    /**
+     * Names drawn from a synthesizer before falling back to numbering a taken one
+     */
+    private static final int MAX_SYNTHESIS_ATTEMPTS = 20;
+
+    /**
+     * Names synthesizers are trained on when nothing has been cached yet
+     */
+    private static final List<String> SEED_NAMES = List.of(
+        "Aldric", "Brenna", "Cedric", "Daria", "Elowen", "Faelan", "Gareth", "Helena", "Isolde", "Jorah",
+        "Kaelin", "Liora", "Marek", "Nerissa", "Orin", "Perrin", "Rowena", "Soren", "Talia", "Ulric",
+        "Vesna", "Wendell", "Yara", "Zorian", "Thorin", "Mirela", "Garrick", "Selene", "Bram", "Ysolde"
+    );
+
     private static final String CACHE_DIR = ".cache";
-    private static final String CACHE_FILE = "name_cache.json";
-    private final Map<String, List<String>> nameCache;
+    private final Map<String, NamePool> nameCache;
     private final Random random;
-    private final Gson gson;
+
+    /**
+     * Persists the pools
+     */
+    private final NameCacheStore store;
+
+    /**
+     * Refills pools off of the caller's thread
+     */
+    private final ExecutorService refillExecutor = Executors.newSingleThreadExecutor((Runnable runnable) -> {
+        Thread thread = new Thread(runnable, "name-pool-refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Whether pools are filled by asking for numbered lists of names rather than one name per completion
+     */
+    private boolean batchGeneration = true;
+
+    /**
+     * Number of completions made to generate names
+     */
+    private final AtomicLong generationCalls = new AtomicLong();
+
+    /**
+     * Number of unique names those completions produced
+     */
+    private final AtomicLong generatedNames = new AtomicLong();
+
+    /**
+     * Number of names made up by synthesizers
+     */
+    private final AtomicLong synthesizedNames = new AtomicLong();
+
+    /**
+     * Synthesizer trained on every cached name, for pools too small to train their own
+     */
+    private NameSynthesizer sharedSynthesizer;
+
+    /**
+     * Version of the cache the shared synthesizer was trained on
+     */
+    private long sharedSynthesizerVersion = -1;
+
+    /**
+     * Bumped whenever names are added to any pool
+     */
+    private final AtomicLong cacheVersion = new AtomicLong();
 
     public NameCacheService(Random random) {
         this.random = random;
-        this.gson = new Gson();
-        this.nameCache = loadCache();
+        this.nameCache = new ConcurrentHashMap<>();
+        this.store = new NameCacheStore(Path.of(CACHE_DIR));
+        for (Map.Entry<String, List<String>> entry : store.load().entrySet()) {
+            NamePool pool = new NamePool();
+            pool.addNames(entry.getValue(), random);
+            nameCache.put(entry.getKey(), pool);
+        }
     }
 
     /**
-     * Gets a name for the given query. If the query hasn't been cached,
-     * generates new names using the Kobold service.
+     * Gets a name for the given query. Only blocks on the Kobold service if the query has no names yet;
+     * otherwise hands out a name that hasn't been used yet (or any name, if the pool has run dry) and refills the pool in the background when it runs low.
      * 
      * @param query The query string to get a name for
-     * @return A randomly selected name from the cache
+     * @return A name from the pool
      */
     public String getName(String query) {
-        // Check if we have cached names for this query
-        List<String> names = nameCache.get(query);
-        
-        // If no cached names exist, generate new ones
-        if (names == null || names.isEmpty()) {
-            names = generateNewNames(query);
-            nameCache.put(query, names);
-            saveCache(); // Save to disk when new names are generated
+        NamePool pool = nameCache.computeIfAbsent(query, (String key) -> new NamePool());
+        CompletableFuture<Void> refill = null;
+        synchronized (pool) {
+            if (pool.names.isEmpty()) {
+                refill = scheduleRefill(query, pool, true);
+            }
+        }
+        if (refill != null) {
+            // run it here unless the refill thread already started it
+            runRefill(query, pool, refill, KoboldPriority.INTERACTIVE);
+            refill.join();
+        }
+
+        synchronized (pool) {
+            if (pool.names.isEmpty()) {
+                return "Unknown";
+            }
+            String rVal = pool.fresh.poll();
+            if (rVal == null) {
+                rVal = pool.names.get(random.nextInt(pool.names.size()));
+            }
+            if (pool.fresh.size() < LOW_WATERMARK) {
+                scheduleRefill(query, pool, false);
+            }
+            return rVal;
         }
-        
-        // Return a random name from the list
-        return names.get(random.nextInt(names.size()));
     }
 
     /**
-     * Generates new names using the Kobold service
+     * Gets a name for the given query that is not in use yet, and reserves it.
+     * Names already taken are dropped from the pool's fresh names; once a pool has no free names left it is refilled, waiting on the Kobold service if need be.
+     * If even a refill turns up nothing free, a taken name is made unique with a numeral (ie "Aelar II").
      * 
-     * @param query The query string to generate names for
-     * @return A list of generated names
+     * @param query The query string to get a name for
+     * @param allocator The names in use
+     * @return A name that was free and is now reserved
+     */
+    public String allocateName(String query, NameAllocator allocator) {
+        NamePool pool = nameCache.computeIfAbsent(query, (String key) -> new NamePool());
+        for (int attempt = 0; attempt < 2; attempt++) {
+            CompletableFuture<Void> refill = null;
+            synchronized (pool) {
+                String name = reserveFreeName(pool, allocator);
+                if (name != null) {
+                    if (pool.fresh.size() < LOW_WATERMARK) {
+                        scheduleRefill(query, pool, false);
+                    }
+                    return name;
+                }
+                if (attempt == 0) {
+                    refill = scheduleRefill(query, pool, true);
+                }
+            }
+            if (refill != null) {
+                runRefill(query, pool, refill, KoboldPriority.INTERACTIVE);
+                refill.join();
+            }
+        }
+
+        String base;
+        synchronized (pool) {
+            base = pool.names.isEmpty() ? "Unknown" : pool.names.get(random.nextInt(pool.names.size()));
+        }
+        return allocator.reserveNumbered(base);
+    }
+
+    /**
+     * Makes up a name for the given query that is not in use yet without calling the Kobold service, and reserves it.
+     * The name comes from a markov model trained on the query's cached names, or on every cached name if the query has too few.
+     * 
+     * @param query The query string to make up a name for
+     * @param allocator The names in use
+     * @return A name that was free and is now reserved
+     */
+    public String synthesizeName(String query, NameAllocator allocator) {
+        return this.synthesizeName(query, allocator, random);
+    }
+
+    /**
+     * Makes up a name for the given query that is not in use yet without calling the Kobold service, and reserves it
+     * 
+     * @param query The query string to make up a name for
+     * @param allocator The names in use
+     * @param random The source of randomness, so seeded callers get the same names every run
+     * @return A name that was free and is now reserved
      */
-    private List<String> generateNewNames(String query) {
+    public String synthesizeName(String query, NameAllocator allocator, Random random) {
+        NameSynthesizer synthesizer = this.getSynthesizer(query);
+        String name = null;
+        for (int attempt = 0; attempt < 2 * MAX_SYNTHESIS_ATTEMPTS; attempt++) {
+            String drawn = synthesizer.generate(random);
+            if (drawn == null) {
+                break;
+            }
+            // once single names are running out, pair them up as a given and family name
+            name = attempt < MAX_SYNTHESIS_ATTEMPTS || name == null ? drawn : drawn + " " + synthesizer.generate(random);
+            if (!name.endsWith(" null") && allocator.tryReserve(name)) {
+                synthesizedNames.incrementAndGet();
+                return name;
+            }
+        }
+        // the model is saturated, make a taken name unique instead
+        String base = name != null ? name : "Unknown";
+        synthesizedNames.incrementAndGet();
+        return allocator.reserveNumbered(base);
+    }
+
+    /**
+     * Gets the synthesizer for a query, training it if its pool has grown since it was last trained
+     * @param query The query
+     * @return The synthesizer
+     */
+    private NameSynthesizer getSynthesizer(String query) {
+        NamePool pool = nameCache.get(query);
+        if (pool != null) {
+            synchronized (pool) {
+                if (pool.names.size() >= MIN_SYNTHESIZER_TRAINING) {
+                    if (pool.synthesizer == null || pool.synthesizerSize != pool.names.size()) {
+                        pool.synthesizer = new NameSynthesizer(pool.names);
+                        pool.synthesizerSize = pool.names.size();
+                    }
+                    return pool.synthesizer;
+                }
+            }
+        }
+        return this.getSharedSynthesizer();
+    }
+
+    /**
+     * Gets the synthesizer trained on every cached name, retraining it if the cache has grown since
+     * @return The synthesizer
+     */
+    private synchronized NameSynthesizer getSharedSynthesizer() {
+        long version = cacheVersion.get();
+        if (sharedSynthesizer != null && sharedSynthesizerVersion == version) {
+            return sharedSynthesizer;
+        }
         List<String> names = new ArrayList<>();
-        try {
-            while(names.size() < NAMES_TO_GENERATE) {
-                String response = Global.kobold.request(query).trim();
-                String generatedName = response.replaceAll("\"", "");
-                if(!names.contains(generatedName)) {
-                    names.add(generatedName);
+        for (NamePool pool : nameCache.values()) {
+            synchronized (pool) {
+                names.addAll(pool.names);
+            }
+        }
+        if (names.size() < MIN_SYNTHESIZER_TRAINING) {
+            names.addAll(SEED_NAMES);
+        }
+        sharedSynthesizer = new NameSynthesizer(names);
+        sharedSynthesizerVersion = version;
+        return sharedSynthesizer;
+    }
+
+    /**
+     * Takes the next free name from a pool's fresh names, dropping the taken names in front of it.
+     * If the fresh names run out, names handed out by {@link #getName(String)} that are still free in this world are put back first.
+     * @param pool The pool, whose lock is held
+     * @param allocator The names in use
+     * @return The name, which is now reserved, or null if the pool has no free names
+     */
+    private String reserveFreeName(NamePool pool, NameAllocator allocator) {
+        for (int pass = 0; pass < 2; pass++) {
+            String name;
+            while ((name = pool.fresh.poll()) != null) {
+                if (allocator.tryReserve(name)) {
+                    return name;
+                }
+            }
+            for (String candidate : pool.names) {
+                if (!allocator.isTaken(candidate)) {
+                    pool.fresh.add(candidate);
                 }
             }
-        } catch (Exception e) {
-            System.err.println("Error generating names: " + e.getMessage());
-            // Add some fallback names if generation fails
-            names.add("Unknown");
-            names.add("Mysterious");
-            names.add("Nameless");
         }
+        return null;
+    }
 
-        return names;
+    /**
+     * Fills the pools for some queries in the background, so the first names asked for don't wait on the Kobold service
+     * @param queries The queries
+     */
+    public void prewarm(Collection<String> queries) {
+        for (String query : queries) {
+            NamePool pool = nameCache.computeIfAbsent(query, (String key) -> new NamePool());
+            synchronized (pool) {
+                if (pool.fresh.size() < LOW_WATERMARK) {
+                    scheduleRefill(query, pool, pool.names.isEmpty());
+                }
+            }
+        }
     }
 
     /**
-     * Loads the name cache from disk
-     * @return The loaded cache, or an empty map if no cache exists
+     * Queues a refill of a pool unless one is already pending
+     * @param query The query of the pool
+     * @param pool The pool
+     * @param force Whether to ignore the cooldown after a fruitless refill
+     * @return The pending refill, or null if the pool is cooling down
      */
-    private Map<String, List<String>> loadCache() {
-        try {
-            File cacheFile = new File(CACHE_DIR, CACHE_FILE);
-            if (!cacheFile.exists()) {
-                return new HashMap<>();
+    private CompletableFuture<Void> scheduleRefill(String query, NamePool pool, boolean force) {
+        synchronized (pool) {
+            if (pool.refill != null) {
+                return pool.refill;
+            }
+            if (!force && System.currentTimeMillis() < pool.cooldownUntil) {
+                return null;
             }
+            CompletableFuture<Void> refill = new CompletableFuture<>();
+            pool.refill = refill;
+            pool.refillStarted = false;
+            refillExecutor.execute(() -> runRefill(query, pool, refill, KoboldPriority.BACKGROUND));
+            return refill;
+        }
+    }
 
-            String json = new String(Files.readAllBytes(cacheFile.toPath()));
-            return gson.fromJson(json, new TypeToken<Map<String, List<String>>>(){}.getType());
-        } catch (IOException e) {
-            System.err.println("Error loading name cache: " + e.getMessage());
-            return new HashMap<>();
+    /**
+     * Refills a pool, unless the refill has already been started by another thread
+     * @param query The query of the pool
+     * @param pool The pool
+     * @param refill The refill
+     * @param priority The priority of the completions, interactive when a caller is waiting on the refill
+     */
+    private void runRefill(String query, NamePool pool, CompletableFuture<Void> refill, KoboldPriority priority) {
+        List<String> existing;
+        synchronized (pool) {
+            if (pool.refill != refill || pool.refillStarted) {
+                return;
+            }
+            pool.refillStarted = true;
+            existing = new ArrayList<>(pool.names);
+        }
+        try {
+            List<String> added = generateNewNames(query, existing, priority);
+            synchronized (pool) {
+                pool.addNames(added, random);
+                cacheVersion.incrementAndGet();
+                if (added.isEmpty()) {
+                    pool.cooldownUntil = System.currentTimeMillis() + REFILL_COOLDOWN_MS;
+                }
+            }
+            if (!added.isEmpty() && store.append(query, added)) {
+                compactCache();
+            }
+        } finally {
+            synchronized (pool) {
+                pool.refill = null;
+            }
+            refill.complete(null);
         }
     }
 
     /**
-     * Saves the name cache to disk
+     * Generates new names using the Kobold service
+     * 
+     * @param query The query string to generate names for
+     * @param existing Names the pool already has, which don't count as new
+     * @param priority The priority of the completions
+     * @return A list of generated names that are not in the pool yet
      */
-    private void saveCache() {
+    private List<String> generateNewNames(String query, List<String> existing, KoboldPriority priority) {
+        Map<String, String> names = new LinkedHashMap<>();
+        for (String name : existing) {
+            names.put(name.toLowerCase(Locale.ROOT), name);
+        }
+        int existingCount = names.size();
+        int target = existingCount + NAMES_TO_GENERATE;
         try {
-            // Create cache directory if it doesn't exist
-            File cacheDir = new File(CACHE_DIR);
-            if (!cacheDir.exists()) {
-                cacheDir.mkdirs();
+            if (batchGeneration) {
+                generateNamesBatched(query, names, target, priority);
             }
+            generateNamesIndividually(query, names, target, priority);
+        } catch (RuntimeException | Error e) {
+            // the kobold client reports failed generations as errors; keep the names the earlier calls produced
+            logger.log(Level.WARNING, "Error generating names, keeping the " + (names.size() - existingCount) + " generated so far", e);
+        }
+        if (names.isEmpty()) {
+            // Add some fallback names if generation fails
+            names.put("unknown", "Unknown");
+            names.put("mysterious", "Mysterious");
+            names.put("nameless", "Nameless");
+        }
+        List<String> rVal = new ArrayList<>(names.values());
+        rVal.removeAll(existing);
+        return rVal;
+    }
 
-            // Write cache to file
-            File cacheFile = new File(cacheDir, CACHE_FILE);
-            String json = gson.toJson(nameCache);
-            try (FileWriter writer = new FileWriter(cacheFile)) {
-                writer.write(json);
+    /**
+     * Fills a pool by asking for numbered lists of names, topping up with further lists while names are missing
+     * @param query The query string to generate names for
+     * @param names The names generated so far, keyed by their lowercase form
+     * @param target The number of names to stop at
+     * @param priority The priority of the completions
+     */
+    private void generateNamesBatched(String query, Map<String, String> names, int target, KoboldPriority priority) {
+        for (int call = 1; call <= MAX_BATCH_CALLS && names.size() < target; call++) {
+            int wanted = target - names.size();
+            KoboldRequestBody requestBody = Global.kobold.createRequestBody(buildBatchPrompt(query, wanted));
+            requestBody.setMaxLength(wanted * TOKENS_PER_NAME);
+            requestBody.setPriority(priority);
+            String response = Global.kobold.generate(requestBody);
+            generationCalls.incrementAndGet();
+
+            List<String> parsed = parseNameList(response);
+            int added = addNames(names, parsed, target);
+            if (logger.isLoggable(Level.FINE)) {
+                // runs on the refill thread, so only logged when asked for; the totals are in getGenerationCalls and getGeneratedNames
+                logger.fine("Name batch " + call + " produced " + added + " new names (" + parsed.size() + " parsed, " + names.size() + "/" + target + ")");
+            }
+            if (added == 0) {
+                // the model isn't following the list format, stop wasting completions on it
+                break;
             }
-        } catch (IOException e) {
-            System.err.println("Error saving name cache: " + e.getMessage());
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Fills the rest of a pool one name per completion
+     * @param query The query string to generate names for
+     * @param names The names generated so far, keyed by their lowercase form
+     * @param target The number of names to stop at
+     * @param priority The priority of the completions, a waiting caller only gets a few
+     */
+    private void generateNamesIndividually(String query, Map<String, String> names, int target, KoboldPriority priority) {
+        int maxCalls = priority == KoboldPriority.INTERACTIVE ? MAX_WAITING_SINGLE_CALLS : NAMES_TO_GENERATE;
+        int calls = 0;
+        while (names.size() < target && calls < maxCalls) {
+            String response = Global.kobold.request(query, priority).trim();
+            generationCalls.incrementAndGet();
+            calls++;
+            addNames(names, List.of(response.replaceAll("\"", "")), target);
+        }
+    }
+
+    /**
+     * Adds names to a pool, skipping names it already has
+     * @param names The pool, keyed by the lowercase form of each name
+     * @param candidates The names to add
+     * @param target The number of names to stop at
+     * @return The number of names that were added
+     */
+    private int addNames(Map<String, String> names, List<String> candidates, int target) {
+        int rVal = 0;
+        for (String candidate : candidates) {
+            if (names.size() >= target || candidate.isEmpty()) {
+                continue;
+            }
+            if (names.putIfAbsent(candidate.toLowerCase(Locale.ROOT), candidate) == null) {
+                rVal++;
+            }
+        }
+        generatedNames.addAndGet(rVal);
+        return rVal;
+    }
+
+    /**
+     * Turns a query for a single name into a request for a numbered list of names
+     * @param query The query for a single name
+     * @param count The number of names to ask for
+     * @return The request
+     */
+    private static String buildBatchPrompt(String query, int count) {
+        return query + "\nActually, please give me " + count + " different names as a numbered list, one name per line, with nothing else.";
+    }
+
+    /**
+     * Parses the names out of a generated numbered list, dropping duplicates and lines that are not plausibly a name
+     * @param response The generated list
+     * @return The names, in the order they appeared
+     */
+    public static List<String> parseNameList(String response) {
+        Map<String, String> rVal = new LinkedHashMap<>();
+        for (String line : response.split("\\r?\\n")) {
+            // strip markdown emphasis first, ie "**1.** Name"
+            Matcher matcher = LIST_ITEM.matcher(line.replaceAll("[*_]", ""));
+            if (!matcher.matches()) {
+                continue;
+            }
+            String name = matcher.group(1).replaceAll("\"", "").trim();
+            // drop any explanation the model tacked on, ie "Aldric - a strong name"
+            int explanation = name.indexOf(" - ");
+            if (explanation >= 0) {
+                name = name.substring(0, explanation).trim();
+            }
+            int parenthesis = name.indexOf('(');
+            if (parenthesis >= 0) {
+                name = name.substring(0, parenthesis).trim();
+            }
+            if (name.endsWith(".") || name.endsWith(",")) {
+                name = name.substring(0, name.length() - 1);
+            }
+            if (name.isEmpty() || name.length() > MAX_NAME_LENGTH || name.split("\\s+").length > MAX_NAME_WORDS) {
+                continue;
+            }
+            rVal.putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+        }
+        return new ArrayList<>(rVal.values());
+    }
+
+    /**
+     * Sets whether pools are filled by asking for numbered lists of names rather than one name per completion
+     * @param batchGeneration true to ask for lists
+     */
+    public void setBatchGeneration(boolean batchGeneration) {
+        this.batchGeneration = batchGeneration;
+    }
+
+    /**
+     * Gets the number of completions made to generate names
+     * @return The number of completions
+     */
+    public long getGenerationCalls() {
+        return generationCalls.get();
+    }
+
+    /**
+     * Gets the number of unique names generated
+     * @return The number of names
+     */
+    public long getGeneratedNames() {
+        return generatedNames.get();
+    }
+
+    /**
+     * Gets the number of names made up by synthesizers
+     * @return The number of names
+     */
+    public long getSynthesizedNames() {
+        return synthesizedNames.get();
+    }
+
+    /**
+     * Writes the current contents of every pool to a new snapshot, clearing the store's log.
+     * The pools are copied under the store's lock, so a refill can't log names after the copy only to have the log cleared.
+     */
+    private void compactCache() {
+        store.compact(this::snapshotPools);
+    }
+
+    /**
+     * Copies the names of every pool
+     * @return The names of each query
+     */
+    private Map<String, List<String>> snapshotPools() {
+        Map<String, List<String>> rVal = new HashMap<>();
+        for (Map.Entry<String, NamePool> entry : nameCache.entrySet()) {
+            synchronized (entry.getValue()) {
+                if (!entry.getValue().names.isEmpty()) {
+                    rVal.put(entry.getKey(), new ArrayList<>(entry.getValue().names));
+                }
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * The names generated for one query
+     */
+    private static class NamePool {
+
+        /**
+         * Every name in the pool
+         */
+        private final List<String> names = new ArrayList<>();
+
+        /**
+         * Names that haven't been handed out yet, in the order they will be
+         */
+        private final ArrayDeque<String> fresh = new ArrayDeque<>();
+
+        /**
+         * The pending refill, or null if none is pending
+         */
+        private CompletableFuture<Void> refill;
+
+        /**
+         * Whether the pending refill has started generating
+         */
+        private boolean refillStarted;
+
+        /**
+         * Time until which the pool is not refilled in the background, after a refill produced nothing
+         */
+        private long cooldownUntil;
+
+        /**
+         * Synthesizer trained on the pool, or null if it hasn't been trained yet
+         */
+        private NameSynthesizer synthesizer;
+
+        /**
+         * Number of names the synthesizer was trained on
+         */
+        private int synthesizerSize;
+
+        /**
+         * Adds names to the pool, shuffled into the fresh names
+         * @param added The names, none of which are in the pool yet
+         * @param random Shuffles the names
+         */
+        private void addNames(List<String> added, Random random) {
+            List<String> shuffled = new ArrayList<>(added);
+            Collections.shuffle(shuffled, random);
+            names.addAll(added);
+            fresh.addAll(shuffled);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package io.github.austinhoover.rpg.game.name;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Disk storage for the name cache.
+ * The cache is kept as a json snapshot plus an append-only log of the names generated since the snapshot was written.
+ * New names only ever append a line to the log, and once the log grows large enough it is folded into a new snapshot,
+ * which is written to the side and renamed into place so a crash never leaves a truncated snapshot behind.
+ * A crash mid-append at worst loses the last, partially written line of the log.
+ */
+public class NameCacheStore {
+
+    /**
+     * Name of the snapshot file
+     */
+    private static final String SNAPSHOT_FILE = "name_cache.json";
+
+    /**
+     * Name of the log file
+     */
+    private static final String LOG_FILE = "name_cache.log";
+
+    /**
+     * Number of log entries after which the log is compacted
+     */
+    private static final int COMPACT_ENTRIES = 256;
+
+    /**
+     * Directory the files are stored in
+     */
+    private final Path directory;
+
+    /**
+     * The json (de)serializer
+     */
+    private final Gson gson = new Gson();
+
+    /**
+     * Writer appending to the log, or null if it isn't open
+     */
+    private Writer logWriter;
+
+    /**
+     * Stream under the log writer, used to sync appends to disk
+     */
+    private FileOutputStream logStream;
+
+    /**
+     * Number of entries in the log
+     */
+    private int logEntries = 0;
+
+    /**
+     * Creates a store
+     * @param directory Directory the files are stored in
+     */
+    public NameCacheStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Loads the cache by reading the snapshot and replaying the log on top of it.
+     * Duplicate names (ie from a crash between writing a snapshot and clearing the log) are dropped.
+     * @return The names of each query
+     */
+    public synchronized Map<String, List<String>> load() {
+        Map<String, List<String>> rVal = new HashMap<>();
+        Map<String, Set<String>> seen = new HashMap<>();
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (JsonReader reader = new JsonReader(Files.newBufferedReader(snapshot, StandardCharsets.UTF_8))) {
+                this.readSnapshot(reader, rVal, seen);
+            } catch (IOException | JsonParseException | IllegalStateException e) {
+                System.err.println("Error loading name cache snapshot: " + e.getMessage());
+            }
+        }
+        logEntries = 0;
+        boolean torn = false;
+        Path log = directory.resolve(LOG_FILE);
+        if (Files.exists(log)) {
+            try (BufferedReader reader = Files.newBufferedReader(log, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    LogEntry entry = this.parseLogLine(line);
+                    if (entry == null) {
+                        // a torn write from a crash, nothing after it can be trusted
+                        System.err.println("Ignoring truncated name cache log entry");
+                        torn = true;
+                        break;
+                    }
+                    merge(rVal, seen, entry.q, entry.n);
+                    logEntries++;
+                }
+            } catch (IOException e) {
+                System.err.println("Error loading name cache log: " + e.getMessage());
+            }
+        }
+        if (torn || logEntries >= COMPACT_ENTRIES) {
+            // appending after a torn line would glue the next entry onto it
+            this.compact(rVal);
+        }
+        return rVal;
+    }
+
+    /**
+     * Streams the snapshot into a map without building an intermediate tree
+     * @param reader The reader over the snapshot
+     * @param names The map to fill
+     * @param seen The lowercase names already in each list of the map
+     * @throws IOException If the snapshot can't be read
+     */
+    private void readSnapshot(JsonReader reader, Map<String, List<String>> names, Map<String, Set<String>> seen) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String query = reader.nextName();
+            List<String> queryNames = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                queryNames.add(reader.nextString());
+            }
+            reader.endArray();
+            merge(names, seen, query, queryNames);
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Parses a line of the log
+     * @param line The line
+     * @return The entry, or null if the line is malformed
+     */
+    private LogEntry parseLogLine(String line) {
+        try {
+            LogEntry rVal = gson.fromJson(line, LogEntry.class);
+            if (rVal == null || rVal.q == null || rVal.n == null) {
+                return null;
+            }
+            return rVal;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Adds names to a map, skipping names already in it
+     * @param names The map
+     * @param seen The lowercase names already in each list of the map
+     * @param query The query the names belong to
+     * @param added The names to add
+     */
+    private static void merge(Map<String, List<String>> names, Map<String, Set<String>> seen, String query, List<String> added) {
+        List<String> queryNames = names.computeIfAbsent(query, (String key) -> new ArrayList<>());
+        Set<String> querySeen = seen.computeIfAbsent(query, (String key) -> new HashSet<>());
+        for (String name : added) {
+            if (name != null && querySeen.add(name.toLowerCase(Locale.ROOT))) {
+                queryNames.add(name);
+            }
+        }
+    }
+
+    /**
+     * Appends newly generated names to the log and syncs it to disk
+     * @param query The query the names belong to
+     * @param names The names
+     * @return true if the log has grown large enough that it should be compacted
+     */
+    public synchronized boolean append(String query, List<String> names) {
+        LogEntry entry = new LogEntry();
+        entry.q = query;
+        entry.n = names;
+        try {
+            if (logWriter == null) {
+                this.openLog();
+            }
+            logWriter.write(gson.toJson(entry));
+            logWriter.write('\n');
+            logWriter.flush();
+            logStream.getChannel().force(false);
+            logEntries++;
+        } catch (IOException e) {
+            System.err.println("Error appending to name cache log: " + e.getMessage());
+            this.closeLog();
+        }
+        return logEntries >= COMPACT_ENTRIES;
+    }
+
+    /**
+     * Replaces the snapshot with the current contents of the cache and clears the log
+     * @param names The names of each query
+     */
+    public void compact(Map<String, List<String>> names) {
+        this.compact(() -> names);
+    }
+
+    /**
+     * Replaces the snapshot with the current contents of the cache and clears the log.
+     * The contents are taken while appends are held off, so every name in the log being cleared is in the snapshot
+     * as long as callers add names to the cache before appending them.
+     * @param contents Supplies the names of each query
+     */
+    public synchronized void compact(Supplier<Map<String, List<String>>> contents) {
+        Map<String, List<String>> names = contents.get();
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, SNAPSHOT_FILE, ".tmp");
+            try {
+                try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                    JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)))) {
+                    writer.beginObject();
+                    for (Map.Entry<String, List<String>> entry : names.entrySet()) {
+                        writer.name(entry.getKey());
+                        writer.beginArray();
+                        for (String name : entry.getValue()) {
+                            writer.value(name);
+                        }
+                        writer.endArray();
+                    }
+                    writer.endObject();
+                    writer.flush();
+                    stream.getChannel().force(true);
+                }
+                Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            // only drop the log once the snapshot that covers it is in place
+            this.closeLog();
+            Files.deleteIfExists(directory.resolve(LOG_FILE));
+            logEntries = 0;
+        } catch (IOException e) {
+            System.err.println("Error compacting name cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the log
+     */
+    public synchronized void close() {
+        this.closeLog();
+    }
+
+    /**
+     * Gets the number of entries in the log
+     * @return The number of entries
+     */
+    public synchronized int getLogEntries() {
+        return logEntries;
+    }
+
+    /**
+     * Opens the log for appending
+     * @throws IOException If the log can't be opened
+     */
+    private void openLog() throws IOException {
+        Files.createDirectories(directory);
+        logStream = new FileOutputStream(directory.resolve(LOG_FILE).toFile(), true);
+        logWriter = new BufferedWriter(new OutputStreamWriter(logStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Closes the log if it is open
+     */
+    private void closeLog() {
+        if (logWriter == null) {
+            return;
+        }
+        try {
+            logWriter.close();
+        } catch (IOException e) {
+            System.err.println("Error closing name cache log: " + e.getMessage());
+        }
+        logWriter = null;
+        logStream = null;
+    }
+
+    /**
+     * A line of the log
+     */
+    private static class LogEntry {
+
+        /**
+         * The query
+         */
+        private String q;
+
+        /**
+         * The names generated for the query
+         */
+        private List<String> n;
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.austinhoover.rpg.game.name;
+
+/**
+ * Where generated characters get their names from
+ */
+public enum NameSource {
+
+    /**
+     * Names are generated by the LLM and cached, calling it whenever a pool runs out
+     */
+    LLM,
+
+    /**
+     * Names are made up by a markov model trained on the cached names, never calling the LLM
+     */
+    SYNTHESIZED;
+}
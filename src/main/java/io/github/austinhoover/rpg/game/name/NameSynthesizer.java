@@ -0,0 +1,229 @@
+package io.github.austinhoover.rpg.game.name;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Character-level markov model of a set of names, used to make up new names that sound like them without calling the LLM.
+ * Each next character is drawn based on the previous {@link #ORDER} characters, backing off to shorter contexts that were seen more often.
+ * The model is immutable once trained, so it can be shared between threads.
+ */
+public class NameSynthesizer {
+
+    /**
+     * Number of previous characters the next character is drawn from
+     */
+    private static final int ORDER = 3;
+
+    /**
+     * Marks the start of a name in a context
+     */
+    private static final char START = '^';
+
+    /**
+     * Marks the end of a name
+     */
+    private static final char END = '$';
+
+    /**
+     * Number of names drawn before giving up on finding one that isn't in the training set
+     */
+    private static final int MAX_ATTEMPTS = 50;
+
+    /**
+     * Fewest times a context must have been seen to be used over a shorter one
+     */
+    private static final int MIN_CONTEXT_COUNT = 2;
+
+    /**
+     * The characters that follow each context, for every context length up to {@link #ORDER}
+     */
+    private final Map<String, Transitions> transitions = new HashMap<>();
+
+    /**
+     * The training names, lowercase, so they aren't handed back out as new names
+     */
+    private final Set<String> trainingNames = new HashSet<>();
+
+    /**
+     * Length of the shortest training name
+     */
+    private int minLength = Integer.MAX_VALUE;
+
+    /**
+     * Length of the longest training name
+     */
+    private int maxLength = 0;
+
+    /**
+     * Trains a model
+     * @param names The names to train on
+     */
+    public NameSynthesizer(Collection<String> names) {
+        Map<String, Map<java.lang.Character, Integer>> counts = new HashMap<>();
+        for (String name : names) {
+            String key = name.trim().toLowerCase(Locale.ROOT);
+            if (key.isEmpty() || key.indexOf(START) >= 0 || key.indexOf(END) >= 0 || !trainingNames.add(key)) {
+                continue;
+            }
+            minLength = Math.min(minLength, key.length());
+            maxLength = Math.max(maxLength, key.length());
+            String padded = String.valueOf(START).repeat(ORDER) + key + END;
+            for (int i = ORDER; i < padded.length(); i++) {
+                char next = padded.charAt(i);
+                for (int length = 1; length <= ORDER; length++) {
+                    String context = padded.substring(i - length, i);
+                    counts.computeIfAbsent(context, (String c) -> new HashMap<>()).merge(next, 1, Integer::sum);
+                }
+            }
+        }
+        for (Map.Entry<String, Map<java.lang.Character, Integer>> entry : counts.entrySet()) {
+            transitions.put(entry.getKey(), new Transitions(entry.getValue()));
+        }
+    }
+
+    /**
+     * Makes up a name that isn't one of the training names
+     * @param random The source of randomness
+     * @return The name, capitalized, or null if the model has nothing to draw from or only reproduced training names
+     */
+    public String generate(Random random) {
+        if (transitions.isEmpty()) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(maxLength + ORDER);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            builder.setLength(0);
+            for (int i = 0; i < ORDER; i++) {
+                builder.append(START);
+            }
+            while (builder.length() - ORDER <= maxLength) {
+                char next = this.next(builder, random);
+                if (next == END) {
+                    break;
+                }
+                builder.append(next);
+            }
+            String key = builder.substring(ORDER).trim();
+            if (key.length() >= minLength && key.length() <= maxLength && !trainingNames.contains(key)) {
+                return capitalize(key);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Draws the character that follows a name so far
+     * @param builder The name so far, padded with start markers
+     * @param random The source of randomness
+     * @return The next character
+     */
+    private char next(StringBuilder builder, Random random) {
+        Transitions fallback = null;
+        for (int length = ORDER; length >= 1; length--) {
+            Transitions candidate = transitions.get(builder.substring(builder.length() - length));
+            if (candidate == null) {
+                continue;
+            }
+            if (candidate.total >= MIN_CONTEXT_COUNT) {
+                return candidate.draw(random);
+            }
+            if (fallback == null) {
+                fallback = candidate;
+            }
+        }
+        return fallback != null ? fallback.draw(random) : END;
+    }
+
+    /**
+     * Capitalizes each word of a name
+     * @param key The lowercase name
+     * @return The capitalized name
+     */
+    private static String capitalize(String key) {
+        char[] chars = key.toCharArray();
+        boolean wordStart = true;
+        for (int i = 0; i < chars.length; i++) {
+            if (wordStart) {
+                chars[i] = java.lang.Character.toUpperCase(chars[i]);
+            }
+            wordStart = chars[i] == ' ' || chars[i] == '-';
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Gets the number of distinct names the model was trained on
+     * @return The number of names
+     */
+    public int getTrainingSize() {
+        return trainingNames.size();
+    }
+
+    /**
+     * The characters that follow a context, with cumulative counts for drawing them
+     */
+    private static class Transitions {
+
+        /**
+         * The characters
+         */
+        private final char[] chars;
+
+        /**
+         * Number of times each character or one before it followed the context
+         */
+        private final int[] cumulative;
+
+        /**
+         * Number of times the context was seen
+         */
+        private final int total;
+
+        /**
+         * Builds the transitions from counts
+         * @param counts Number of times each character followed the context
+         */
+        private Transitions(Map<java.lang.Character, Integer> counts) {
+            List<Map.Entry<java.lang.Character, Integer>> entries = new ArrayList<>(counts.entrySet());
+            // a fixed order, so a seeded random draws the same names every run
+            entries.sort(Map.Entry.comparingByKey());
+            chars = new char[entries.size()];
+            cumulative = new int[entries.size()];
+            int sum = 0;
+            for (int i = 0; i < entries.size(); i++) {
+                chars[i] = entries.get(i).getKey();
+                sum += entries.get(i).getValue();
+                cumulative[i] = sum;
+            }
+            total = sum;
+        }
+
+        /**
+         * Draws a character in proportion to how often it followed the context
+         * @param random The source of randomness
+         * @return The character
+         */
+        private char draw(Random random) {
+            int target = random.nextInt(total);
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] > target) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return chars[low];
+        }
+    }
+}
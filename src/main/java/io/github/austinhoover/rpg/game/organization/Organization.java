@@ -1,9 +1,11 @@
 package io.github.austinhoover.rpg.game.organization;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.io.IOException;
 
 import io.github.austinhoover.rpg.game.character.Character;
+import io.github.austinhoover.rpg.game.world.IdBitmap;
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
 
 /**
  * Represents an organization in the world (e.g., guild, faction)
@@ -23,7 +25,12 @@ public class Organization {
     /**
      * Set of character IDs that are members of this organization
      */
-    private Set<Long> memberIds;
+    private IdBitmap memberIds;
+
+    /**
+     * The map this organization is registered with, kept up to date with its members
+     */
+    private transient OrganizationMap map;
 
     /**
      * Constructor
@@ -31,7 +38,7 @@ public class Organization {
      */
     private Organization(String name) {
         this.name = name;
-        this.memberIds = new HashSet<>();
+        this.memberIds = new IdBitmap();
     }
 
     /**
@@ -70,12 +77,28 @@ public class Organization {
         return name;
     }
 
+    /**
+     * Sets the map this organization is registered with
+     * @param map The map
+     */
+    void setMap(OrganizationMap map) {
+        this.map = map;
+    }
+
     /**
      * Gets the set of member IDs
-     * @return Set of member IDs
+     * @return A copy of the member IDs
      */
-    public Set<Long> getMemberIds() {
-        return memberIds;
+    public synchronized IdBitmap getMemberIds() {
+        return this.getMembers().copy();
+    }
+
+    /**
+     * Gets the number of members
+     * @return The number of members
+     */
+    public synchronized int getMemberCount() {
+        return this.getMembers().size();
     }
 
     /**
@@ -83,7 +106,13 @@ public class Organization {
      * @param character The character to add
      */
     public void addMember(Character character) {
-        memberIds.add(character.getId());
+        boolean added;
+        synchronized (this) {
+            added = this.getMembers().add(character.getId());
+        }
+        if (added && map != null) {
+            map.onMemberAdded(this, character.getId());
+        }
     }
 
     /**
@@ -91,7 +120,13 @@ public class Organization {
      * @param character The character to remove
      */
     public void removeMember(Character character) {
-        memberIds.remove(character.getId());
+        boolean removed;
+        synchronized (this) {
+            removed = this.getMembers().remove(character.getId());
+        }
+        if (removed && map != null) {
+            map.onMemberRemoved(this, character.getId());
+        }
     }
 
     /**
@@ -99,7 +134,45 @@ public class Organization {
      * @param character The character to check
      * @return true if the character is a member
      */
-    public boolean isMember(Character character) {
-        return memberIds.contains(character.getId());
+    public synchronized boolean isMember(Character character) {
+        return this.getMembers().contains(character.getId());
+    }
+
+    /**
+     * Gets the member set, creating it if an older save left it out. Callers hold the lock on this organization.
+     * @return The member set
+     */
+    private IdBitmap getMembers() {
+        if (memberIds == null) {
+            memberIds = new IdBitmap();
+        }
+        return memberIds;
+    }
+
+    /**
+     * Writes this organization to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    void writeSnapshot(SnapshotWriter out) throws IOException {
+        out.writeLong(id);
+        out.writeString(name);
+        synchronized (this) {
+            out.writeIdBitmap(this.getMembers());
+        }
+    }
+
+    /**
+     * Reads a organization written by {@link #writeSnapshot(SnapshotWriter)}
+     * @param in The snapshot
+     * @return The organization, not yet registered with a map
+     * @throws IOException If the snapshot can't be read
+     */
+    static Organization readSnapshot(SnapshotReader in) throws IOException {
+        long id = in.readLong();
+        Organization rVal = new Organization(in.readString());
+        rVal.setId(id);
+        rVal.memberIds = in.readIdBitmap();
+        return rVal;
     }
-} 
\ No newline at end of file
+}
@@ -1,18 +1,30 @@
 package io.github.austinhoover.rpg.game.organization;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+
+import io.github.austinhoover.rpg.game.character.CharacterMap;
+import io.github.austinhoover.rpg.game.world.EntityStore;
+import io.github.austinhoover.rpg.game.world.IdBitmap;
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
 
 /**
  * Storage object for all organizations
  */
 public class OrganizationMap {
-    
+
     /**
      * Map of id -> organization
      */
-    private Map<Long, Organization> idOrgMap = new HashMap<Long, Organization>();
+    private EntityStore<Organization> idOrgMap = new EntityStore<Organization>();
+
+    /**
+     * Character id -> ids of the organizations the character belongs to, rebuilt from the organizations after a world is loaded
+     */
+    private transient EntityStore<IdBitmap> memberships;
 
     /**
      * Gets an organization by its id
@@ -28,8 +40,13 @@ public class OrganizationMap {
      * @param organization The organization
      */
     public void register(Organization organization) {
-        organization.setId(idOrgMap.size());
+        organization.setId(idOrgMap.allocateId());
         idOrgMap.put(organization.getId(), organization);
+        organization.setMap(this);
+        IdBitmap members = organization.getMemberIds();
+        synchronized (this) {
+            members.forEach((long characterId) -> this.addMembership(characterId, organization.getId()));
+        }
     }
 
     /**
@@ -39,4 +56,154 @@ public class OrganizationMap {
     public Collection<Organization> getAllOrganizations() {
         return idOrgMap.values();
     }
-} 
\ No newline at end of file
+
+    /**
+     * Gets the ids of the organizations a character belongs to
+     * @param characterId The id of the character
+     * @return A copy of the ids
+     */
+    public synchronized IdBitmap getOrganizationIdsOf(long characterId) {
+        IdBitmap ids = this.getMemberships().get(characterId);
+        return ids != null ? ids.copy() : new IdBitmap();
+    }
+
+    /**
+     * Gets the organizations a character belongs to
+     * @param characterId The id of the character
+     * @return The organizations, in id order
+     */
+    public List<Organization> getOrganizationsOf(long characterId) {
+        IdBitmap ids = this.getOrganizationIdsOf(characterId);
+        List<Organization> rVal = new ArrayList<Organization>(ids.size());
+        ids.forEach((long id) -> rVal.add(idOrgMap.get(id)));
+        return rVal;
+    }
+
+    /**
+     * Gets the characters that belong to both of two organizations
+     * @param a One organization
+     * @param b The other organization
+     * @return The ids of the characters
+     */
+    public IdBitmap getSharedMembers(Organization a, Organization b) {
+        return IdBitmap.and(a.getMemberIds(), b.getMemberIds());
+    }
+
+    /**
+     * Gets the characters that belong to any of a group of organizations
+     * @param organizations The organizations
+     * @return The ids of the characters
+     */
+    public IdBitmap getMembersOfAny(Collection<Organization> organizations) {
+        IdBitmap rVal = new IdBitmap();
+        for (Organization organization : organizations) {
+            rVal = IdBitmap.or(rVal, organization.getMemberIds());
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the members of an organization that are at a location
+     * @param organization The organization
+     * @param locationId The id of the location
+     * @param characterMap The characters
+     * @return The ids of the members there
+     */
+    public IdBitmap getMembersAt(Organization organization, long locationId, CharacterMap characterMap) {
+        return IdBitmap.and(organization.getMemberIds(), characterMap.getOccupantIdsAt(locationId));
+    }
+
+    /**
+     * Rebuilds the indices over the organizations, ie after the map was loaded from a file
+     */
+    public void rebuildIndices() {
+        idOrgMap.forEach((Organization organization) -> organization.setMap(this));
+        synchronized (this) {
+            memberships = null;
+            this.getMemberships();
+        }
+    }
+
+    /**
+     * Called by an organization when a character joins it
+     * @param organization The organization
+     * @param characterId The id of the character
+     */
+    synchronized void onMemberAdded(Organization organization, long characterId) {
+        this.addMembership(characterId, organization.getId());
+    }
+
+    /**
+     * Called by an organization when a character leaves it
+     * @param organization The organization
+     * @param characterId The id of the character
+     */
+    synchronized void onMemberRemoved(Organization organization, long characterId) {
+        IdBitmap ids = this.getMemberships().get(characterId);
+        if (ids != null) {
+            ids.remove(organization.getId());
+        }
+    }
+
+    /**
+     * Gets the membership index, building it from the organizations if the world was just loaded. Callers hold the lock on this map.
+     * @return The index
+     */
+    private EntityStore<IdBitmap> getMemberships() {
+        if (memberships == null) {
+            memberships = new EntityStore<IdBitmap>();
+            idOrgMap.forEach((Organization organization) -> {
+                organization.getMemberIds().forEach((long characterId) -> this.addMembership(characterId, organization.getId()));
+            });
+        }
+        return memberships;
+    }
+
+    /**
+     * Adds a character's membership of an organization to the index. Callers hold the lock on this map.
+     * @param characterId The id of the character
+     * @param organizationId The id of the organization
+     */
+    private void addMembership(long characterId, long organizationId) {
+        EntityStore<IdBitmap> index = this.getMemberships();
+        IdBitmap ids = index.get(characterId);
+        if (ids == null) {
+            ids = new IdBitmap();
+            index.put(characterId, ids);
+        }
+        ids.add(organizationId);
+    }
+
+    /**
+     * Writes the organizations to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        List<Organization> all = new ArrayList<Organization>(idOrgMap.values());
+        out.writeLong(idOrgMap.getIdBound());
+        out.writeInt(all.size());
+        for (Organization organization : all) {
+            organization.writeSnapshot(out);
+        }
+    }
+
+    /**
+     * Reads the organizations from a world snapshot into this empty map
+     * @param in The snapshot
+     * @throws IOException If the snapshot can't be read
+     */
+    public void readSnapshot(SnapshotReader in) throws IOException {
+        long idBound = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Organization organization = Organization.readSnapshot(in);
+            idOrgMap.put(organization.getId(), organization);
+        }
+        idOrgMap.reserveIds(idBound);
+        idOrgMap.forEach((Organization organization) -> organization.setMap(this));
+        synchronized (this) {
+            memberships = null;
+        }
+    }
+}
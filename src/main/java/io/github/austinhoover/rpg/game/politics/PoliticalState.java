@@ -1,5 +1,12 @@
 package io.github.austinhoover.rpg.game.politics;
 
+import java.io.IOException;
+
+import io.github.austinhoover.rpg.game.character.Character;
+import io.github.austinhoover.rpg.game.world.IdBitmap;
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
+
 /**
  * Represents a political state in the world (e.g., kingdom, empire, republic)
  */
@@ -20,6 +27,11 @@ public class PoliticalState {
      */
     private String race;
 
+    /**
+     * Ids of the characters that are citizens of this state
+     */
+    private IdBitmap citizenIds;
+
     /**
      * Constructor
      * @param name Name of the political state
@@ -28,6 +40,7 @@ public class PoliticalState {
     private PoliticalState(String name, String race) {
         this.name = name;
         this.race = race;
+        this.citizenIds = new IdBitmap();
     }
 
     /**
@@ -74,4 +87,84 @@ public class PoliticalState {
     public String getRace() {
         return race;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Gets the ids of the citizens of this state
+     * @return A copy of the ids
+     */
+    public synchronized IdBitmap getCitizenIds() {
+        return this.getCitizens().copy();
+    }
+
+    /**
+     * Gets the number of citizens of this state
+     * @return The number of citizens
+     */
+    public synchronized int getCitizenCount() {
+        return this.getCitizens().size();
+    }
+
+    /**
+     * Makes a character a citizen of this state
+     * @param character The character
+     */
+    public synchronized void addCitizen(Character character) {
+        this.getCitizens().add(character.getId());
+    }
+
+    /**
+     * Removes a character from the citizens of this state
+     * @param character The character
+     */
+    public synchronized void removeCitizen(Character character) {
+        this.getCitizens().remove(character.getId());
+    }
+
+    /**
+     * Checks if a character is a citizen of this state
+     * @param character The character
+     * @return true if the character is a citizen
+     */
+    public synchronized boolean isCitizen(Character character) {
+        return this.getCitizens().contains(character.getId());
+    }
+
+    /**
+     * Gets the citizen set, creating it if an older save left it out. Callers hold the lock on this state.
+     * @return The citizen set
+     */
+    private IdBitmap getCitizens() {
+        if (citizenIds == null) {
+            citizenIds = new IdBitmap();
+        }
+        return citizenIds;
+    }
+
+    /**
+     * Writes this political state to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    void writeSnapshot(SnapshotWriter out) throws IOException {
+        out.writeLong(id);
+        out.writeString(name);
+        out.writeString(race);
+        synchronized (this) {
+            out.writeIdBitmap(this.getCitizens());
+        }
+    }
+
+    /**
+     * Reads a political state written by {@link #writeSnapshot(SnapshotWriter)}
+     * @param in The snapshot
+     * @return The political state, not yet registered with a map
+     * @throws IOException If the snapshot can't be read
+     */
+    static PoliticalState readSnapshot(SnapshotReader in) throws IOException {
+        long id = in.readLong();
+        PoliticalState rVal = new PoliticalState(in.readString(), in.readString());
+        rVal.setId(id);
+        rVal.citizenIds = in.readIdBitmap();
+        return rVal;
+    }
+}
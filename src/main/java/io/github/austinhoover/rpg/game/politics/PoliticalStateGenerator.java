@@ -7,7 +7,6 @@ import java.util.Random;
  * Generates political states for the world
  */
 public class PoliticalStateGenerator {
-    private static final Random random = new Random();
     private static final String[] STATE_TYPES = {
         "Kingdom", "Empire", "Republic", "Federation", "Duchy", 
         "Principality", "Theocracy", "Confederation", "Alliance"
@@ -17,9 +16,10 @@ public class PoliticalStateGenerator {
      * Generates political states for each race
      * @param map The political state map to register states with
      * @param races List of race names to generate states for
+     * @param random The source of randomness
      * @return The number of states generated
      */
-    public static int generateStates(PoliticalStateMap map, List<String> races) {
+    public static int generateStates(PoliticalStateMap map, List<String> races, Random random) {
         int totalStates = 0;
         
         for (String race : races) {
@@ -1,8 +1,13 @@
 package io.github.austinhoover.rpg.game.politics;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+
+import io.github.austinhoover.rpg.game.world.EntityStore;
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
 
 /**
  * Storage object for all political states
@@ -12,7 +17,7 @@ public class PoliticalStateMap {
     /**
      * Map of id -> political state
      */
-    private Map<Long, PoliticalState> idStateMap = new HashMap<Long, PoliticalState>();
+    private EntityStore<PoliticalState> idStateMap = new EntityStore<PoliticalState>();
 
     /**
      * Gets a political state by its id
@@ -28,7 +33,7 @@ public class PoliticalStateMap {
      * @param state The political state
      */
     public void register(PoliticalState state) {
-        state.setId(idStateMap.size());
+        state.setId(idStateMap.allocateId());
         idStateMap.put(state.getId(), state);
     }
 
@@ -39,4 +44,33 @@ public class PoliticalStateMap {
     public Collection<PoliticalState> getAllStates() {
         return idStateMap.values();
     }
-} 
\ No newline at end of file
+
+    /**
+     * Writes the political states to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        List<PoliticalState> all = new ArrayList<PoliticalState>(idStateMap.values());
+        out.writeLong(idStateMap.getIdBound());
+        out.writeInt(all.size());
+        for (PoliticalState state : all) {
+            state.writeSnapshot(out);
+        }
+    }
+
+    /**
+     * Reads the political states from a world snapshot into this empty map
+     * @param in The snapshot
+     * @throws IOException If the snapshot can't be read
+     */
+    public void readSnapshot(SnapshotReader in) throws IOException {
+        long idBound = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            PoliticalState state = PoliticalState.readSnapshot(in);
+            idStateMap.put(state.getId(), state);
+        }
+        idStateMap.reserveIds(idBound);
+    }
+}
@@ -1,5 +1,10 @@
 package io.github.austinhoover.rpg.game.race;
 
+import java.io.IOException;
+
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
+
 /**
  * Represents a race in the world (e.g., human, elf, dwarf)
  */
@@ -58,4 +63,27 @@ public class Race {
     public String getName() {
         return name;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Writes this race to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    void writeSnapshot(SnapshotWriter out) throws IOException {
+        out.writeLong(id);
+        out.writeString(name);
+    }
+
+    /**
+     * Reads a race written by {@link #writeSnapshot(SnapshotWriter)}
+     * @param in The snapshot
+     * @return The race, not yet registered with a map
+     * @throws IOException If the snapshot can't be read
+     */
+    static Race readSnapshot(SnapshotReader in) throws IOException {
+        long id = in.readLong();
+        Race rVal = new Race(in.readString());
+        rVal.setId(id);
+        return rVal;
+    }
+}
@@ -1,8 +1,13 @@
 package io.github.austinhoover.rpg.game.race;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+
+import io.github.austinhoover.rpg.game.world.EntityStore;
+import io.github.austinhoover.rpg.game.world.SnapshotReader;
+import io.github.austinhoover.rpg.game.world.SnapshotWriter;
 
 /**
  * Storage object for all races
@@ -12,7 +17,7 @@ public class RaceMap {
     /**
      * Map of id -> race
      */
-    private Map<Long, Race> idRaceMap = new HashMap<Long, Race>();
+    private EntityStore<Race> idRaceMap = new EntityStore<Race>();
 
     /**
      * Gets a race by its id
@@ -28,7 +33,7 @@ public class RaceMap {
      * @param race The race
      */
     public void register(Race race) {
-        race.setId(idRaceMap.size());
+        race.setId(idRaceMap.allocateId());
         idRaceMap.put(race.getId(), race);
     }
 
@@ -53,4 +58,33 @@ public class RaceMap {
         }
         return null;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Writes the races to a world snapshot
+     * @param out The snapshot
+     * @throws IOException If the snapshot can't be written
+     */
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        List<Race> all = new ArrayList<Race>(idRaceMap.values());
+        out.writeLong(idRaceMap.getIdBound());
+        out.writeInt(all.size());
+        for (Race race : all) {
+            race.writeSnapshot(out);
+        }
+    }
+
+    /**
+     * Reads the races from a world snapshot into this empty map
+     * @param in The snapshot
+     * @throws IOException If the snapshot can't be read
+     */
+    public void readSnapshot(SnapshotReader in) throws IOException {
+        long idBound = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Race race = Race.readSnapshot(in);
+            idRaceMap.put(race.getId(), race);
+        }
+        idRaceMap.reserveIds(idBound);
+    }
+}
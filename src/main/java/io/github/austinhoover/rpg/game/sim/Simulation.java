@@ -1,18 +1,102 @@
 package io.github.austinhoover.rpg.game.sim;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
 import io.github.austinhoover.rpg.game.Global;
 import io.github.austinhoover.rpg.game.intent.IntentParser;
 
 public class Simulation {
-    
+
+    /**
+     * Runs player turns one at a time, off of the caller's thread
+     */
+    private static final ExecutorService TURN_EXECUTOR = Executors.newSingleThreadExecutor((Runnable runnable) -> {
+        Thread thread = new Thread(runnable, "simulation-turn");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The client the console's turns are submitted as
+     */
+    public static final String CONSOLE_CLIENT = "console";
+
+    /**
+     * The turn each client submitted most recently and that is still running, keyed by client.
+     * A client's new turn supersedes its own previous one, never another client's. Callers hold the lock on Simulation.class.
+     */
+    private static final Map<String, CompletableFuture<String>> currentTurns = new HashMap<String, CompletableFuture<String>>();
+
+    /**
+     * Simulates a turn on the turn thread
+     * @param client The client submitting the turn
+     * @param input The player's input
+     * @return A future that completes with the turn's response
+     */
+    public static CompletableFuture<String> simulateAsync(String client, String input){
+        return Simulation.simulateAsync(client, input, null);
+    }
+
+    /**
+     * Simulates a turn on the turn thread, streaming generated narration as it is produced.
+     * Cancels the client's previous turn if it is still running; cancelling the returned future interrupts the turn, which aborts its generation.
+     * @param client The client submitting the turn
+     * @param input The player's input
+     * @param onToken If non-null, receives generated narration token by token
+     * @return A future that completes with the turn's response
+     */
+    public static synchronized CompletableFuture<String> simulateAsync(String client, String input, Consumer<String> onToken){
+        CompletableFuture<String> previous = currentTurns.get(client);
+        if(previous != null){
+            previous.cancel(true);
+        }
+        CompletableFuture<String> rVal = new CompletableFuture<String>();
+        Future<?> task = TURN_EXECUTOR.submit(() -> {
+            if(rVal.isDone()){
+                return;
+            }
+            try {
+                rVal.complete(Simulation.simulate(input, onToken));
+            } catch (Throwable e) {
+                rVal.completeExceptionally(e);
+            }
+        });
+        currentTurns.put(client, rVal);
+        rVal.whenComplete((String response, Throwable error) -> {
+            if(rVal.isCancelled()){
+                task.cancel(true);
+            }
+            synchronized(Simulation.class){
+                currentTurns.remove(client, rVal);
+            }
+        });
+        return rVal;
+    }
+
     public static String simulate(String input){
+        return Simulation.simulate(input, null);
+    }
+
+    /**
+     * Simulates a turn
+     * @param input The player's input
+     * @param onToken If non-null, receives generated narration token by token
+     * @return The turn's response
+     */
+    public static String simulate(String input, Consumer<String> onToken){
         IntentParser.Intent intent = Global.parser.parse(input);
         String response = null;
         switch (intent.type) {
             case MOVE -> {
-                if (Global.mover.attemptMove(intent.target)) {
+                if (Global.mover.attemptMove(intent.target, onToken)) {
                     response = "You travel to " + Global.world.getLocationMap().getLocationById(Global.player.currentLocationId).getType() + ".";
-                    Global.mover.describeCurrentLocation();
+                    Global.mover.describeCurrentLocation(onToken == null);
                 } else {
                     response = "You can't go there.";
                 }
@@ -25,10 +109,12 @@ public class Simulation {
                 response = Global.conversation.handleTalkWithReturn(intent.target, intent.message);
             }
             default -> {
-                response = Global.story.handleUnknownIntent(input);
+                response = Global.story.handleUnknownIntent(input, onToken);
             }
         }
-        Global.gameLog.addEntry(input, response);
+        if(!Thread.currentThread().isInterrupted()){
+            Global.gameLog.addEntry(input, response);
+        }
         return response;
     }
 
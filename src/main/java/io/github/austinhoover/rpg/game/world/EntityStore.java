@@ -0,0 +1,343 @@
+package io.github.austinhoover.rpg.game.world;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Storage for entities with sequential ids, indexed directly by id.
+ * Entities are kept in fixed-size chunks that are added as ids grow, so lookups are two array reads with no boxing or hashing,
+ * and iteration walks memory in id order. Ids are handed out atomically, and lookups never lock.
+ * Serializes to json as an object of id to entity, the same shape as the {@code HashMap<Long, T>} it replaces.
+ * @param <T> The type of entity
+ */
+@JsonAdapter(EntityStore.GsonAdapterFactory.class)
+public class EntityStore<T> {
+
+    /**
+     * Log2 of the number of entities per chunk
+     */
+    private static final int CHUNK_BITS = 12;
+
+    /**
+     * Number of entities per chunk
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /**
+     * Mask of an id's index within its chunk
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Publishes entities written by one thread to lookups on another
+     */
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    /**
+     * The chunks, replaced by a longer copy when more are needed
+     */
+    private volatile Object[][] chunks = new Object[1][];
+
+    /**
+     * The next id to hand out
+     */
+    private final AtomicLong nextId = new AtomicLong();
+
+    /**
+     * Number of entities stored
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Hands out a new id
+     * @return The id
+     */
+    public long allocateId() {
+        return nextId.getAndIncrement();
+    }
+
+    /**
+     * Stores an entity under an id, replacing whatever was stored there
+     * @param id The id
+     * @param entity The entity
+     */
+    public void put(long id, T entity) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Id out of range " + id);
+        }
+        Object[] chunk = this.getChunkForWrite((int) id);
+        Object previous = SLOT.getAndSetRelease(chunk, (int) id & CHUNK_MASK, entity);
+        if (previous == null && entity != null) {
+            size.incrementAndGet();
+        } else if (previous != null && entity == null) {
+            size.decrementAndGet();
+        }
+        // ids stored directly (ie while loading) must not be handed out again
+        nextId.accumulateAndGet(id + 1, Math::max);
+    }
+
+    /**
+     * Allocates an id and stores an entity under it
+     * @param entity The entity
+     * @return The id
+     */
+    public long add(T entity) {
+        long rVal = this.allocateId();
+        this.put(rVal, entity);
+        return rVal;
+    }
+
+    /**
+     * Gets the entity stored under an id
+     * @param id The id
+     * @return The entity, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long id) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            return null;
+        }
+        Object[][] current = chunks;
+        int chunkIndex = (int) (id >>> CHUNK_BITS);
+        if (chunkIndex >= current.length) {
+            return null;
+        }
+        Object[] chunk = current[chunkIndex];
+        if (chunk == null) {
+            return null;
+        }
+        return (T) SLOT.getAcquire(chunk, (int) id & CHUNK_MASK);
+    }
+
+    /**
+     * Removes the entity stored under an id. The id is not handed out again.
+     * @param id The id
+     * @return The entity that was removed, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(long id) {
+        if (this.get(id) == null) {
+            return null;
+        }
+        Object[] chunk = chunks[(int) (id >>> CHUNK_BITS)];
+        Object previous = SLOT.getAndSetRelease(chunk, (int) id & CHUNK_MASK, (Object) null);
+        if (previous != null) {
+            size.decrementAndGet();
+        }
+        return (T) previous;
+    }
+
+    /**
+     * Gets the number of entities stored
+     * @return The number of entities
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Makes sure ids below a bound are never handed out, ie to keep the ids of removed entities retired after loading
+     * @param bound One more than the highest id to retire
+     */
+    public void reserveIds(long bound) {
+        nextId.accumulateAndGet(bound, Math::max);
+    }
+
+    /**
+     * Gets one more than the highest id handed out
+     * @return The bound
+     */
+    public long getIdBound() {
+        return nextId.get();
+    }
+
+    /**
+     * Calls a consumer with every entity, in id order
+     * @param consumer The consumer
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super T> consumer) {
+        Object[][] current = chunks;
+        long bound = Math.min(nextId.get(), (long) current.length << CHUNK_BITS);
+        for (int chunkIndex = 0; (long) chunkIndex << CHUNK_BITS < bound; chunkIndex++) {
+            Object[] chunk = current[chunkIndex];
+            if (chunk == null) {
+                continue;
+            }
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                Object entity = SLOT.getAcquire(chunk, i);
+                if (entity != null) {
+                    consumer.accept((T) entity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets a live view of the entities, in id order
+     * @return The view
+     */
+    public Collection<T> values() {
+        return new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new EntityIterator();
+            }
+
+            @Override
+            public int size() {
+                return EntityStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * Gets the chunk an id is stored in, adding chunks as needed
+     * @param id The id
+     * @return The chunk
+     */
+    private Object[] getChunkForWrite(int id) {
+        int chunkIndex = id >>> CHUNK_BITS;
+        Object[][] current = chunks;
+        if (chunkIndex < current.length && current[chunkIndex] != null) {
+            return current[chunkIndex];
+        }
+        synchronized (this) {
+            current = chunks;
+            if (chunkIndex >= current.length) {
+                Object[][] grown = new Object[Math.max(current.length * 2, chunkIndex + 1)][];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                current = grown;
+            } else {
+                // copy, so readers holding the old array never see a half-built chunk
+                current = current.clone();
+            }
+            if (current[chunkIndex] == null) {
+                current[chunkIndex] = new Object[CHUNK_SIZE];
+            }
+            chunks = current;
+            return current[chunkIndex];
+        }
+    }
+
+    /**
+     * Walks the entities in id order, a chunk at a time
+     */
+    private class EntityIterator implements Iterator<T> {
+
+        /**
+         * The chunks being walked
+         */
+        private final Object[][] walked = chunks;
+
+        /**
+         * Index of the chunk being walked
+         */
+        private int chunkIndex = 0;
+
+        /**
+         * Index of the next slot to look at within the chunk
+         */
+        private int slot = 0;
+
+        /**
+         * The next entity, or null if it hasn't been found yet
+         */
+        private T next;
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean hasNext() {
+            while (next == null && chunkIndex < walked.length) {
+                Object[] chunk = walked[chunkIndex];
+                if (chunk == null || slot == CHUNK_SIZE) {
+                    chunkIndex++;
+                    slot = 0;
+                    continue;
+                }
+                next = (T) SLOT.getAcquire(chunk, slot++);
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T rVal = next;
+            next = null;
+            return rVal;
+        }
+    }
+
+    /**
+     * Reads and writes stores as an object of id to entity
+     */
+    public static class GsonAdapterFactory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <A> TypeAdapter<A> create(Gson gson, TypeToken<A> type) {
+            Type entityType = Object.class;
+            if (type.getType() instanceof ParameterizedType) {
+                entityType = ((ParameterizedType) type.getType()).getActualTypeArguments()[0];
+            }
+            TypeAdapter<Object> entityAdapter = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(entityType));
+            return (TypeAdapter<A>) new TypeAdapter<EntityStore<Object>>() {
+                @Override
+                public void write(JsonWriter out, EntityStore<Object> store) throws IOException {
+                    if (store == null) {
+                        out.nullValue();
+                        return;
+                    }
+                    out.beginObject();
+                    long bound = store.getIdBound();
+                    for (long id = 0; id < bound; id++) {
+                        Object entity = store.get(id);
+                        if (entity != null) {
+                            out.name(Long.toString(id));
+                            entityAdapter.write(out, entity);
+                        }
+                    }
+                    out.endObject();
+                }
+
+                @Override
+                public EntityStore<Object> read(JsonReader in) throws IOException {
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        return null;
+                    }
+                    EntityStore<Object> rVal = new EntityStore<>();
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        long id = Long.parseLong(in.nextName());
+                        rVal.put(id, entityAdapter.read(in));
+                    }
+                    in.endObject();
+                    return rVal;
+                }
+            };
+        }
+    }
+}
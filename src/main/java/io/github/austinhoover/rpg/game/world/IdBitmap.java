@@ -0,0 +1,788 @@
+package io.github.austinhoover.rpg.game.world;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Compressed set of entity ids, laid out like a roaring bitmap.
+ * Ids are split into their high and low 16 bits. Each run of 65536 ids that holds anything gets a container:
+ * a sorted array of low bits while it holds at most {@link #ARRAY_MAX} ids, and a 65536 bit bitmap once it holds more.
+ * Sparse sets stay small, dense sets cost a bit per id, and intersections, unions and differences work a container at a time,
+ * on whole 64 bit words where both sides are bitmaps.
+ * Iterates in ascending order. Serializes to json as an array of ids. Not thread safe.
+ */
+@JsonAdapter(IdBitmap.GsonAdapter.class)
+public class IdBitmap {
+
+    /**
+     * Most ids an array container holds before it becomes a bitmap, where the two take the same space
+     */
+    private static final int ARRAY_MAX = 4096;
+
+    /**
+     * Number of words in a bitmap container
+     */
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    /**
+     * Largest id that can be stored
+     */
+    private static final long MAX_ID = 0xFFFFFFFFL;
+
+    /**
+     * High 16 bits of the ids in each container, ascending
+     */
+    private char[] keys = new char[0];
+
+    /**
+     * The containers: a char[] of sorted low bits, or a long[] bitmap of them
+     */
+    private Object[] containers = new Object[0];
+
+    /**
+     * Number of ids in each container
+     */
+    private int[] cardinalities = new int[0];
+
+    /**
+     * Number of containers in use
+     */
+    private int containerCount = 0;
+
+    /**
+     * Number of ids in the set
+     */
+    private int size = 0;
+
+    /**
+     * Creates an empty set
+     */
+    public IdBitmap() {
+    }
+
+    /**
+     * Creates a set of ids
+     * @param ids The ids
+     * @return The set
+     */
+    public static IdBitmap of(long... ids) {
+        IdBitmap rVal = new IdBitmap();
+        for (long id : ids) {
+            rVal.add(id);
+        }
+        return rVal;
+    }
+
+    /**
+     * Adds an id
+     * @param id The id
+     * @return true if the id was not in the set yet
+     */
+    public boolean add(long id) {
+        checkId(id);
+        char key = (char) (id >>> 16);
+        char low = (char) id;
+        int index = this.findContainer(key);
+        if (index < 0) {
+            index = -index - 1;
+            this.insertContainer(index, key, new char[4], 0);
+        }
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            long[] bitmap = (long[]) container;
+            long bit = 1L << low;
+            if ((bitmap[low >>> 6] & bit) != 0) {
+                return false;
+            }
+            bitmap[low >>> 6] |= bit;
+        } else {
+            char[] array = (char[]) container;
+            int cardinality = cardinalities[index];
+            int position = Arrays.binarySearch(array, 0, cardinality, low);
+            if (position >= 0) {
+                return false;
+            }
+            position = -position - 1;
+            if (cardinality == ARRAY_MAX) {
+                long[] bitmap = toBitmap(array, cardinality);
+                bitmap[low >>> 6] |= 1L << low;
+                containers[index] = bitmap;
+            } else {
+                if (cardinality == array.length) {
+                    array = Arrays.copyOf(array, Math.min(ARRAY_MAX, array.length * 2));
+                    containers[index] = array;
+                }
+                System.arraycopy(array, position, array, position + 1, cardinality - position);
+                array[position] = low;
+            }
+        }
+        cardinalities[index]++;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes an id
+     * @param id The id
+     * @return true if the id was in the set
+     */
+    public boolean remove(long id) {
+        if (id < 0 || id > MAX_ID) {
+            return false;
+        }
+        int index = this.findContainer((char) (id >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) id;
+        Object container = containers[index];
+        int cardinality = cardinalities[index];
+        if (container instanceof long[]) {
+            long[] bitmap = (long[]) container;
+            long bit = 1L << low;
+            if ((bitmap[low >>> 6] & bit) == 0) {
+                return false;
+            }
+            bitmap[low >>> 6] &= ~bit;
+            if (cardinality - 1 <= ARRAY_MAX) {
+                containers[index] = toArray(bitmap, cardinality - 1);
+            }
+        } else {
+            char[] array = (char[]) container;
+            int position = Arrays.binarySearch(array, 0, cardinality, low);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(array, position + 1, array, position, cardinality - position - 1);
+        }
+        size--;
+        if (--cardinalities[index] == 0) {
+            this.removeContainer(index);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether an id is in the set
+     * @param id The id
+     * @return true if it is
+     */
+    public boolean contains(long id) {
+        if (id < 0 || id > MAX_ID) {
+            return false;
+        }
+        int index = this.findContainer((char) (id >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) id;
+        Object container = containers[index];
+        if (container instanceof long[]) {
+            return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) container, 0, cardinalities[index], low) >= 0;
+    }
+
+    /**
+     * Gets the number of ids in the set
+     * @return The number of ids
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the set is empty
+     * @return true if it is
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Calls a consumer with every id, in ascending order
+     * @param consumer The consumer
+     */
+    public void forEach(LongConsumer consumer) {
+        for (int i = 0; i < containerCount; i++) {
+            long high = (long) keys[i] << 16;
+            Object container = containers[i];
+            if (container instanceof long[]) {
+                long[] bitmap = (long[]) container;
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long bits = bitmap[word];
+                    while (bits != 0) {
+                        consumer.accept(high | (word << 6) | Long.numberOfTrailingZeros(bits));
+                        bits &= bits - 1;
+                    }
+                }
+            } else {
+                char[] array = (char[]) container;
+                for (int j = 0; j < cardinalities[i]; j++) {
+                    consumer.accept(high | array[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the ids into an array
+     * @return The ids, in ascending order
+     */
+    public long[] toArray() {
+        long[] rVal = new long[size];
+        int[] position = new int[1];
+        this.forEach((long id) -> rVal[position[0]++] = id);
+        return rVal;
+    }
+
+    /**
+     * Copies this set
+     * @return The copy
+     */
+    public IdBitmap copy() {
+        IdBitmap rVal = new IdBitmap();
+        rVal.keys = Arrays.copyOf(keys, containerCount);
+        rVal.containers = new Object[containerCount];
+        rVal.cardinalities = Arrays.copyOf(cardinalities, containerCount);
+        for (int i = 0; i < containerCount; i++) {
+            Object container = containers[i];
+            rVal.containers[i] = container instanceof long[] ? ((long[]) container).clone() : Arrays.copyOf((char[]) container, cardinalities[i]);
+        }
+        rVal.containerCount = containerCount;
+        rVal.size = size;
+        return rVal;
+    }
+
+    /**
+     * Gets the number of containers, for writing the set to a snapshot
+     * @return The number of containers
+     */
+    int getContainerCount() {
+        return containerCount;
+    }
+
+    /**
+     * Gets the high bits of the ids in a container
+     * @param index The index of the container
+     * @return The high bits
+     */
+    char getContainerKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Gets a container, for writing the set to a snapshot
+     * @param index The index of the container
+     * @return The bitmap, or null if the container is an array
+     */
+    long[] getBitmapContainer(int index) {
+        return containers[index] instanceof long[] ? (long[]) containers[index] : null;
+    }
+
+    /**
+     * Gets an array container, for writing the set to a snapshot
+     * @param index The index of the container
+     * @return The sorted low bits, possibly with unused room past {@link #getContainerCardinality(int)}, or null if the container is a bitmap
+     */
+    char[] getArrayContainer(int index) {
+        return containers[index] instanceof char[] ? (char[]) containers[index] : null;
+    }
+
+    /**
+     * Gets the number of ids in a container
+     * @param index The index of the container
+     * @return The number of ids
+     */
+    int getContainerCardinality(int index) {
+        return cardinalities[index];
+    }
+
+    /**
+     * Adds a container read from a snapshot after all the others, taking ownership of it
+     * @param key The high bits of its ids
+     * @param container A char[] of strictly ascending low bits, or a long[] bitmap
+     * @throws IllegalArgumentException If the key doesn't follow the last container's, or the container is malformed
+     */
+    void appendSnapshotContainer(char key, Object container) {
+        if (containerCount > 0 && key <= keys[containerCount - 1]) {
+            throw new IllegalArgumentException("Container " + (int) key + " out of order");
+        }
+        if (container instanceof long[]) {
+            if (((long[]) container).length != BITMAP_WORDS) {
+                throw new IllegalArgumentException("Bitmap container of " + ((long[]) container).length + " words");
+            }
+        } else {
+            char[] array = (char[]) container;
+            for (int i = 1; i < array.length; i++) {
+                if (array[i] <= array[i - 1]) {
+                    throw new IllegalArgumentException("Array container " + (int) key + " not in ascending order");
+                }
+            }
+        }
+        this.appendContainer(key, container);
+    }
+
+    /**
+     * Gets the ids in both of two sets
+     * @param a One set
+     * @param b The other set
+     * @return The intersection
+     */
+    public static IdBitmap and(IdBitmap a, IdBitmap b) {
+        IdBitmap rVal = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.containerCount && j < b.containerCount) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                rVal.appendContainer(a.keys[i], and(a.containers[i], a.cardinalities[i], b.containers[j], b.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the ids in either of two sets
+     * @param a One set
+     * @param b The other set
+     * @return The union
+     */
+    public static IdBitmap or(IdBitmap a, IdBitmap b) {
+        IdBitmap rVal = new IdBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < a.containerCount || j < b.containerCount) {
+            if (j == b.containerCount || (i < a.containerCount && a.keys[i] < b.keys[j])) {
+                rVal.appendContainer(a.keys[i], copyContainer(a.containers[i], a.cardinalities[i]));
+                i++;
+            } else if (i == a.containerCount || a.keys[i] > b.keys[j]) {
+                rVal.appendContainer(b.keys[j], copyContainer(b.containers[j], b.cardinalities[j]));
+                j++;
+            } else {
+                rVal.appendContainer(a.keys[i], or(a.containers[i], a.cardinalities[i], b.containers[j], b.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the ids in one set but not another
+     * @param a The set to take ids from
+     * @param b The set of ids to leave out
+     * @return The difference
+     */
+    public static IdBitmap andNot(IdBitmap a, IdBitmap b) {
+        IdBitmap rVal = new IdBitmap();
+        int j = 0;
+        for (int i = 0; i < a.containerCount; i++) {
+            while (j < b.containerCount && b.keys[j] < a.keys[i]) {
+                j++;
+            }
+            if (j < b.containerCount && b.keys[j] == a.keys[i]) {
+                rVal.appendContainer(a.keys[i], andNot(a.containers[i], a.cardinalities[i], b.containers[j], b.cardinalities[j]));
+            } else {
+                rVal.appendContainer(a.keys[i], copyContainer(a.containers[i], a.cardinalities[i]));
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Counts the ids in both of two sets without building the intersection
+     * @param a One set
+     * @param b The other set
+     * @return The number of ids
+     */
+    public static int andCardinality(IdBitmap a, IdBitmap b) {
+        int rVal = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.containerCount && j < b.containerCount) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Object x = a.containers[i];
+                Object y = b.containers[j];
+                if (x instanceof long[] && y instanceof long[]) {
+                    long[] left = (long[]) x;
+                    long[] right = (long[]) y;
+                    for (int word = 0; word < BITMAP_WORDS; word++) {
+                        rVal += Long.bitCount(left[word] & right[word]);
+                    }
+                } else if (x instanceof long[]) {
+                    rVal += countIn((char[]) y, b.cardinalities[j], (long[]) x);
+                } else if (y instanceof long[]) {
+                    rVal += countIn((char[]) x, a.cardinalities[i], (long[]) y);
+                } else {
+                    rVal += intersect((char[]) x, a.cardinalities[i], (char[]) y, b.cardinalities[j]).length;
+                }
+                i++;
+                j++;
+            }
+        }
+        return rVal;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof IdBitmap)) {
+            return false;
+        }
+        IdBitmap that = (IdBitmap) other;
+        return this.size == that.size && andCardinality(this, that) == size;
+    }
+
+    @Override
+    public int hashCode() {
+        int[] rVal = {1};
+        this.forEach((long id) -> rVal[0] = 31 * rVal[0] + Long.hashCode(id));
+        return rVal[0];
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(this.toArray());
+    }
+
+    /**
+     * Finds the container for the high bits of ids
+     * @param key The high bits
+     * @return The index of the container, or -(insertion point) - 1 if there is none
+     */
+    private int findContainer(char key) {
+        return Arrays.binarySearch(keys, 0, containerCount, key);
+    }
+
+    /**
+     * Inserts a container
+     * @param index Where to insert it
+     * @param key The high bits of its ids
+     * @param container The container
+     * @param cardinality The number of ids in it
+     */
+    private void insertContainer(int index, char key, Object container, int cardinality) {
+        if (containerCount == keys.length) {
+            int capacity = Math.max(1, containerCount * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, containerCount - index);
+        System.arraycopy(containers, index, containers, index + 1, containerCount - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, containerCount - index);
+        keys[index] = key;
+        containers[index] = container;
+        cardinalities[index] = cardinality;
+        containerCount++;
+    }
+
+    /**
+     * Removes an empty container
+     * @param index The index of the container
+     */
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, containerCount - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, containerCount - index - 1);
+        System.arraycopy(cardinalities, index + 1, cardinalities, index, containerCount - index - 1);
+        containerCount--;
+        containers[containerCount] = null;
+    }
+
+    /**
+     * Adds a container after all the others, in the form that suits how many ids it holds. Empty containers are dropped.
+     * @param key The high bits of its ids, greater than those of every other container
+     * @param container The container, a char[] holding exactly its ids or a long[] bitmap
+     */
+    private void appendContainer(char key, Object container) {
+        int cardinality;
+        if (container instanceof long[]) {
+            long[] bitmap = (long[]) container;
+            cardinality = 0;
+            for (long word : bitmap) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality <= ARRAY_MAX) {
+                container = toArray(bitmap, cardinality);
+            }
+        } else {
+            cardinality = ((char[]) container).length;
+            if (cardinality > ARRAY_MAX) {
+                container = toBitmap((char[]) container, cardinality);
+            }
+        }
+        if (cardinality == 0) {
+            return;
+        }
+        this.insertContainer(containerCount, key, container, cardinality);
+        size += cardinality;
+    }
+
+    /**
+     * Intersects two containers
+     * @return The ids in both, as a container for {@link #appendContainer(char, Object)}
+     */
+    private static Object and(Object x, int xCardinality, Object y, int yCardinality) {
+        if (x instanceof long[] && y instanceof long[]) {
+            long[] left = (long[]) x;
+            long[] right = (long[]) y;
+            long[] rVal = new long[BITMAP_WORDS];
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                rVal[word] = left[word] & right[word];
+            }
+            return rVal;
+        }
+        if (x instanceof long[]) {
+            return filter((char[]) y, yCardinality, (long[]) x, true);
+        }
+        if (y instanceof long[]) {
+            return filter((char[]) x, xCardinality, (long[]) y, true);
+        }
+        return intersect((char[]) x, xCardinality, (char[]) y, yCardinality);
+    }
+
+    /**
+     * Unites two containers
+     * @return The ids in either, as a container for {@link #appendContainer(char, Object)}
+     */
+    private static Object or(Object x, int xCardinality, Object y, int yCardinality) {
+        if (x instanceof long[] || y instanceof long[]) {
+            long[] rVal = x instanceof long[] ? ((long[]) x).clone() : toBitmap((char[]) x, xCardinality);
+            if (y instanceof long[]) {
+                long[] right = (long[]) y;
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    rVal[word] |= right[word];
+                }
+            } else {
+                char[] right = (char[]) y;
+                for (int k = 0; k < yCardinality; k++) {
+                    rVal[right[k] >>> 6] |= 1L << right[k];
+                }
+            }
+            return rVal;
+        }
+        char[] left = (char[]) x;
+        char[] right = (char[]) y;
+        char[] rVal = new char[xCardinality + yCardinality];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < xCardinality && j < yCardinality) {
+            if (left[i] < right[j]) {
+                rVal[count++] = left[i++];
+            } else if (left[i] > right[j]) {
+                rVal[count++] = right[j++];
+            } else {
+                rVal[count++] = left[i++];
+                j++;
+            }
+        }
+        while (i < xCardinality) {
+            rVal[count++] = left[i++];
+        }
+        while (j < yCardinality) {
+            rVal[count++] = right[j++];
+        }
+        return Arrays.copyOf(rVal, count);
+    }
+
+    /**
+     * Subtracts one container from another
+     * @return The ids in x but not y, as a container for {@link #appendContainer(char, Object)}
+     */
+    private static Object andNot(Object x, int xCardinality, Object y, int yCardinality) {
+        if (x instanceof long[]) {
+            long[] rVal = ((long[]) x).clone();
+            if (y instanceof long[]) {
+                long[] right = (long[]) y;
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    rVal[word] &= ~right[word];
+                }
+            } else {
+                char[] right = (char[]) y;
+                for (int k = 0; k < yCardinality; k++) {
+                    rVal[right[k] >>> 6] &= ~(1L << right[k]);
+                }
+            }
+            return rVal;
+        }
+        if (y instanceof long[]) {
+            return filter((char[]) x, xCardinality, (long[]) y, false);
+        }
+        char[] left = (char[]) x;
+        char[] right = (char[]) y;
+        char[] rVal = new char[xCardinality];
+        int j = 0;
+        int count = 0;
+        for (int i = 0; i < xCardinality; i++) {
+            while (j < yCardinality && right[j] < left[i]) {
+                j++;
+            }
+            if (j == yCardinality || right[j] != left[i]) {
+                rVal[count++] = left[i];
+            }
+        }
+        return Arrays.copyOf(rVal, count);
+    }
+
+    /**
+     * Intersects two array containers
+     * @return The ids in both
+     */
+    private static char[] intersect(char[] left, int leftCardinality, char[] right, int rightCardinality) {
+        char[] rVal = new char[Math.min(leftCardinality, rightCardinality)];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < leftCardinality && j < rightCardinality) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                rVal[count++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(rVal, count);
+    }
+
+    /**
+     * Keeps the ids of an array container that are, or are not, in a bitmap container
+     * @param array The array container
+     * @param cardinality The number of ids in it
+     * @param bitmap The bitmap container
+     * @param keepSet true to keep the ids in the bitmap, false to keep the rest
+     * @return The ids kept
+     */
+    private static char[] filter(char[] array, int cardinality, long[] bitmap, boolean keepSet) {
+        char[] rVal = new char[cardinality];
+        int count = 0;
+        for (int k = 0; k < cardinality; k++) {
+            char low = array[k];
+            if (((bitmap[low >>> 6] & (1L << low)) != 0) == keepSet) {
+                rVal[count++] = low;
+            }
+        }
+        return Arrays.copyOf(rVal, count);
+    }
+
+    /**
+     * Counts the ids of an array container that are in a bitmap container
+     * @param array The array container
+     * @param cardinality The number of ids in it
+     * @param bitmap The bitmap container
+     * @return The number of ids
+     */
+    private static int countIn(char[] array, int cardinality, long[] bitmap) {
+        int rVal = 0;
+        for (int k = 0; k < cardinality; k++) {
+            if ((bitmap[array[k] >>> 6] & (1L << array[k])) != 0) {
+                rVal++;
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Copies a container
+     * @return The copy, as a container for {@link #appendContainer(char, Object)}
+     */
+    private static Object copyContainer(Object container, int cardinality) {
+        return container instanceof long[] ? ((long[]) container).clone() : Arrays.copyOf((char[]) container, cardinality);
+    }
+
+    /**
+     * Converts an array container to a bitmap container
+     * @param array The array container
+     * @param cardinality The number of ids in it
+     * @return The bitmap container
+     */
+    private static long[] toBitmap(char[] array, int cardinality) {
+        long[] rVal = new long[BITMAP_WORDS];
+        for (int k = 0; k < cardinality; k++) {
+            rVal[array[k] >>> 6] |= 1L << array[k];
+        }
+        return rVal;
+    }
+
+    /**
+     * Converts a bitmap container to an array container
+     * @param bitmap The bitmap container
+     * @param cardinality The number of ids in it
+     * @return The array container
+     */
+    private static char[] toArray(long[] bitmap, int cardinality) {
+        char[] rVal = new char[cardinality];
+        int count = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long bits = bitmap[word];
+            while (bits != 0) {
+                rVal[count++] = (char) ((word << 6) | Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Checks that an id can be stored
+     * @param id The id
+     */
+    private static void checkId(long id) {
+        if (id < 0 || id > MAX_ID) {
+            throw new IllegalArgumentException("Id out of range " + id);
+        }
+    }
+
+    /**
+     * Reads and writes sets as an array of ids
+     */
+    public static class GsonAdapter extends TypeAdapter<IdBitmap> {
+
+        @Override
+        public void write(JsonWriter out, IdBitmap bitmap) throws IOException {
+            if (bitmap == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (long id : bitmap.toArray()) {
+                out.value(id);
+            }
+            out.endArray();
+        }
+
+        @Override
+        public IdBitmap read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            IdBitmap rVal = new IdBitmap();
+            in.beginArray();
+            while (in.hasNext()) {
+                rVal.add(in.nextLong());
+            }
+            in.endArray();
+            return rVal;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.austinhoover.rpg.game.world;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of primitive longs, stored in an open-addressed table with linear probing so nothing is boxed.
+ * Not thread safe.
+ */
+public class LongHashSet {
+
+    /**
+     * Marks an empty slot. The value itself is tracked separately so it can still be stored.
+     */
+    private static final long EMPTY = 0L;
+
+    /**
+     * Smallest table size
+     */
+    private static final int MIN_CAPACITY = 4;
+
+    /**
+     * The table, its length a power of two
+     */
+    private long[] table;
+
+    /**
+     * Number of values in the table, not counting {@link #EMPTY}
+     */
+    private int tableSize = 0;
+
+    /**
+     * Whether {@link #EMPTY} is in the set
+     */
+    private boolean hasEmpty = false;
+
+    /**
+     * Creates an empty set
+     */
+    public LongHashSet() {
+        this.table = new long[MIN_CAPACITY];
+    }
+
+    /**
+     * Creates an empty set with room for a number of values before it has to grow
+     * @param expectedSize The number of values
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L) {
+            capacity *= 2;
+        }
+        this.table = new long[capacity];
+    }
+
+    /**
+     * Adds a value
+     * @param value The value
+     * @return true if the value was not in the set yet
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            boolean rVal = !hasEmpty;
+            hasEmpty = true;
+            return rVal;
+        }
+        int slot = this.find(value);
+        if (table[slot] == value) {
+            return false;
+        }
+        table[slot] = value;
+        tableSize++;
+        // keep the table at most half full so probes stay short
+        if (tableSize * 2 > table.length) {
+            this.resize(table.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a value
+     * @param value The value
+     * @return true if the value was in the set
+     */
+    public boolean remove(long value) {
+        if (value == EMPTY) {
+            boolean rVal = hasEmpty;
+            hasEmpty = false;
+            return rVal;
+        }
+        int slot = this.find(value);
+        if (table[slot] != value) {
+            return false;
+        }
+        // shift the rest of the probe run back, so lookups never stop early at the hole
+        int mask = table.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = mix(table[next]) & mask;
+            // move the value into the hole unless its home lies cyclically after the hole
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = EMPTY;
+        tableSize--;
+        return true;
+    }
+
+    /**
+     * Checks whether a value is in the set
+     * @param value The value
+     * @return true if it is
+     */
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return hasEmpty;
+        }
+        return table[this.find(value)] == value;
+    }
+
+    /**
+     * Gets the number of values in the set
+     * @return The number of values
+     */
+    public int size() {
+        return tableSize + (hasEmpty ? 1 : 0);
+    }
+
+    /**
+     * Checks whether the set is empty
+     * @return true if it is
+     */
+    public boolean isEmpty() {
+        return this.size() == 0;
+    }
+
+    /**
+     * Calls a consumer with every value, in no particular order
+     * @param consumer The consumer
+     */
+    public void forEach(LongConsumer consumer) {
+        if (hasEmpty) {
+            consumer.accept(EMPTY);
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    /**
+     * Copies the values into a sorted array
+     * @return The values
+     */
+    public long[] toSortedArray() {
+        long[] rVal = new long[this.size()];
+        int i = 0;
+        if (hasEmpty) {
+            rVal[i++] = EMPTY;
+        }
+        for (long value : table) {
+            if (value != EMPTY) {
+                rVal[i++] = value;
+            }
+        }
+        Arrays.sort(rVal);
+        return rVal;
+    }
+
+    /**
+     * Finds the slot a value is in, or the empty slot it would go in
+     * @param value The value, not {@link #EMPTY}
+     * @return The slot
+     */
+    private int find(long value) {
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != EMPTY && table[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Rehashes the values into a table of a new size
+     * @param capacity The new size, a power of two
+     */
+    private void resize(int capacity) {
+        long[] old = table;
+        table = new long[capacity];
+        for (long value : old) {
+            if (value != EMPTY) {
+                table[this.find(value)] = value;
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a value, since ids are sequential
+     * @param value The value
+     * @return The hash
+     */
+    private static int mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
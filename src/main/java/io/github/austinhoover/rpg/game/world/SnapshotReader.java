@@ -0,0 +1,179 @@
+package io.github.austinhoover.rpg.game.world;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the values written by a {@link SnapshotWriter} back out of a buffer, usually the snapshot file mapped into memory.
+ * Arrays are copied out of the buffer in bulk, and strings are decoded straight from a reused scratch array.
+ * Not thread safe.
+ */
+public class SnapshotReader {
+
+    /**
+     * The snapshot
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The shared strings read so far, by index
+     */
+    private final List<String> sharedStrings = new ArrayList<String>();
+
+    /**
+     * Bytes of the string being decoded
+     */
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Creates a reader
+     * @param buffer The snapshot, positioned at the first value
+     */
+    public SnapshotReader(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Reads an int
+     * @return The value
+     */
+    public int readInt() {
+        return buffer.getInt();
+    }
+
+    /**
+     * Reads a long
+     * @return The value
+     */
+    public long readLong() {
+        return buffer.getLong();
+    }
+
+    /**
+     * Reads a boolean
+     * @return The value
+     */
+    public boolean readBoolean() {
+        return buffer.get() != 0;
+    }
+
+    /**
+     * Reads a string
+     * @return The string, or null
+     * @throws IOException If the string refers to a shared string that hasn't been read, or runs past the end of the snapshot
+     */
+    public String readString() throws IOException {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0) {
+            int index = -length - 2;
+            if (index >= sharedStrings.size()) {
+                throw new IOException("Unknown shared string " + index);
+            }
+            return sharedStrings.get(index);
+        }
+        if (length > buffer.remaining()) {
+            throw new IOException("String of " + length + " bytes at byte " + (buffer.position() - Integer.BYTES) + " runs past the end of the snapshot");
+        }
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(scratch, 0, length);
+        String rVal = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        if (length <= SnapshotWriter.MAX_SHARED_STRING_BYTES) {
+            sharedStrings.add(rVal);
+        }
+        return rVal;
+    }
+
+    /**
+     * Reads an array of ints
+     * @return The values
+     * @throws IOException If the array runs past the end of the snapshot
+     */
+    public int[] readIntArray() throws IOException {
+        int[] rVal = new int[this.readLength(Integer.BYTES)];
+        buffer.asIntBuffer().get(rVal);
+        buffer.position(buffer.position() + rVal.length * Integer.BYTES);
+        return rVal;
+    }
+
+    /**
+     * Reads an array of longs
+     * @return The values
+     * @throws IOException If the array runs past the end of the snapshot
+     */
+    public long[] readLongArray() throws IOException {
+        long[] rVal = new long[this.readLength(Long.BYTES)];
+        buffer.asLongBuffer().get(rVal);
+        buffer.position(buffer.position() + rVal.length * Long.BYTES);
+        return rVal;
+    }
+
+    /**
+     * Reads an array of chars
+     * @return The values
+     * @throws IOException If the array runs past the end of the snapshot
+     */
+    public char[] readCharArray() throws IOException {
+        char[] rVal = new char[this.readLength(Character.BYTES)];
+        buffer.asCharBuffer().get(rVal);
+        buffer.position(buffer.position() + rVal.length * Character.BYTES);
+        return rVal;
+    }
+
+    /**
+     * Reads a set of ids, copying each of its containers out in bulk
+     * @return The ids
+     * @throws IOException If a container runs past the end of the snapshot
+     */
+    public IdBitmap readIdBitmap() throws IOException {
+        IdBitmap rVal = new IdBitmap();
+        int containerCount = buffer.getInt();
+        for (int i = 0; i < containerCount; i++) {
+            int key = buffer.getInt();
+            if (key < 0 || key > Character.MAX_VALUE) {
+                throw new IOException("Id set container " + key + " at byte " + (buffer.position() - Integer.BYTES) + " is out of range");
+            }
+            if (this.readBoolean()) {
+                rVal.appendSnapshotContainer((char) key, this.readLongArray());
+            } else {
+                rVal.appendSnapshotContainer((char) key, this.readCharArray());
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Reads the length of an array, checking the array fits in what is left of the snapshot before anything is allocated for it
+     * @param elementBytes The size of each value in bytes
+     * @return The length
+     * @throws IOException If the length is negative or the array would run past the end of the snapshot
+     */
+    private int readLength(int elementBytes) throws IOException {
+        int rVal = buffer.getInt();
+        if (rVal < 0 || (long) rVal * elementBytes > buffer.remaining()) {
+            throw new IOException("Array of " + rVal + " values at byte " + (buffer.position() - Integer.BYTES) + " runs past the end of the snapshot");
+        }
+        return rVal;
+    }
+
+    /**
+     * Reads an int and checks it is the one expected, ie the tag at the start of a section
+     * @param expected The expected value
+     * @param what What the value marks, for the error message
+     * @throws IOException If the value is different
+     */
+    public void expect(int expected, String what) throws IOException {
+        int actual = buffer.getInt();
+        if (actual != expected) {
+            throw new IOException("Expected " + what + " at byte " + (buffer.position() - Integer.BYTES) + " but found " + actual);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package io.github.austinhoover.rpg.game.world;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the primitive values a world snapshot is made of to a file, through one direct buffer that is flushed to the channel as it fills.
+ * Short strings are written once and referred back to after that, since types, roles and the like repeat across thousands of entities.
+ * Read back with {@link SnapshotReader}. Not thread safe.
+ */
+public class SnapshotWriter implements Closeable {
+
+    /**
+     * Size of the buffer in bytes
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Longest string, in encoded bytes, that is shared rather than written out every time
+     */
+    static final int MAX_SHARED_STRING_BYTES = 32;
+
+    /**
+     * The file
+     */
+    private final FileChannel channel;
+
+    /**
+     * Values waiting to be written to the file
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Shared string -> its index, in the order they were first written
+     */
+    private final Map<String, Integer> sharedStrings = new HashMap<String, Integer>();
+
+    /**
+     * Creates a writer, replacing the file if it exists
+     * @param path The file
+     * @throws IOException If the file can't be opened
+     */
+    public SnapshotWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes an int
+     * @param value The value
+     * @throws IOException If the file can't be written
+     */
+    public void writeInt(int value) throws IOException {
+        this.ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Writes a long
+     * @param value The value
+     * @throws IOException If the file can't be written
+     */
+    public void writeLong(long value) throws IOException {
+        this.ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Writes a boolean
+     * @param value The value
+     * @throws IOException If the file can't be written
+     */
+    public void writeBoolean(boolean value) throws IOException {
+        this.ensureRemaining(1);
+        buffer.put(value ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * Writes a string: its length in bytes and its UTF-8 bytes, -1 for null, or -(index + 2) for a short string already written
+     * @param value The string, or null
+     * @throws IOException If the file can't be written
+     */
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            this.writeInt(-1);
+            return;
+        }
+        Integer shared = sharedStrings.get(value);
+        if (shared != null) {
+            this.writeInt(-shared - 2);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_SHARED_STRING_BYTES) {
+            sharedStrings.put(value, sharedStrings.size());
+        }
+        this.writeInt(bytes.length);
+        int written = 0;
+        while (written < bytes.length) {
+            this.ensureRemaining(1);
+            int count = Math.min(buffer.remaining(), bytes.length - written);
+            buffer.put(bytes, written, count);
+            written += count;
+        }
+    }
+
+    /**
+     * Writes an array of ints, length first
+     * @param values The values
+     * @throws IOException If the file can't be written
+     */
+    public void writeIntArray(int[] values) throws IOException {
+        this.writeInt(values.length);
+        int written = 0;
+        while (written < values.length) {
+            this.ensureRemaining(Integer.BYTES);
+            int count = Math.min(buffer.remaining() / Integer.BYTES, values.length - written);
+            buffer.asIntBuffer().put(values, written, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+            written += count;
+        }
+    }
+
+    /**
+     * Writes an array of longs, length first
+     * @param values The values
+     * @throws IOException If the file can't be written
+     */
+    public void writeLongArray(long[] values) throws IOException {
+        this.writeInt(values.length);
+        int written = 0;
+        while (written < values.length) {
+            this.ensureRemaining(Long.BYTES);
+            int count = Math.min(buffer.remaining() / Long.BYTES, values.length - written);
+            buffer.asLongBuffer().put(values, written, count);
+            buffer.position(buffer.position() + count * Long.BYTES);
+            written += count;
+        }
+    }
+
+    /**
+     * Writes an array of chars, length first
+     * @param values The values
+     * @param length The number of values to write, from the start of the array
+     * @throws IOException If the file can't be written
+     */
+    public void writeCharArray(char[] values, int length) throws IOException {
+        this.writeInt(length);
+        int written = 0;
+        while (written < length) {
+            this.ensureRemaining(Character.BYTES);
+            int count = Math.min(buffer.remaining() / Character.BYTES, length - written);
+            buffer.asCharBuffer().put(values, written, count);
+            buffer.position(buffer.position() + count * Character.BYTES);
+            written += count;
+        }
+    }
+
+    /**
+     * Writes a set of ids as its containers, so reading it back is a bulk copy of each: the number of containers,
+     * then for each its high bits and either its bitmap or its array of low bits
+     * @param ids The ids
+     * @throws IOException If the file can't be written
+     */
+    public void writeIdBitmap(IdBitmap ids) throws IOException {
+        int containerCount = ids.getContainerCount();
+        this.writeInt(containerCount);
+        for (int i = 0; i < containerCount; i++) {
+            this.writeInt(ids.getContainerKey(i));
+            long[] bitmap = ids.getBitmapContainer(i);
+            this.writeBoolean(bitmap != null);
+            if (bitmap != null) {
+                this.writeLongArray(bitmap);
+            } else {
+                this.writeCharArray(ids.getArrayContainer(i), ids.getContainerCardinality(i));
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered values to the file and makes sure they reach the disk
+     * @throws IOException If the file can't be written
+     */
+    public void flush() throws IOException {
+        this.drain();
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Makes room in the buffer, writing it to the file if needed
+     * @param bytes The number of bytes needed
+     * @throws IOException If the file can't be written
+     */
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            this.drain();
+        }
+    }
+
+    /**
+     * Writes the buffered values to the file
+     * @throws IOException If the file can't be written
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -1,8 +1,10 @@
 package io.github.austinhoover.rpg.game.world;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Random;
 
 import com.google.gson.Gson;
 
@@ -30,6 +32,11 @@ public class World implements Serializable {
     private final RaceMap raceMap;
     private final PoliticalStateMap politicalStateMap;
 
+    /**
+     * The seed the world was generated from
+     */
+    private long seed;
+
     /**
      * Creates a new world with empty maps
      */
@@ -47,6 +54,16 @@ public class World implements Serializable {
      * @param defaultData The default game data to use for generation
      */
     public World(DefaultGameData defaultData) {
+        this(defaultData, new Random().nextLong());
+    }
+
+    /**
+     * Creates a new world with political states generated from default game data
+     * @param defaultData The default game data to use for generation
+     * @param seed The seed of the world, the same seed generates the same world
+     */
+    public World(DefaultGameData defaultData, long seed) {
+        this.seed = seed;
         this.regionMap = new RegionMap();
         this.locationMap = new LocationMap();
         this.characterMap = new CharacterMap();
@@ -59,20 +76,65 @@ public class World implements Serializable {
         }
 
         // Generate political states based on the races in default data
-        PoliticalStateGenerator.generateStates(this.politicalStateMap, defaultData.getRaces());
-        RegionGenerator.generateContinent(this);
+        Random random = new Random(seed);
+        PoliticalStateGenerator.generateStates(this.politicalStateMap, defaultData.getRaces(), random);
+        RegionGenerator.generateContinent(this, random.nextLong());
     }
 
     public static World loadWorld(String filePath) {
         try {
             String jsonContent = new String(Files.readAllBytes(Paths.get(filePath)));
             Gson gson = new Gson();
-            return gson.fromJson(jsonContent, World.class);
+            World rVal = gson.fromJson(jsonContent, World.class);
+            rVal.regionMap.rebuildIndices();
+            rVal.locationMap.rebuildIndices();
+            if (rVal.organizationMap != null) {
+                rVal.organizationMap.rebuildIndices();
+            }
+            return rVal;
         } catch (Exception e) {
             throw new RuntimeException("Failed to load world from file: " + filePath, e);
         }
     }
 
+    /**
+     * Writes the world to a json file, ie to edit it by hand
+     * @param filePath The file
+     */
+    public void saveWorld(String filePath) {
+        try {
+            this.locationMap.syncSavedNeighbors();
+            Files.writeString(Paths.get(filePath), new Gson().toJson(this));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save world to file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Writes a binary snapshot of the world, which loads much faster than json
+     * @param filePath The file
+     */
+    public void saveSnapshot(String filePath) {
+        try {
+            WorldSnapshot.write(this, Paths.get(filePath));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save world snapshot to file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Loads a world from a binary snapshot
+     * @param filePath The file
+     * @return The world
+     */
+    public static World loadSnapshot(String filePath) {
+        try {
+            return WorldSnapshot.read(Paths.get(filePath));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load world snapshot from file: " + filePath, e);
+        }
+    }
+
     /**
      * Gets the region map
      * @return The region map
@@ -120,4 +182,20 @@ public class World implements Serializable {
     public PoliticalStateMap getPoliticalStateMap() {
         return politicalStateMap;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Sets the seed the world was generated from, ie when loading a snapshot
+     * @param seed The seed
+     */
+    void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Gets the seed the world was generated from
+     * @return The seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+}
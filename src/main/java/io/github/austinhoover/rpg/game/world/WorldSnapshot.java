@@ -0,0 +1,119 @@
+package io.github.austinhoover.rpg.game.world;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of a whole world, for saving and reloading quickly.
+ * The file starts with a magic number and a format version, followed by one tagged section per map and the location graph as compressed sparse rows.
+ * Snapshots are written to a temporary file that then replaces the old one, so a failed save never leaves a half written world behind.
+ * They are read by mapping the file into memory, so nothing but the entities themselves is copied onto the heap.
+ */
+public class WorldSnapshot {
+
+    /**
+     * Marks a file as a world snapshot, "RPGW"
+     */
+    private static final int MAGIC = 0x57475052;
+
+    /**
+     * Version of the format written, bumped whenever the layout changes
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Tags at the start of each section, in the order they are written
+     */
+    private static final int SECTION_WORLD = 1;
+    private static final int SECTION_RACES = 2;
+    private static final int SECTION_POLITICAL_STATES = 3;
+    private static final int SECTION_REGIONS = 4;
+    private static final int SECTION_LOCATIONS = 5;
+    private static final int SECTION_CHARACTERS = 6;
+    private static final int SECTION_ORGANIZATIONS = 7;
+    private static final int SECTION_END = 0x444E45;
+
+    /**
+     * Writes a snapshot of a world
+     * @param world The world
+     * @param path The file to write, replaced if it exists
+     * @throws IOException If the file can't be written
+     */
+    public static void write(World world, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (SnapshotWriter out = new SnapshotWriter(temp)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(SECTION_WORLD);
+            out.writeLong(world.getSeed());
+            out.writeInt(SECTION_RACES);
+            world.getRaceMap().writeSnapshot(out);
+            out.writeInt(SECTION_POLITICAL_STATES);
+            world.getPoliticalStateMap().writeSnapshot(out);
+            out.writeInt(SECTION_REGIONS);
+            world.getRegionMap().writeSnapshot(out);
+            out.writeInt(SECTION_LOCATIONS);
+            world.getLocationMap().writeSnapshot(out);
+            out.writeInt(SECTION_CHARACTERS);
+            world.getCharacterMap().writeSnapshot(out);
+            out.writeInt(SECTION_ORGANIZATIONS);
+            world.getOrganizationMap().writeSnapshot(out);
+            out.writeInt(SECTION_END);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot of a world
+     * @param path The file
+     * @return The world
+     * @throws IOException If the file can't be read, isn't a world snapshot, or is a version this build can't read
+     */
+    public static World read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("World snapshot too large to map: " + channel.size() + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        SnapshotReader in = new SnapshotReader(buffer);
+        try {
+            in.expect(MAGIC, "world snapshot header");
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported world snapshot version " + version + ", expected " + VERSION);
+            }
+            World rVal = new World();
+            in.expect(SECTION_WORLD, "world section");
+            rVal.setSeed(in.readLong());
+            in.expect(SECTION_RACES, "race section");
+            rVal.getRaceMap().readSnapshot(in);
+            in.expect(SECTION_POLITICAL_STATES, "political state section");
+            rVal.getPoliticalStateMap().readSnapshot(in);
+            in.expect(SECTION_REGIONS, "region section");
+            rVal.getRegionMap().readSnapshot(in);
+            in.expect(SECTION_LOCATIONS, "location section");
+            rVal.getLocationMap().readSnapshot(in);
+            in.expect(SECTION_CHARACTERS, "character section");
+            rVal.getCharacterMap().readSnapshot(in);
+            in.expect(SECTION_ORGANIZATIONS, "organization section");
+            rVal.getOrganizationMap().readSnapshot(in);
+            in.expect(SECTION_END, "end of snapshot");
+            return rVal;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("World snapshot is truncated: " + path, e);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("World snapshot is corrupt: " + path, e);
+        }
+    }
+}
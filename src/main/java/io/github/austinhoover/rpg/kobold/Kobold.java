@@ -1,17 +1,24 @@
 package io.github.austinhoover.rpg.kobold;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.http.HttpRequest.BodyPublishers;
-import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 
+import io.github.austinhoover.rpg.kobold.response.KoboldModelResponse;
 import io.github.austinhoover.rpg.kobold.response.KoboldResponseBody;
+import io.github.austinhoover.rpg.kobold.response.KoboldStreamEvent;
 import io.github.austinhoover.rpg.process.ProcessManager;
 
 /**
@@ -19,11 +26,46 @@ import io.github.austinhoover.rpg.process.ProcessManager;
  */
 public class Kobold {
     
+    /**
+     * Name of the service that runs koboldcpp
+     */
+    private static final String SERVICE_NAME = "kobold";
+
     /**
      * Endpoint for generating
      */
     private static final String ENDPOINT_GENERATE = "/api/v1/generate";
 
+    /**
+     * Endpoint for generating with the tokens streamed back as server-sent events
+     */
+    private static final String ENDPOINT_GENERATE_STREAM = "/api/extra/generate/stream";
+
+    /**
+     * Endpoint for aborting a generation
+     */
+    private static final String ENDPOINT_ABORT = "/api/extra/abort";
+
+    /**
+     * Prefix of the keys generations are sent with
+     */
+    private static final String GENKEY_PREFIX = "rpg-";
+
+    /**
+     * Endpoint describing the loaded model
+     */
+    private static final String ENDPOINT_MODEL = "/api/v1/model";
+
+    /**
+     * Number of responses the response cache keeps in memory
+     */
+    private static final int RESPONSE_CACHE_MEMORY_CAPACITY = 512;
+
+    /**
+     * Prefix of the data lines of a server-sent event
+     */
+    private static final String SSE_DATA_PREFIX = "data:";
+
     /**
      * Default local address
      */
@@ -35,14 +77,54 @@ public class Kobold {
     private static final int DEFAULT_PORT = 5001;
 
     /**
-     * Address to connect to
+     * The instances generations are routed to
+     */
+    private final KoboldPool pool;
+
+    /**
+     * Sends the http requests
+     */
+    private final KoboldTransport transport;
+
+    /**
+     * Decides which generation gets the endpoint next
      */
-    private String address = DEFAULT_LOCAL_ADDRESS;
+    private final KoboldScheduler scheduler = new KoboldScheduler(1);
 
     /**
-     * Port to connect at
+     * Cache of responses to requests that opted in to caching
      */
-    private Integer port = DEFAULT_PORT;
+    private final KoboldResponseCache responseCache = new KoboldResponseCache(Paths.get(".cache", "llm"), RESPONSE_CACHE_MEMORY_CAPACITY);
+
+    /**
+     * Identity of the model loaded by the endpoint, once known
+     */
+    private volatile String modelIdentity;
+
+    /**
+     * Deterministic generations currently waiting on the endpoint, keyed by their serialized body
+     */
+    private final Map<String, SharedGeneration> inFlight = new ConcurrentHashMap<String, SharedGeneration>();
+
+    /**
+     * Number of deterministic generations that were sent to the endpoint
+     */
+    private final AtomicLong coalescableRequestCount = new AtomicLong();
+
+    /**
+     * Number of generations that were answered by an identical in-flight generation instead of the endpoint
+     */
+    private final AtomicLong coalescedRequestCount = new AtomicLong();
+
+    /**
+     * Number of generations that were aborted
+     */
+    private final AtomicLong abortedRequestCount = new AtomicLong();
+
+    /**
+     * Counter used to create generation keys
+     */
+    private final AtomicLong genkeyCounter = new AtomicLong();
 
     /**
      * Creates a kobold connection
@@ -50,14 +132,38 @@ public class Kobold {
      * @param port The port
      */
     public Kobold(String address, int port){
-        this.address = address;
-        this.port = port;
+        this(address, List.of(port));
     }
 
     /**
-     * Creates a kobold connection using default connection settings
+     * Creates a kobold connection over several instances serving the same model
+     * @param address The address
+     * @param ports The port of each instance
+     */
+    public Kobold(String address, List<Integer> ports){
+        this(address, ports, KoboldTransport.INSTANCE);
+    }
+
+    /**
+     * Creates a kobold connection over several instances, sending requests through a given transport
+     * @param address The address
+     * @param ports The port of each instance
+     * @param transport The transport
+     */
+    Kobold(String address, List<Integer> ports, KoboldTransport transport){
+        this.pool = new KoboldPool(address, () -> ports);
+        this.transport = transport;
+    }
+
+    /**
+     * Creates a kobold connection to the instances of the managed kobold service, following them as they fail over or restart
      */
     public Kobold(){
+        this.pool = new KoboldPool(DEFAULT_LOCAL_ADDRESS, () -> {
+            List<Integer> ports = ProcessManager.INSTANCE.getServicePorts(SERVICE_NAME);
+            return ports.isEmpty() ? List.of(DEFAULT_PORT) : ports;
+        });
+        this.transport = KoboldTransport.INSTANCE;
     }
 
     /**
@@ -70,32 +176,347 @@ public class Kobold {
     }
 
     /**
-     * Generates text based on a prompt
+     * Generates text based on a prompt, blocking until the generation completes
      * @param requestBody The request body
      * @return The resulting text
      */
     public String generate(KoboldRequestBody requestBody){
-        // Check if Kobold service is running, start it if not
-        if (!ProcessManager.INSTANCE.isServiceRunning("kobold")) {
-            ProcessManager.INSTANCE.startService("kobold");
-        }
+        return Kobold.await(this.generateAsync(requestBody));
+    }
 
-        String rVal = null;
-        HttpClient httpClient = HttpClient.newHttpClient();
-        Gson gson = new Gson();
-        String bodyText = gson.toJson(requestBody);
-        HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://" + this.address + ":" + this.port + ENDPOINT_GENERATE)).POST(BodyPublishers.ofString(bodyText)).build();
+    /**
+     * Generates text based on a prompt, blocking until the generation completes and passing each token to a consumer as it arrives
+     * @param requestBody The request body
+     * @param onToken Called with each token as it arrives
+     * @return The full resulting text
+     */
+    public String generateStream(KoboldRequestBody requestBody, Consumer<String> onToken){
+        return Kobold.await(this.generateStreamAsync(requestBody, onToken));
+    }
+
+    /**
+     * Blocks until a generation completes, cancelling it if the waiting thread is interrupted
+     * @param future The generation
+     * @return The resulting text
+     */
+    private static String await(CompletableFuture<String> future){
         try {
-            HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
-            String responseRaw = response.body();
-            KoboldResponseBody responseBody = gson.fromJson(responseRaw, KoboldResponseBody.class);
-            rVal = responseBody.getResults().get(0).getText();
-        } catch (IOException e) {
-            throw new Error(e);
+            return future.get();
         } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
             throw new Error(e);
+        } catch (ExecutionException e) {
+            throw new Error(e.getCause());
+        }
+    }
+
+    /**
+     * Generates text based on a prompt without blocking the caller
+     * @param requestBody The request body
+     * @return A future that completes with the resulting text
+     */
+    public CompletableFuture<String> generateAsync(KoboldRequestBody requestBody){
+        String bodyText = this.transport.getGson().toJson(requestBody);
+        if(!requestBody.isCacheable()){
+            return this.generateCoalesced(requestBody, bodyText);
+        }
+        return Kobold.thenComposeCancellable(this.fetchModelIdentity(), (String model) -> {
+            if(model == null){
+                return this.generateCoalesced(requestBody, bodyText);
+            }
+            String key = KoboldResponseCache.computeKey(model, bodyText);
+            String cached = this.responseCache.get(key);
+            if(cached != null){
+                return CompletableFuture.completedFuture(cached);
+            }
+            CompletableFuture<String> generation = this.generateCoalesced(requestBody, bodyText);
+            generation.thenAccept((String text) -> this.responseCache.put(key, text));
+            return generation;
+        });
+    }
+
+    /**
+     * Generates text, sharing the generation with any identical deterministic generation already in flight
+     * @param requestBody The request body
+     * @param bodyText The serialized request body
+     * @return A future that completes with the resulting text
+     */
+    private CompletableFuture<String> generateCoalesced(KoboldRequestBody requestBody, String bodyText){
+        if(!requestBody.isDeterministic()){
+            return this.send(requestBody.getPriority(), bodyText);
+        }
+
+        // Identical deterministic requests produce identical text, so share one generation between them
+        SharedGeneration shared = new SharedGeneration();
+        SharedGeneration existing = this.inFlight.putIfAbsent(bodyText, shared);
+        if(existing != null && existing.subscribe()){
+            this.coalescedRequestCount.incrementAndGet();
+            return existing.newSubscriber();
+        }
+        if(existing != null){
+            // every subscriber of the existing generation gave up on it, replace it
+            this.inFlight.replace(bodyText, existing, shared);
+        }
+        shared.subscribe();
+        CompletableFuture<String> subscriber = shared.newSubscriber();
+        this.coalescableRequestCount.incrementAndGet();
+        shared.result.whenComplete((String text, Throwable error) -> {
+            this.inFlight.remove(bodyText, shared);
+        });
+        shared.start(this.send(requestBody.getPriority(), bodyText));
+        return subscriber;
+    }
+
+    /**
+     * Sends a generation to the endpoint once the scheduler gives it a slot
+     * @param priority The priority class of the generation
+     * @param bodyText The serialized request body
+     * @return A future that completes with the resulting text. Cancelling it aborts the generation.
+     */
+    private CompletableFuture<String> send(KoboldPriority priority, String bodyText){
+        this.ensureServiceStarted();
+
+        return this.scheduler.submit(priority, () -> {
+            CompletableFuture<String> generation = new CompletableFuture<String>();
+            this.sendAttempt(generation, bodyText, this.pool.size());
+            return generation;
+        });
+    }
+
+    /**
+     * Sends a generation to the least loaded instance, moving on to another instance if this one can't be reached
+     * @param generation Completed with the resulting text. Cancelling it aborts the generation.
+     * @param bodyText The serialized request body
+     * @param attemptsLeft Number of instances that may still be tried
+     */
+    private void sendAttempt(CompletableFuture<String> generation, String bodyText, int attemptsLeft){
+        KoboldTransport transport = this.transport;
+        Gson gson = transport.getGson();
+        KoboldEndpoint endpoint = this.pool.acquire();
+        String genkey = this.nextGenkey();
+        CompletableFuture<String> exchange = transport.postAsync(endpoint.getUri(ENDPOINT_GENERATE), this.withGenkey(bodyText, genkey));
+        CompletableFuture<String> attempt = exchange.thenApply((String responseRaw) -> {
+            KoboldResponseBody responseBody = gson.fromJson(responseRaw, KoboldResponseBody.class);
+            return responseBody.getResults().get(0).getText();
+        });
+        generation.whenComplete((String text, Throwable error) -> {
+            if(generation.isCancelled()){
+                attempt.cancel(true);
+            }
+        });
+        attempt.whenComplete((String text, Throwable error) -> {
+            this.pool.release(endpoint, error);
+            if(error == null){
+                generation.complete(text);
+                return;
+            }
+            // the http client cancels the exchange before the generation, so a cancel can surface as any failure
+            exchange.cancel(true);
+            if(!KoboldPool.isUnreachable(error)){
+                this.abort(endpoint, genkey);
+            } else if(attemptsLeft > 1 && !generation.isDone()){
+                this.sendAttempt(generation, bodyText, attemptsLeft - 1);
+                return;
+            }
+            generation.completeExceptionally(error);
+        });
+    }
+
+    /**
+     * Generates text based on a prompt, passing each token to a consumer as soon as kobold produces it
+     * @param requestBody The request body
+     * @param onToken Called with each token as it arrives
+     * @return A future that completes with the full resulting text
+     */
+    public CompletableFuture<String> generateStreamAsync(KoboldRequestBody requestBody, Consumer<String> onToken){
+        String bodyText = this.transport.getGson().toJson(requestBody);
+        if(!requestBody.isCacheable()){
+            return this.sendStream(requestBody.getPriority(), bodyText, onToken);
+        }
+        return Kobold.thenComposeCancellable(this.fetchModelIdentity(), (String model) -> {
+            if(model == null){
+                return this.sendStream(requestBody.getPriority(), bodyText, onToken);
+            }
+            String key = KoboldResponseCache.computeKey(model, bodyText);
+            String cached = this.responseCache.get(key);
+            if(cached != null){
+                onToken.accept(cached);
+                return CompletableFuture.completedFuture(cached);
+            }
+            CompletableFuture<String> generation = this.sendStream(requestBody.getPriority(), bodyText, onToken);
+            generation.thenAccept((String text) -> this.responseCache.put(key, text));
+            return generation;
+        });
+    }
+
+    /**
+     * Sends a streaming generation to the endpoint once the scheduler gives it a slot
+     * @param priority The priority class of the generation
+     * @param bodyText The serialized request body
+     * @param onToken Called with each token as it arrives
+     * @return A future that completes with the full resulting text
+     */
+    private CompletableFuture<String> sendStream(KoboldPriority priority, String bodyText, Consumer<String> onToken){
+        this.ensureServiceStarted();
+
+        return this.scheduler.submit(priority, () -> {
+            CompletableFuture<String> generation = new CompletableFuture<String>();
+            this.sendStreamAttempt(generation, bodyText, onToken, this.pool.size());
+            return generation;
+        });
+    }
+
+    /**
+     * Sends a streaming generation to the least loaded instance, moving on to another instance if this one can't be reached before any token arrived
+     * @param generation Completed with the full resulting text. Cancelling it aborts the generation.
+     * @param bodyText The serialized request body
+     * @param onToken Called with each token as it arrives
+     * @param attemptsLeft Number of instances that may still be tried
+     */
+    private void sendStreamAttempt(CompletableFuture<String> generation, String bodyText, Consumer<String> onToken, int attemptsLeft){
+        KoboldTransport transport = this.transport;
+        Gson gson = transport.getGson();
+        KoboldEndpoint endpoint = this.pool.acquire();
+        String genkey = this.nextGenkey();
+        StringBuilder text = new StringBuilder();
+        CompletableFuture<Void> exchange = transport.postStreamAsync(endpoint.getUri(ENDPOINT_GENERATE_STREAM), this.withGenkey(bodyText, genkey), (String line) -> {
+            if(!line.startsWith(SSE_DATA_PREFIX)){
+                return;
+            }
+            KoboldStreamEvent event = gson.fromJson(line.substring(SSE_DATA_PREFIX.length()).trim(), KoboldStreamEvent.class);
+            if(event != null && event.getToken() != null && !event.getToken().isEmpty()){
+                text.append(event.getToken());
+                onToken.accept(event.getToken());
+            }
+        });
+        generation.whenComplete((String result, Throwable error) -> {
+            if(generation.isCancelled()){
+                exchange.cancel(true);
+            }
+        });
+        exchange.whenComplete((Void ignored, Throwable error) -> {
+            this.pool.release(endpoint, error);
+            if(error == null){
+                generation.complete(text.toString());
+                return;
+            }
+            // also covers the consumer failing part way through, ie the player disconnecting
+            exchange.cancel(true);
+            if(!KoboldPool.isUnreachable(error)){
+                this.abort(endpoint, genkey);
+            } else if(attemptsLeft > 1 && text.length() == 0 && !generation.isDone()){
+                this.sendStreamAttempt(generation, bodyText, onToken, attemptsLeft - 1);
+                return;
+            }
+            generation.completeExceptionally(error);
+        });
+    }
+
+    /**
+     * Asks an instance to stop a generation
+     * @param endpoint The instance running the generation
+     * @param genkey The key the generation was sent with
+     */
+    private void abort(KoboldEndpoint endpoint, String genkey){
+        this.abortedRequestCount.incrementAndGet();
+        KoboldTransport transport = this.transport;
+        String bodyText = transport.getGson().toJson(Map.of("genkey", genkey));
+        transport.postAsync(endpoint.getUri(ENDPOINT_ABORT), bodyText).exceptionally((Throwable error) -> {
+            System.err.println("Error aborting kobold generation " + genkey + ": " + error.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Creates a key that identifies a generation to the endpoint, so it can be aborted
+     * @return The key
+     */
+    private String nextGenkey(){
+        return GENKEY_PREFIX + this.genkeyCounter.incrementAndGet();
+    }
+
+    /**
+     * Adds a generation key to a serialized request body
+     * @param bodyText The serialized request body
+     * @param genkey The generation key
+     * @return The serialized request body with the key
+     */
+    private String withGenkey(String bodyText, String genkey){
+        JsonObject json = JsonParser.parseString(bodyText).getAsJsonObject();
+        json.addProperty("genkey", genkey);
+        return this.transport.getGson().toJson(json);
+    }
+
+    /**
+     * Like {@link CompletableFuture#thenCompose}, except that cancelling the result also cancels the composed future
+     * @param stage The first stage
+     * @param next Creates the composed future from the first stage's result
+     * @return The result
+     */
+    private static <T> CompletableFuture<String> thenComposeCancellable(CompletableFuture<T> stage, Function<T, CompletableFuture<String>> next){
+        CompletableFuture<String> result = new CompletableFuture<String>();
+        AtomicReference<CompletableFuture<String>> composed = new AtomicReference<CompletableFuture<String>>();
+        stage.whenComplete((T value, Throwable error) -> {
+            if(error != null){
+                result.completeExceptionally(error);
+                return;
+            }
+            CompletableFuture<String> future;
+            try {
+                future = next.apply(value);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            composed.set(future);
+            if(result.isCancelled()){
+                future.cancel(true);
+            }
+            future.whenComplete((String text, Throwable composedError) -> {
+                if(composedError != null){
+                    result.completeExceptionally(composedError);
+                } else {
+                    result.complete(text);
+                }
+            });
+        });
+        result.whenComplete((String text, Throwable error) -> {
+            CompletableFuture<String> future = composed.get();
+            if(result.isCancelled() && future != null){
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Gets the identity of the model loaded by the endpoint
+     * @return A future that completes with the identity, or null if the endpoint couldn't be asked
+     */
+    private CompletableFuture<String> fetchModelIdentity(){
+        String known = this.modelIdentity;
+        if(known != null){
+            return CompletableFuture.completedFuture(known);
         }
-        return rVal;
+        Gson gson = this.transport.getGson();
+        return this.ensureServiceStarted().thenCompose((Boolean ready) -> {
+            KoboldEndpoint endpoint = this.pool.acquire();
+            CompletableFuture<String> exchange = this.transport.getAsync(endpoint.getUri(ENDPOINT_MODEL));
+            exchange.whenComplete((String responseRaw, Throwable error) -> this.pool.release(endpoint, error));
+            return exchange;
+        }).handle((String responseRaw, Throwable error) -> {
+            if(error != null){
+                System.err.println("Error fetching kobold model, skipping response cache: " + error.getMessage());
+                return null;
+            }
+            KoboldModelResponse response = gson.fromJson(responseRaw, KoboldModelResponse.class);
+            if(response == null || response.getResult() == null){
+                return null;
+            }
+            this.modelIdentity = response.getResult();
+            return this.modelIdentity;
+        });
     }
 
     /**
@@ -104,10 +525,228 @@ public class Kobold {
      * @return The response
      */
     public String request(String request){
+        return this.generate(this.createRequestBody(request));
+    }
+
+    /**
+     * Requests something from the kobold api with a given priority
+     * @param request The request
+     * @param priority The priority class of the request
+     * @return The response
+     */
+    public String request(String request, KoboldPriority priority){
+        KoboldRequestBody requestBody = this.createRequestBody(request);
+        requestBody.setPriority(priority);
+        return this.generate(requestBody);
+    }
+
+    /**
+     * Requests something from the kobold api, streaming the response to a consumer as it is generated
+     * @param request The request
+     * @param onToken Called with each token as it arrives
+     * @return The full response
+     */
+    public String requestStream(String request, Consumer<String> onToken){
+        return this.generateStream(this.createRequestBody(request), onToken);
+    }
+
+    /**
+     * Requests something from the kobold api using greedy sampling, serving the response from the response cache when possible.
+     * Only use for requests that are a pure function of their text.
+     * @param request The request
+     * @return The response
+     */
+    public String requestCached(String request){
+        return this.requestCached(request, KoboldPriority.INTERACTIVE);
+    }
+
+    /**
+     * Requests something from the kobold api using greedy sampling and the response cache, with a given priority
+     * @param request The request
+     * @param priority The priority class of the request
+     * @return The response
+     */
+    public String requestCached(String request, KoboldPriority priority){
+        KoboldRequestBody requestBody = this.createRequestBody(request);
+        requestBody.setTemperature(0.0);
+        requestBody.setCacheable(true);
+        requestBody.setPriority(priority);
+        return this.generate(requestBody);
+    }
+
+    /**
+     * Requests something from the kobold api without blocking the caller
+     * @param request The request
+     * @return A future that completes with the response
+     */
+    public CompletableFuture<String> requestAsync(String request){
+        return this.generateAsync(this.createRequestBody(request));
+    }
+
+    /**
+     * Gets the number of deterministic generations that were sent to the endpoint
+     * @return The number of generations
+     */
+    public long getCoalescableRequestCount(){
+        return this.coalescableRequestCount.get();
+    }
+
+    /**
+     * Gets the number of generations that shared an identical in-flight generation instead of hitting the endpoint
+     * @return The number of generations
+     */
+    public long getCoalescedRequestCount(){
+        return this.coalescedRequestCount.get();
+    }
+
+    /**
+     * Gets the number of generations that were aborted because nobody was waiting on them anymore
+     * @return The number of generations
+     */
+    public long getAbortedRequestCount(){
+        return this.abortedRequestCount.get();
+    }
+
+    /**
+     * Gets the scheduler that decides which generation gets the endpoint next
+     * @return The scheduler
+     */
+    public KoboldScheduler getScheduler(){
+        return this.scheduler;
+    }
+
+    /**
+     * Gets the instances generations are routed to
+     * @return The pool of instances
+     */
+    public KoboldPool getPool(){
+        return this.pool;
+    }
+
+    /**
+     * Gets the response cache
+     * @return The response cache
+     */
+    public KoboldResponseCache getResponseCache(){
+        return this.responseCache;
+    }
+
+    /**
+     * Starts the kobold service if it is not already running
+     * @return A future that completes once the service is ready to accept work
+     */
+    private CompletableFuture<Boolean> ensureServiceStarted(){
+        CompletableFuture<Boolean> ready = ProcessManager.INSTANCE.startServiceAndAwaitReady(SERVICE_NAME);
+        if (!ready.isDone()) {
+            // hold generations back while the model loads instead of letting them fail
+            this.scheduler.awaitBackend(ready);
+        }
+        return ready;
+    }
+
+    /**
+     * Wraps a request in the request/response framing used by {@link #request(String)}
+     * @param request The request
+     * @return The request body
+     */
+    public KoboldRequestBody createRequestBody(String request){
         String bodyText = "Request:\n" + request + "\nResponse:\n";
         KoboldRequestBody requestBody = new KoboldRequestBody(bodyText);
         requestBody.setStopSequence(Arrays.asList(new String[]{"\nRequest:","\nResponse:","\nRequest "}));
-        return this.generate(requestBody);
+        return requestBody;
+    }
+
+    /**
+     * A deterministic generation shared by every caller that asked for it while it was in flight.
+     * The generation is aborted once every caller has cancelled.
+     */
+    private static class SharedGeneration {
+
+        /**
+         * Completes with the generation's result
+         */
+        private final CompletableFuture<String> result = new CompletableFuture<String>();
+
+        /**
+         * The generation, once started
+         */
+        private CompletableFuture<String> generation;
+
+        /**
+         * Number of callers still waiting on the generation
+         */
+        private int subscribers = 0;
+
+        /**
+         * Whether every caller has given up on the generation
+         */
+        private boolean abandoned = false;
+
+        /**
+         * Adds a caller
+         * @return false if the generation was already abandoned
+         */
+        private synchronized boolean subscribe(){
+            if(abandoned){
+                return false;
+            }
+            subscribers++;
+            return true;
+        }
+
+        /**
+         * Creates the future a caller waits on
+         * @return The future
+         */
+        private CompletableFuture<String> newSubscriber(){
+            CompletableFuture<String> subscriber = this.result.copy();
+            subscriber.whenComplete((String text, Throwable error) -> {
+                if(subscriber.isCancelled()){
+                    this.unsubscribe();
+                }
+            });
+            return subscriber;
+        }
+
+        /**
+         * Sets the generation everyone is waiting on
+         * @param generation The generation
+         */
+        private void start(CompletableFuture<String> generation){
+            boolean cancel;
+            synchronized(this){
+                this.generation = generation;
+                cancel = abandoned;
+            }
+            if(cancel){
+                generation.cancel(true);
+            }
+            generation.whenComplete((String text, Throwable error) -> {
+                if(error != null){
+                    this.result.completeExceptionally(error);
+                } else {
+                    this.result.complete(text);
+                }
+            });
+        }
+
+        /**
+         * Removes a caller that cancelled, aborting the generation if it was the last one
+         */
+        private void unsubscribe(){
+            CompletableFuture<String> generation;
+            synchronized(this){
+                subscribers--;
+                if(subscribers > 0){
+                    return;
+                }
+                abandoned = true;
+                generation = this.generation;
+            }
+            if(generation != null){
+                generation.cancel(true);
+            }
+        }
     }
 
 }
@@ -0,0 +1,126 @@
+package io.github.austinhoover.rpg.kobold;
+
+import java.net.URI;
+
+/**
+ * One koboldcpp instance that generations can be routed to
+ */
+public class KoboldEndpoint {
+
+    /**
+     * How long an instance is avoided after its first failure, doubled for each further failure in a row
+     */
+    private static final long UNHEALTHY_BACKOFF_MS = 1000;
+
+    /**
+     * Longest an instance is avoided for
+     */
+    private static final long UNHEALTHY_BACKOFF_MAX_MS = 30 * 1000;
+
+    /**
+     * Address of the instance
+     */
+    private final String address;
+
+    /**
+     * Port of the instance
+     */
+    private final int port;
+
+    /**
+     * Number of requests sent to the instance that have not finished yet
+     */
+    private int outstanding = 0;
+
+    /**
+     * Number of requests the instance has finished
+     */
+    private long served = 0;
+
+    /**
+     * Number of requests in a row that failed to reach the instance
+     */
+    private int consecutiveFailures = 0;
+
+    /**
+     * Time until which the instance is avoided
+     */
+    private long unhealthyUntil = 0;
+
+    /**
+     * Creates an endpoint
+     * @param address Address of the instance
+     * @param port Port of the instance
+     */
+    public KoboldEndpoint(String address, int port){
+        this.address = address;
+        this.port = port;
+    }
+
+    /**
+     * Gets the uri of an api path on this instance
+     * @param path The path
+     * @return The uri
+     */
+    public URI getUri(String path){
+        return URI.create("http://" + this.address + ":" + this.port + path);
+    }
+
+    /**
+     * Records that a request was sent to the instance
+     */
+    synchronized void begin(){
+        outstanding++;
+    }
+
+    /**
+     * Records that a request to the instance finished
+     * @param unreachable Whether the request failed because the instance couldn't be reached
+     * @param now The current time in milliseconds
+     */
+    synchronized void end(boolean unreachable, long now){
+        outstanding--;
+        if(unreachable){
+            consecutiveFailures++;
+            long backoff = Math.min(UNHEALTHY_BACKOFF_MS << Math.min(consecutiveFailures - 1, 20), UNHEALTHY_BACKOFF_MAX_MS);
+            unhealthyUntil = now + backoff;
+        } else {
+            served++;
+            consecutiveFailures = 0;
+            unhealthyUntil = 0;
+        }
+    }
+
+    /**
+     * Checks whether the instance should be routed to
+     * @param now The current time in milliseconds
+     * @return true if the instance is healthy
+     */
+    public synchronized boolean isHealthy(long now){
+        return now >= unhealthyUntil;
+    }
+
+    public String getAddress(){
+        return address;
+    }
+
+    public int getPort(){
+        return port;
+    }
+
+    public synchronized int getOutstanding(){
+        return outstanding;
+    }
+
+    public synchronized long getServed(){
+        return served;
+    }
+
+    public synchronized int getConsecutiveFailures(){
+        return consecutiveFailures;
+    }
+
+    synchronized long getUnhealthyUntil(){
+        return unhealthyUntil;
+    }
+}
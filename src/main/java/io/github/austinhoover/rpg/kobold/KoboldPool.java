@@ -0,0 +1,126 @@
+package io.github.austinhoover.rpg.kobold;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Routes requests across the koboldcpp instances serving the same model.
+ * Each request goes to the healthy instance with the fewest outstanding requests. An instance that can't be reached is avoided for a while,
+ * and if every instance is unhealthy the one that has been avoided longest is tried anyway.
+ */
+public class KoboldPool {
+
+    /**
+     * Address of the instances
+     */
+    private final String address;
+
+    /**
+     * Supplies the ports currently serving
+     */
+    private final Supplier<List<Integer>> ports;
+
+    /**
+     * Endpoint of each port seen so far, kept so their load and health survive the set of ports changing
+     */
+    private final Map<Integer, KoboldEndpoint> endpoints = new ConcurrentHashMap<Integer, KoboldEndpoint>();
+
+    /**
+     * Where the search for the least loaded instance starts, rotated so ties are spread out
+     */
+    private int nextStart = 0;
+
+    /**
+     * Creates a pool
+     * @param address Address of the instances
+     * @param ports Supplies the ports currently serving; called on every request so instances can come and go
+     */
+    public KoboldPool(String address, Supplier<List<Integer>> ports){
+        this.address = address;
+        this.ports = ports;
+    }
+
+    /**
+     * Picks the instance to send a request to and counts the request against it. Must be paired with {@link #release}.
+     * @return The instance
+     */
+    public KoboldEndpoint acquire(){
+        List<KoboldEndpoint> candidates = this.getEndpoints();
+        long now = System.currentTimeMillis();
+        KoboldEndpoint rVal = null;
+        if(candidates.isEmpty()){
+            throw new IllegalStateException("No kobold instances to send to");
+        }
+        synchronized(this){
+            int count = candidates.size();
+            for(int i = 0; i < count; i++){
+                KoboldEndpoint endpoint = candidates.get((nextStart + i) % count);
+                if(!endpoint.isHealthy(now)){
+                    continue;
+                }
+                if(rVal == null || endpoint.getOutstanding() < rVal.getOutstanding()){
+                    rVal = endpoint;
+                }
+            }
+            if(rVal == null){
+                // nothing is healthy, try whichever comes back soonest rather than failing outright
+                for(KoboldEndpoint endpoint : candidates){
+                    if(rVal == null || endpoint.getUnhealthyUntil() < rVal.getUnhealthyUntil()){
+                        rVal = endpoint;
+                    }
+                }
+            }
+            nextStart = (nextStart + 1) % count;
+            rVal.begin();
+        }
+        return rVal;
+    }
+
+    /**
+     * Records that a request finished
+     * @param endpoint The instance the request was sent to
+     * @param error The error the request failed with, or null if it succeeded
+     */
+    public void release(KoboldEndpoint endpoint, Throwable error){
+        endpoint.end(KoboldPool.isUnreachable(error), System.currentTimeMillis());
+    }
+
+    /**
+     * Gets the instances currently serving
+     * @return The instances
+     */
+    public List<KoboldEndpoint> getEndpoints(){
+        List<Integer> current = this.ports.get();
+        List<KoboldEndpoint> rVal = new ArrayList<KoboldEndpoint>(current.size());
+        for(Integer port : current){
+            rVal.add(this.endpoints.computeIfAbsent(port, (Integer key) -> new KoboldEndpoint(this.address, key)));
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the number of instances currently serving
+     * @return The number of instances
+     */
+    public int size(){
+        return this.ports.get().size();
+    }
+
+    /**
+     * Checks whether a request failed because its instance couldn't be reached, as opposed to being cancelled or rejected
+     * @param error The error, possibly wrapped
+     * @return true if the instance couldn't be reached
+     */
+    public static boolean isUnreachable(Throwable error){
+        while((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null){
+            error = error.getCause();
+        }
+        return error instanceof IOException;
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.austinhoover.rpg.kobold;
+
+/**
+ * Priority class of a generation, in the order the scheduler serves them
+ */
+public enum KoboldPriority {
+
+    /**
+     * Part of a turn a player is waiting on
+     */
+    INTERACTIVE(16),
+
+    /**
+     * Work the player will probably need soon (ie refilling a pool that is running low)
+     */
+    PREFETCH(64),
+
+    /**
+     * Bulk generation nobody is waiting on (ie world generation, warming caches)
+     */
+    BACKGROUND(256);
+
+    /**
+     * Maximum number of generations of this class that may wait for a slot
+     */
+    private final int queueCapacity;
+
+    /**
+     * Constructor
+     * @param queueCapacity Maximum number of generations of this class that may wait for a slot
+     */
+    private KoboldPriority(int queueCapacity){
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Gets the maximum number of generations of this class that may wait for a slot
+     * @return The capacity
+     */
+    public int getQueueCapacity(){
+        return queueCapacity;
+    }
+
+}
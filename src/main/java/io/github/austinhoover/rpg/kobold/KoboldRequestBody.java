@@ -37,6 +37,16 @@ public class KoboldRequestBody {
 
     private boolean use_default_badwordsids;
 
+    /**
+     * Whether the response may be served from (and stored in) the response cache. Not sent to kobold.
+     */
+    private transient boolean cacheable;
+
+    /**
+     * Priority class the generation is scheduled with. Not sent to kobold.
+     */
+    private transient KoboldPriority priority = KoboldPriority.INTERACTIVE;
+
     /**
      * Generic constructor
      */
@@ -170,4 +180,28 @@ public class KoboldRequestBody {
         this.use_default_badwordsids = use_default_badwordsids;
     }
 
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    public void setCacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    public KoboldPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(KoboldPriority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Checks whether this request samples greedily, ie always produces the same text for the same prompt
+     * @return true if the request is deterministic
+     */
+    public boolean isDeterministic() {
+        return (temperature != null && temperature == 0) || (top_k != null && top_k == 1);
+    }
+
 }
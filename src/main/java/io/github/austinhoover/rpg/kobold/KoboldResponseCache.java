@@ -0,0 +1,204 @@
+package io.github.austinhoover.rpg.kobold;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of generated text, keyed by a hash of the model and the full request body.
+ * Recently used responses are kept in a bounded in-memory LRU, every response is also written to disk so it survives restarts.
+ */
+public class KoboldResponseCache {
+
+    /**
+     * Extension of the files in the disk tier
+     */
+    private static final String FILE_EXTENSION = ".txt";
+
+    /**
+     * Directory the disk tier is stored in
+     */
+    private final Path directory;
+
+    /**
+     * Maximum number of responses held in memory
+     */
+    private final int memoryCapacity;
+
+    /**
+     * The memory tier, in access order
+     */
+    private final LinkedHashMap<String, String> memory;
+
+    /**
+     * Number of lookups answered by the memory tier
+     */
+    private final AtomicLong memoryHits = new AtomicLong();
+
+    /**
+     * Number of lookups answered by the disk tier
+     */
+    private final AtomicLong diskHits = new AtomicLong();
+
+    /**
+     * Number of lookups that had to go to the endpoint
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Number of responses evicted from the memory tier
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache
+     * @param directory Directory the disk tier is stored in
+     * @param memoryCapacity Maximum number of responses held in memory
+     */
+    public KoboldResponseCache(Path directory, int memoryCapacity){
+        this.directory = directory;
+        this.memoryCapacity = memoryCapacity;
+        this.memory = new LinkedHashMap<String, String>(16, 0.75f, true){
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if(this.size() > KoboldResponseCache.this.memoryCapacity){
+                    KoboldResponseCache.this.evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Computes the key for a request
+     * @param modelIdentity Identity of the model that serves the request
+     * @param bodyText The serialized request body
+     * @return The key
+     */
+    public static String computeKey(String modelIdentity, String bodyText){
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelIdentity.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte)0);
+            digest.update(bodyText.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for(byte b : digest.digest()){
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error(e);
+        }
+    }
+
+    /**
+     * Looks up a response
+     * @param key The key of the request
+     * @return The response, or null if it has not been cached
+     */
+    public String get(String key){
+        synchronized(memory){
+            String text = memory.get(key);
+            if(text != null){
+                memoryHits.incrementAndGet();
+                return text;
+            }
+        }
+        Path file = this.getFile(key);
+        if(Files.exists(file)){
+            try {
+                String text = Files.readString(file, StandardCharsets.UTF_8);
+                synchronized(memory){
+                    memory.put(key, text);
+                }
+                diskHits.incrementAndGet();
+                return text;
+            } catch (IOException e) {
+                System.err.println("Error reading llm cache entry " + file + ": " + e.getMessage());
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores a response
+     * @param key The key of the request
+     * @param text The response
+     */
+    public void put(String key, String text){
+        synchronized(memory){
+            memory.put(key, text);
+        }
+        Path file = this.getFile(key);
+        try {
+            Files.createDirectories(file.getParent());
+            // Write to the side and rename so a crash never leaves a truncated entry behind
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.writeString(temp, text, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing llm cache entry " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the file a key is stored in on disk
+     * @param key The key
+     * @return The file
+     */
+    private Path getFile(String key){
+        return directory.resolve(key.substring(0, 2)).resolve(key + FILE_EXTENSION);
+    }
+
+    /**
+     * Gets the number of lookups answered by the memory tier
+     * @return The number of lookups
+     */
+    public long getMemoryHits(){
+        return memoryHits.get();
+    }
+
+    /**
+     * Gets the number of lookups answered by the disk tier
+     * @return The number of lookups
+     */
+    public long getDiskHits(){
+        return diskHits.get();
+    }
+
+    /**
+     * Gets the number of lookups that missed both tiers
+     * @return The number of lookups
+     */
+    public long getMisses(){
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of responses evicted from the memory tier
+     * @return The number of evictions
+     */
+    public long getEvictions(){
+        return evictions.get();
+    }
+
+    /**
+     * Gets the number of responses currently held in memory
+     * @return The number of responses
+     */
+    public int getMemorySize(){
+        synchronized(memory){
+            return memory.size();
+        }
+    }
+
+}
@@ -0,0 +1,355 @@
+package io.github.austinhoover.rpg.kobold;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Decides which generation gets a backend slot next.
+ * Waiting generations are served strictly by priority class, then in arrival order.
+ * When the backend has more than one slot, one slot is held back for interactive work so a player's turn never waits behind bulk generation.
+ * If interactive work arrives while every slot is busy, a running non-interactive generation is cancelled (aborting it on the backend) and put back at the front of its queue.
+ * Nothing is dispatched while the backend is still starting up.
+ */
+public class KoboldScheduler {
+
+    /**
+     * Generations waiting for a slot, per priority class
+     */
+    private final Map<KoboldPriority, ArrayDeque<Job>> queues = new EnumMap<KoboldPriority, ArrayDeque<Job>>(KoboldPriority.class);
+
+    /**
+     * Generations currently holding a slot, in the order they started
+     */
+    private final List<Job> runningJobs = new ArrayList<Job>();
+
+    /**
+     * Number of generations the backend can run at once
+     */
+    private int slots;
+
+    /**
+     * Whether running non-interactive generations are preempted by interactive ones
+     */
+    private boolean preemptionEnabled = false;
+
+    /**
+     * Number of generations that were preempted
+     */
+    private long preemptedCount = 0;
+
+    /**
+     * Completes once the backend is ready to accept work, null if it is not being waited on
+     */
+    private CompletableFuture<Boolean> backendReady = null;
+
+    /**
+     * Number of generations currently running
+     */
+    private int running = 0;
+
+    /**
+     * Number of non-interactive generations currently running
+     */
+    private int runningNonInteractive = 0;
+
+    /**
+     * Creates a scheduler
+     * @param slots Number of generations the backend can run at once
+     */
+    public KoboldScheduler(int slots){
+        for(KoboldPriority priority : KoboldPriority.values()){
+            queues.put(priority, new ArrayDeque<Job>());
+        }
+        this.setSlots(slots);
+    }
+
+    /**
+     * Submits a generation
+     * @param priority The priority class of the generation
+     * @param work Starts the generation once it has a slot
+     * @return A future that completes with the generation's result. Cancelling it before the generation starts removes it from the queue.
+     */
+    public CompletableFuture<String> submit(KoboldPriority priority, Supplier<CompletableFuture<String>> work){
+        Job job = new Job(priority, work);
+        synchronized(this){
+            ArrayDeque<Job> queue = queues.get(priority);
+            if(queue.size() >= priority.getQueueCapacity()){
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Kobold " + priority + " queue is full"));
+            }
+            queue.addLast(job);
+        }
+        job.result.whenComplete((String text, Throwable error) -> {
+            if(job.result.isCancelled()){
+                this.cancel(job);
+            }
+        });
+        if(priority == KoboldPriority.INTERACTIVE){
+            this.preemptFor(job);
+        }
+        this.dispatch();
+        return job.result;
+    }
+
+    /**
+     * Starts as many waiting generations as there are free slots
+     */
+    private void dispatch(){
+        while(true){
+            Job job;
+            synchronized(this){
+                job = this.pollNext();
+                if(job == null){
+                    return;
+                }
+                job.started = true;
+                runningJobs.add(job);
+                running++;
+                if(job.priority != KoboldPriority.INTERACTIVE){
+                    runningNonInteractive++;
+                }
+            }
+            this.start(job);
+        }
+    }
+
+    /**
+     * Removes the next generation that may start from the queues
+     * @return The generation, or null if none may start right now
+     */
+    private Job pollNext(){
+        if(backendReady != null && !backendReady.isDone()){
+            return null;
+        }
+        if(running >= slots){
+            return null;
+        }
+        for(KoboldPriority priority : KoboldPriority.values()){
+            ArrayDeque<Job> queue = queues.get(priority);
+            if(queue.isEmpty()){
+                continue;
+            }
+            if(priority != KoboldPriority.INTERACTIVE && slots > 1 && runningNonInteractive >= slots - 1){
+                // the last slot is held back for interactive work
+                return null;
+            }
+            return queue.pollFirst();
+        }
+        return null;
+    }
+
+    /**
+     * Starts a generation and frees its slot once it finishes
+     * @param job The generation
+     */
+    private void start(Job job){
+        CompletableFuture<String> generation;
+        try {
+            generation = job.work.get();
+        } catch (RuntimeException e) {
+            generation = CompletableFuture.failedFuture(e);
+        }
+        job.generation = generation;
+        if(job.result.isCancelled()){
+            generation.cancel(true);
+        }
+        generation.whenComplete((String text, Throwable error) -> {
+            boolean requeued = false;
+            synchronized(this){
+                running--;
+                if(job.priority != KoboldPriority.INTERACTIVE){
+                    runningNonInteractive--;
+                }
+                runningJobs.remove(job);
+                if(job.preempted && !job.result.isDone()){
+                    // run it again once the interactive work is done
+                    job.preempted = false;
+                    job.started = false;
+                    job.generation = null;
+                    queues.get(job.priority).addFirst(job);
+                    requeued = true;
+                }
+            }
+            if(requeued){
+                // nothing to report to the caller yet
+            } else if(error != null){
+                job.result.completeExceptionally(error);
+            } else {
+                job.result.complete(text);
+            }
+            this.dispatch();
+        });
+    }
+
+    /**
+     * Frees a slot for an interactive generation by preempting the most recently started non-interactive generation
+     * @param job The interactive generation
+     */
+    private void preemptFor(Job job){
+        CompletableFuture<String> victim = null;
+        synchronized(this){
+            if(!preemptionEnabled || running < slots || job.started){
+                return;
+            }
+            for(int i = runningJobs.size() - 1; i >= 0; i--){
+                Job candidate = runningJobs.get(i);
+                if(candidate.priority != KoboldPriority.INTERACTIVE && !candidate.preempted && candidate.generation != null){
+                    candidate.preempted = true;
+                    preemptedCount++;
+                    victim = candidate.generation;
+                    break;
+                }
+            }
+        }
+        if(victim != null){
+            victim.cancel(true);
+        }
+    }
+
+    /**
+     * Handles a caller cancelling a generation
+     * @param job The generation
+     */
+    private void cancel(Job job){
+        CompletableFuture<String> generation;
+        synchronized(this){
+            if(!job.started){
+                queues.get(job.priority).remove(job);
+                return;
+            }
+            generation = job.generation;
+        }
+        if(generation != null){
+            generation.cancel(true);
+        }
+    }
+
+    /**
+     * Sets the number of generations the backend can run at once
+     * @param slots The number of slots
+     */
+    public void setSlots(int slots){
+        if(slots < 1){
+            throw new IllegalArgumentException("A backend needs at least one slot");
+        }
+        synchronized(this){
+            this.slots = slots;
+        }
+        this.dispatch();
+    }
+
+    /**
+     * Holds back every generation until the backend is ready. If the backend fails to become ready, generations are dispatched anyway and fail on their own.
+     * @param backendReady Completes once the backend is ready
+     */
+    public void awaitBackend(CompletableFuture<Boolean> backendReady){
+        synchronized(this){
+            if(this.backendReady == backendReady){
+                return;
+            }
+            this.backendReady = backendReady;
+        }
+        backendReady.whenComplete((Boolean ready, Throwable error) -> this.dispatch());
+    }
+
+    /**
+     * Checks whether generations are being held back until the backend is ready
+     * @return true if generations are being held back
+     */
+    public synchronized boolean isAwaitingBackend(){
+        return backendReady != null && !backendReady.isDone();
+    }
+
+    /**
+     * Sets whether running non-interactive generations are preempted by interactive ones
+     * @param preemptionEnabled true to preempt
+     */
+    public synchronized void setPreemptionEnabled(boolean preemptionEnabled){
+        this.preemptionEnabled = preemptionEnabled;
+    }
+
+    /**
+     * Gets the number of generations that were preempted by interactive work
+     * @return The number of generations
+     */
+    public synchronized long getPreemptedCount(){
+        return preemptedCount;
+    }
+
+    /**
+     * Gets the number of generations the backend can run at once
+     * @return The number of slots
+     */
+    public synchronized int getSlots(){
+        return slots;
+    }
+
+    /**
+     * Gets the number of generations currently running
+     * @return The number of generations
+     */
+    public synchronized int getRunning(){
+        return running;
+    }
+
+    /**
+     * Gets the number of generations of a priority class waiting for a slot
+     * @param priority The priority class
+     * @return The number of generations
+     */
+    public synchronized int getQueued(KoboldPriority priority){
+        return queues.get(priority).size();
+    }
+
+    /**
+     * A generation waiting for, or holding, a slot
+     */
+    private static class Job {
+
+        /**
+         * Priority class of the generation
+         */
+        private final KoboldPriority priority;
+
+        /**
+         * Starts the generation
+         */
+        private final Supplier<CompletableFuture<String>> work;
+
+        /**
+         * Completes with the generation's result
+         */
+        private final CompletableFuture<String> result = new CompletableFuture<String>();
+
+        /**
+         * The running generation, once started
+         */
+        private volatile CompletableFuture<String> generation;
+
+        /**
+         * Whether the generation has been given a slot
+         */
+        private boolean started = false;
+
+        /**
+         * Whether the generation is being cancelled to make room for interactive work
+         */
+        private boolean preempted = false;
+
+        /**
+         * Constructor
+         * @param priority Priority class of the generation
+         * @param work Starts the generation
+         */
+        private Job(KoboldPriority priority, Supplier<CompletableFuture<String>> work){
+            this.priority = priority;
+            this.work = work;
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+package io.github.austinhoover.rpg.kobold;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.google.gson.Gson;
+
+/**
+ * Long-lived http transport shared by every kobold connection.
+ * Keeps a single client (and its keep-alive connection pool) alive for the lifetime of the app.
+ */
+public class KoboldTransport {
+
+    /**
+     * Timeout for establishing a connection to the endpoint
+     */
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+
+    /**
+     * Number of threads used to complete http exchanges
+     */
+    private static final int WORKER_THREADS = 4;
+
+    /**
+     * The shared transport
+     */
+    public static final KoboldTransport INSTANCE = new KoboldTransport();
+
+    /**
+     * Executor that completes http exchanges and their dependent stages
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The http client
+     */
+    private final HttpClient httpClient;
+
+    /**
+     * The json (de)serializer
+     */
+    private final Gson gson;
+
+    /**
+     * Creates a transport. Everything but tests shares {@link #INSTANCE}.
+     */
+    KoboldTransport(){
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(WORKER_THREADS, (Runnable runnable) -> {
+            Thread thread = new Thread(runnable, "kobold-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+            // koboldcpp only speaks http/1.1, skip the h2c upgrade attempt on every connection
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .executor(this.executor)
+            .build();
+        this.gson = new Gson();
+    }
+
+    /**
+     * Posts a json body to an endpoint without blocking the caller
+     * @param uri The uri to post to
+     * @param body The json body
+     * @return A future that completes with the response body
+     */
+    public CompletableFuture<String> postAsync(URI uri, String body){
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(uri)
+            .header("Content-Type", "application/json")
+            .POST(BodyPublishers.ofString(body))
+            .build();
+        return this.httpClient.sendAsync(request, BodyHandlers.ofString()).thenApply((HttpResponse<String> response) -> {
+            if(response.statusCode() != 200){
+                throw new RuntimeException("Kobold endpoint " + uri + " returned status " + response.statusCode());
+            }
+            return response.body();
+        });
+    }
+
+    /**
+     * Gets an endpoint without blocking the caller
+     * @param uri The uri to get
+     * @return A future that completes with the response body
+     */
+    public CompletableFuture<String> getAsync(URI uri){
+        HttpRequest request = HttpRequest.newBuilder().uri(uri).GET().build();
+        return this.httpClient.sendAsync(request, BodyHandlers.ofString()).thenApply((HttpResponse<String> response) -> {
+            if(response.statusCode() != 200){
+                throw new RuntimeException("Kobold endpoint " + uri + " returned status " + response.statusCode());
+            }
+            return response.body();
+        });
+    }
+
+    /**
+     * Posts a json body to an endpoint that answers with a line-oriented stream (ie server-sent events)
+     * @param uri The uri to post to
+     * @param body The json body
+     * @param onLine Called with each line of the response as it arrives
+     * @return A future that completes once the stream has ended
+     */
+    public CompletableFuture<Void> postStreamAsync(URI uri, String body, Consumer<String> onLine){
+        HttpRequest request = HttpRequest.newBuilder()
+            .uri(uri)
+            .header("Content-Type", "application/json")
+            .header("Accept", "text/event-stream")
+            .POST(BodyPublishers.ofString(body))
+            .build();
+        LineSubscriber subscriber = new LineSubscriber(onLine);
+        CompletableFuture<HttpResponse<Void>> exchange = this.httpClient.sendAsync(request, BodyHandlers.fromLineSubscriber(subscriber));
+        subscriber.done.whenComplete((Void ignored, Throwable error) -> {
+            if(error != null){
+                // the caller gave up on the stream, close the connection
+                exchange.cancel(true);
+            }
+        });
+        exchange.whenComplete((HttpResponse<Void> response, Throwable error) -> {
+            if(error != null){
+                subscriber.done.completeExceptionally(error);
+            } else if(response.statusCode() != 200){
+                subscriber.done.completeExceptionally(new RuntimeException("Kobold endpoint " + uri + " returned status " + response.statusCode()));
+            } else {
+                subscriber.done.complete(null);
+            }
+        });
+        return subscriber.done;
+    }
+
+    /**
+     * Gets the http client
+     * @return The http client
+     */
+    public HttpClient getHttpClient(){
+        return httpClient;
+    }
+
+    /**
+     * Gets the json (de)serializer
+     * @return The json (de)serializer
+     */
+    public Gson getGson(){
+        return gson;
+    }
+
+    /**
+     * Gets the executor that completes http exchanges
+     * @return The executor
+     */
+    public ExecutorService getExecutor(){
+        return executor;
+    }
+
+    /**
+     * Forwards each line of a response body to a consumer, cancelling the stream if the consumer fails
+     */
+    private static class LineSubscriber implements Flow.Subscriber<String> {
+
+        /**
+         * The consumer of the lines
+         */
+        private final Consumer<String> onLine;
+
+        /**
+         * The subscription to the body
+         */
+        private Flow.Subscription subscription;
+
+        /**
+         * Completes once the stream has ended, or as soon as the consumer fails
+         */
+        private final CompletableFuture<Void> done = new CompletableFuture<Void>();
+
+        /**
+         * Constructor
+         * @param onLine The consumer of the lines
+         */
+        private LineSubscriber(Consumer<String> onLine){
+            this.onLine = onLine;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if(this.done.isDone()){
+                return;
+            }
+            try {
+                this.onLine.accept(line);
+            } catch (RuntimeException e) {
+                this.done.completeExceptionally(e);
+                this.subscription.cancel();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            // completion is reported once the exchange's status is known
+        }
+    }
+
+}
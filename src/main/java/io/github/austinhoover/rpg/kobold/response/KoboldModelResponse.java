@@ -0,0 +1,21 @@
+package io.github.austinhoover.rpg.kobold.response;
+
+/**
+ * Body of kobold's response describing the loaded model
+ */
+public class KoboldModelResponse {
+
+    /**
+     * Name of the loaded model
+     */
+    private String result;
+
+    /**
+     * Gets the name of the loaded model
+     * @return The name
+     */
+    public String getResult() {
+        return result;
+    }
+
+}
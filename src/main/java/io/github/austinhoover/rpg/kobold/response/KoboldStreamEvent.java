@@ -0,0 +1,34 @@
+package io.github.austinhoover.rpg.kobold.response;
+
+/**
+ * A single server-sent event from kobold's streaming endpoint
+ */
+public class KoboldStreamEvent {
+
+    /**
+     * The token(s) generated since the previous event
+     */
+    private String token;
+
+    /**
+     * Why generation stopped, if it has
+     */
+    private String finish_reason;
+
+    /**
+     * Gets the token(s) of this event
+     * @return The token(s)
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Gets why generation stopped
+     * @return The reason, or null if generation is still running
+     */
+    public String getFinishReason() {
+        return finish_reason;
+    }
+
+}
@@ -0,0 +1,118 @@
+package io.github.austinhoover.rpg.process;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A single running instance of a service
+ */
+public class ManagedProcess {
+
+    /**
+     * Name of the service this is an instance of
+     */
+    private final String serviceName;
+
+    /**
+     * Port the instance serves on, or null if the service does not use a port
+     */
+    private final Integer port;
+
+    /**
+     * The process
+     */
+    private final Process process;
+
+    /**
+     * Drains the output of the process
+     */
+    private final ProcessOutputPump output;
+
+    /**
+     * Completes with true once the instance passes its readiness probe, or false if it exits or times out first
+     */
+    private final CompletableFuture<Boolean> ready = new CompletableFuture<>();
+
+    /**
+     * Whether the instance is a warm standby rather than the instance serving requests
+     */
+    private volatile boolean standby;
+
+    /**
+     * Whether the instance is being stopped on purpose
+     */
+    private volatile boolean stopping = false;
+
+    /**
+     * Creates an instance
+     * @param serviceName Name of the service this is an instance of
+     * @param port Port the instance serves on
+     * @param process The process
+     * @param output Drains the output of the process
+     * @param standby Whether the instance is a warm standby
+     */
+    public ManagedProcess(String serviceName, Integer port, Process process, ProcessOutputPump output, boolean standby) {
+        this.serviceName = serviceName;
+        this.port = port;
+        this.process = process;
+        this.output = output;
+        this.standby = standby;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public Integer getPort() {
+        return port;
+    }
+
+    public Process getProcess() {
+        return process;
+    }
+
+    public ProcessOutputPump getOutput() {
+        return output;
+    }
+
+    public CompletableFuture<Boolean> getReady() {
+        return ready;
+    }
+
+    /**
+     * Check if the process is alive
+     * @return true if it is alive
+     */
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Get the name of the instance for logging
+     * @return The name of the service, marked if the instance is a standby
+     */
+    public String getLabel() {
+        return standby ? serviceName + "-standby" : serviceName;
+    }
+
+    public boolean isStandby() {
+        return standby;
+    }
+
+    /**
+     * Turns a warm standby into the instance serving requests
+     */
+    public void promote() {
+        this.standby = false;
+    }
+
+    public boolean isStopping() {
+        return stopping;
+    }
+
+    /**
+     * Marks the instance as being stopped on purpose, so its exit is not treated as a crash
+     */
+    public void markStopping() {
+        this.stopping = true;
+    }
+}
@@ -5,7 +5,12 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import com.google.gson.Gson;
@@ -13,18 +18,66 @@ import com.google.gson.Gson;
 import java.util.logging.Level;
 
 /**
- * Manages external processes that can be started and stopped programmatically
+ * Manages external processes that can be started and stopped programmatically.
+ * Services that exit on their own are supervised according to their restart policy, failing over to a warm standby instance if one is kept.
+ * A config with several instances is a pool: each member is managed as its own service, and the pool can be started, stopped and queried by the config's name.
  */
 public class ProcessManager {
     private static final Logger logger = Logger.getLogger(ProcessManager.class.getName());
-    private final Map<String, Process> runningProcesses;
+
+    /**
+     * The instance of each service that is serving requests
+     */
+    private final Map<String, ManagedProcess> runningProcesses;
     private final Map<String, ServiceConfig> serviceConfigs;
 
+    /**
+     * Names of the members of each pool
+     */
+    private final Map<String, List<String>> pools;
+
+    /**
+     * The warm standby instance of each service that keeps one
+     */
+    private final Map<String, ManagedProcess> standbys;
+
+    /**
+     * Readiness of each started service, completes with true once the service passes its readiness probe.
+     * While a crashed service is being restarted this is a fresh future, so callers wait for the restart rather than failing.
+     */
+    private final Map<String, CompletableFuture<Boolean>> readiness;
+
+    /**
+     * Output of each service, kept after the service exits so its last words can be inspected
+     */
+    private final Map<String, ProcessOutputPump> outputs;
+
+    /**
+     * Number of times each instance has been restarted by the supervisor since it last passed its readiness probe or its service was started explicitly,
+     * keyed by the instance's label, so a service's standby and the instance serving requests each have their own budget
+     */
+    private final Map<String, Integer> restartCounts;
+
+    /**
+     * Runs readiness probes and delayed restarts
+     */
+    private final ScheduledExecutorService supervisorExecutor;
+
     public static final ProcessManager INSTANCE = new ProcessManager();
 
     public ProcessManager() {
         this.runningProcesses = new ConcurrentHashMap<>();
         this.serviceConfigs = new HashMap<>();
+        this.pools = new ConcurrentHashMap<>();
+        this.standbys = new ConcurrentHashMap<>();
+        this.readiness = new ConcurrentHashMap<>();
+        this.outputs = new ConcurrentHashMap<>();
+        this.restartCounts = new ConcurrentHashMap<>();
+        this.supervisorExecutor = Executors.newSingleThreadScheduledExecutor((Runnable runnable) -> {
+            Thread thread = new Thread(runnable, "service-supervisor");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -58,14 +111,34 @@ public class ProcessManager {
      */
     public void registerService(ServiceConfig config) {
         serviceConfigs.put(config.getName(), config);
+        if (config.getInstances() > 1) {
+            List<String> members = new ArrayList<>();
+            for (int i = 0; i < config.getInstances(); i++) {
+                ServiceConfig member = config.forInstance(i);
+                serviceConfigs.put(member.getName(), member);
+                members.add(member.getName());
+            }
+            pools.put(config.getName(), members);
+        }
     }
 
     /**
-     * Start a service by its registered name
+     * Start a service by its registered name. Any running service it is mutually exclusive with is stopped first.
      * @param serviceName The name of the service to start
      * @return true if the service was started successfully
      */
-    public boolean startService(String serviceName) {
+    public synchronized boolean startService(String serviceName) {
+        List<String> members = pools.get(serviceName);
+        if (members != null) {
+            boolean rVal = false;
+            for (String member : members) {
+                if (!runningProcesses.containsKey(member) && startService(member)) {
+                    rVal = true;
+                }
+            }
+            return rVal;
+        }
+
         ServiceConfig config = serviceConfigs.get(serviceName);
         if (config == null) {
             logger.warning("Service " + serviceName + " not found in configuration");
@@ -77,12 +150,146 @@ public class ProcessManager {
             return false;
         }
 
+        restartCounts.remove(serviceName);
+        restartCounts.remove(standbyLabel(serviceName));
+        CompletableFuture<Boolean> ready = readiness.get(serviceName);
+        if (ready == null || ready.isDone()) {
+            ready = new CompletableFuture<>();
+            readiness.put(serviceName, ready);
+        }
+        if (!this.startPrimary(config, ready)) {
+            readiness.remove(serviceName, ready);
+            ready.complete(false);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Start a service if it is not already running, and wait for it to pass its readiness probe without blocking the caller
+     * @param serviceName The name of the service to start
+     * @return A future that completes with true once the service (or any member of the pool) is ready, or false if it failed to start or become ready in time
+     */
+    public synchronized CompletableFuture<Boolean> startServiceAndAwaitReady(String serviceName) {
+        List<String> members = pools.get(serviceName);
+        if (members != null) {
+            List<CompletableFuture<Boolean>> memberReadiness = new ArrayList<>();
+            for (String member : members) {
+                memberReadiness.add(startServiceAndAwaitReady(member));
+            }
+            return anyReady(memberReadiness);
+        }
+
+        CompletableFuture<Boolean> existing = readiness.get(serviceName);
+        if (existing != null) {
+            // running, or being restarted by the supervisor
+            return existing;
+        }
+        if (!startService(serviceName)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return readiness.get(serviceName);
+    }
+
+    /**
+     * Combines the readiness of several services
+     * @param futures The readiness of each service
+     * @return A future that completes with true as soon as any service is ready, or false once none can be
+     */
+    private static CompletableFuture<Boolean> anyReady(List<CompletableFuture<Boolean>> futures) {
+        for (CompletableFuture<Boolean> future : futures) {
+            if (future.getNow(false)) {
+                return CompletableFuture.completedFuture(true);
+            }
+        }
+        CompletableFuture<Boolean> rVal = new CompletableFuture<>();
+        for (CompletableFuture<Boolean> future : futures) {
+            future.thenAccept((Boolean ready) -> {
+                if (ready) {
+                    rVal.complete(true);
+                }
+            });
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenRun(() -> rVal.complete(false));
+        return rVal;
+    }
+
+    /**
+     * Spawns the instance of a service that serves requests
+     * @param config The configuration of the service
+     * @param ready Completed once the instance is ready
+     * @return true if the instance was spawned
+     */
+    private boolean startPrimary(ServiceConfig config, CompletableFuture<Boolean> ready) {
+        String serviceName = config.getName();
+        this.stopConflictingServices(config);
+        ManagedProcess instance = this.spawn(config, this.pickPort(config), false);
+        if (instance == null) {
+            return false;
+        }
+        runningProcesses.put(serviceName, instance);
+        outputs.put(serviceName, instance.getOutput());
+        this.forwardReadiness(instance, ready);
+        if (config.isWarmStandby()) {
+            // load the standby once the primary is up, so the two don't compete while loading
+            instance.getReady().thenAccept((Boolean instanceReady) -> {
+                if (instanceReady) {
+                    this.startStandby(serviceName);
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Spawns a warm standby instance of a service, if it keeps one and is still running
+     * @param serviceName The name of the service
+     */
+    private synchronized void startStandby(String serviceName) {
+        ServiceConfig config = serviceConfigs.get(serviceName);
+        if (config == null || !config.isWarmStandby() || !runningProcesses.containsKey(serviceName) || standbys.containsKey(serviceName)) {
+            return;
+        }
+        ManagedProcess instance = this.spawn(config, this.pickPort(config), true);
+        if (instance != null) {
+            standbys.put(serviceName, instance);
+        }
+    }
+
+    /**
+     * Picks the port for a new instance of a service: the main port, unless another instance of the service is on it
+     * @param config The configuration of the service
+     * @return The port, or null if the service does not use a port
+     */
+    private Integer pickPort(ServiceConfig config) {
+        Integer port = config.getPort();
+        if (port == null || config.getStandbyPort() == null) {
+            return port;
+        }
+        for (ManagedProcess instance : new ManagedProcess[]{ runningProcesses.get(config.getName()), standbys.get(config.getName()) }) {
+            if (instance != null && port.equals(instance.getPort())) {
+                return config.getStandbyPort();
+            }
+        }
+        return port;
+    }
+
+    /**
+     * Spawns an instance of a service and starts watching it
+     * @param config The configuration of the service
+     * @param port The port of the instance
+     * @param standby Whether the instance is a warm standby
+     * @return The instance, or null if it couldn't be spawned
+     */
+    private ManagedProcess spawn(ServiceConfig config, Integer port, boolean standby) {
+        String serviceName = config.getName();
+        String label = standby ? standbyLabel(serviceName) : serviceName;
         try {
             ProcessBuilder processBuilder = new ProcessBuilder();
             
             // Set up the command and arguments
             processBuilder.command().add(config.getCommand());
-            processBuilder.command().addAll(config.getArguments());
+            processBuilder.command().addAll(config.getArguments(port));
 
             // Set working directory if specified
             if (config.getWorkingDirectory() != null) {
@@ -92,42 +299,341 @@ public class ProcessManager {
             // Redirect error stream to output stream
             processBuilder.redirectErrorStream(true);
 
-            System.out.println(config.getWorkingDirectory() + " " + config.getCommand() + " " + config.getArguments());
+            System.out.println(config.getWorkingDirectory() + " " + config.getCommand() + " " + config.getArguments(port));
 
             // Start the process
             Process process = processBuilder.start();
-            runningProcesses.put(serviceName, process);
+
+            // Drain the output, otherwise the service blocks once the pipe buffer fills up
+            ProcessOutputPump output = new ProcessOutputPump(label, process.getInputStream(), config);
+            output.start();
+            ManagedProcess instance = new ManagedProcess(serviceName, port, process, output, standby);
 
             // Start a thread to monitor the process
             new Thread(() -> {
                 try {
                     int exitCode = process.waitFor();
-                    logger.info("Service " + serviceName + " exited with code " + exitCode);
-                    runningProcesses.remove(serviceName);
+                    logger.info("Service " + instance.getLabel() + " exited with code " + exitCode);
+                    this.onExit(instance, exitCode);
                 } catch (InterruptedException e) {
-                    logger.log(Level.WARNING, "Service " + serviceName + " was interrupted", e);
+                    logger.log(Level.WARNING, "Service " + instance.getLabel() + " was interrupted", e);
                 }
             }).start();
 
-            return true;
+            ReadinessProbe probe = config.getReadiness();
+            if (probe == null) {
+                // without a probe there is no sign the restart worked, so the restart budget is only refilled by an explicit start
+                instance.getReady().complete(true);
+            } else {
+                instance.getReady().thenAccept((Boolean instanceReady) -> {
+                    if (instanceReady) {
+                        restartCounts.remove(label);
+                    }
+                });
+                long deadline = System.currentTimeMillis() + probe.getStartupTimeoutMs();
+                supervisorExecutor.execute(() -> awaitReady(instance, probe, deadline));
+            }
+            return instance;
         } catch (IOException e) {
-            logger.log(Level.SEVERE, "Failed to start service " + serviceName, e);
+            logger.log(Level.SEVERE, "Failed to start service " + label, e);
+            return null;
+        }
+    }
+
+    /**
+     * Probes an instance, rescheduling itself until the instance is ready, exits, or runs out of time
+     * @param instance The instance
+     * @param probe The readiness probe
+     * @param deadline The time by which the instance must be ready
+     */
+    private void awaitReady(ManagedProcess instance, ReadinessProbe probe, long deadline) {
+        CompletableFuture<Boolean> ready = instance.getReady();
+        if (ready.isDone()) {
+            return;
+        }
+        if (!instance.isAlive()) {
+            logger.warning("Service " + instance.getLabel() + " exited before becoming ready");
+            ready.complete(false);
+            return;
+        }
+        if (probe.probe(instance.getPort())) {
+            logger.info("Service " + instance.getLabel() + " is ready");
+            ready.complete(true);
+            return;
+        }
+        if (System.currentTimeMillis() >= deadline) {
+            logger.warning("Service " + instance.getLabel() + " did not become ready within " + probe.getStartupTimeoutMs() + "ms");
+            ready.complete(false);
+            return;
+        }
+        supervisorExecutor.schedule(() -> awaitReady(instance, probe, deadline), probe.getIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reports an instance's readiness as the readiness of its service.
+     * An instance that dies before becoming ready is left to the supervisor, which may still restart it.
+     * @param instance The instance
+     * @param ready The readiness of the service
+     */
+    private void forwardReadiness(ManagedProcess instance, CompletableFuture<Boolean> ready) {
+        instance.getReady().thenAccept((Boolean instanceReady) -> {
+            if (instanceReady || instance.isAlive()) {
+                ready.complete(instanceReady);
+            }
+        });
+    }
+
+    /**
+     * Handles an instance of a service exiting, failing over to the standby or restarting the service as configured
+     * @param instance The instance
+     * @param exitCode The exit code of the instance
+     */
+    private synchronized void onExit(ManagedProcess instance, int exitCode) {
+        instance.getReady().complete(false);
+        if (instance.isStopping()) {
+            return;
+        }
+        String serviceName = instance.getServiceName();
+        ServiceConfig config = serviceConfigs.get(serviceName);
+
+        if (standbys.remove(serviceName, instance)) {
+            this.scheduleRestart(config, true, exitCode);
+            return;
+        }
+        if (!runningProcesses.remove(serviceName, instance)) {
+            return;
+        }
+
+        CompletableFuture<Boolean> ready = readiness.get(serviceName);
+        if (ready == null) {
+            return;
+        }
+        if (ready.isDone()) {
+            ready = new CompletableFuture<>();
+            readiness.put(serviceName, ready);
+        }
+
+        ManagedProcess standby = standbys.remove(serviceName);
+        if (standby != null && standby.isAlive()) {
+            // the standby already has the model loaded, so it can take over immediately
+            logger.warning("Service " + serviceName + " failed over to its standby on port " + standby.getPort());
+            this.stopConflictingServices(config);
+            standby.promote();
+            runningProcesses.put(serviceName, standby);
+            outputs.put(serviceName, standby.getOutput());
+            this.forwardReadiness(standby, ready);
+            this.scheduleRestart(config, true, exitCode);
+            return;
+        }
+
+        if (!this.scheduleRestart(config, false, exitCode)) {
+            readiness.remove(serviceName, ready);
+            ready.complete(false);
+        }
+    }
+
+    /**
+     * Restarts an instance of a service after a backoff, if its restart policy allows it
+     * @param config The configuration of the service
+     * @param standby Whether the standby is restarted rather than the instance serving requests
+     * @param exitCode The exit code of the instance that exited
+     * @return true if a restart was scheduled
+     */
+    private boolean scheduleRestart(ServiceConfig config, boolean standby, int exitCode) {
+        String serviceName = config.getName();
+        if (!config.getRestartPolicy().shouldRestart(exitCode)) {
+            return false;
+        }
+        String label = standby ? standbyLabel(serviceName) : serviceName;
+        int restarts = restartCounts.getOrDefault(label, 0);
+        if (restarts >= config.getMaxRestarts()) {
+            logger.severe("Service " + label + " has been restarted " + restarts + " times, giving up");
             return false;
         }
+        restartCounts.put(label, restarts + 1);
+        long delay = Math.min(config.getRestartBackoffMs() << Math.min(restarts, 20), config.getRestartBackoffMaxMs());
+        logger.info("Restarting " + (standby ? "standby of " : "") + "service " + serviceName + " in " + delay + "ms");
+        if (standby) {
+            supervisorExecutor.schedule(() -> this.startStandby(serviceName), delay, TimeUnit.MILLISECONDS);
+        } else {
+            supervisorExecutor.schedule(() -> this.restart(serviceName), delay, TimeUnit.MILLISECONDS);
+        }
+        return true;
     }
 
     /**
-     * Stop a running service
+     * Gets the label of the warm standby instance of a service
+     * @param serviceName The name of the service
+     * @return The label
+     */
+    private static String standbyLabel(String serviceName) {
+        return serviceName + "-standby";
+    }
+
+    /**
+     * Restarts the instance of a service that serves requests, unless the service was stopped in the meantime
+     * @param serviceName The name of the service
+     */
+    private synchronized void restart(String serviceName) {
+        CompletableFuture<Boolean> ready = readiness.get(serviceName);
+        if (ready == null || runningProcesses.containsKey(serviceName)) {
+            return;
+        }
+        ServiceConfig config = serviceConfigs.get(serviceName);
+        if (!this.startPrimary(config, ready) && !this.scheduleRestart(config, false, -1)) {
+            readiness.remove(serviceName, ready);
+            ready.complete(false);
+        }
+    }
+
+    /**
+     * Stops every running service that can't run alongside a service
+     * @param config The configuration of the service
+     */
+    private void stopConflictingServices(ServiceConfig config) {
+        for (String other : new ArrayList<>(runningProcesses.keySet())) {
+            ServiceConfig otherConfig = serviceConfigs.get(other);
+            String otherPool = otherConfig != null ? otherConfig.getPoolName() : other;
+            if (otherPool.equals(config.getPoolName())) {
+                continue;
+            }
+            if (config.isMutuallyExclusiveWith(otherPool) || (otherConfig != null && otherConfig.isMutuallyExclusiveWith(config.getPoolName()))) {
+                logger.info("Stopping service " + other + ", it can't run alongside " + config.getName());
+                stopService(other);
+            }
+        }
+    }
+
+    /**
+     * Check if a service is running and has passed its readiness probe
+     * @param serviceName The name of the service to check
+     * @return true if the service is ready
+     */
+    public boolean isServiceReady(String serviceName) {
+        List<String> members = pools.get(serviceName);
+        if (members != null) {
+            for (String member : members) {
+                if (isServiceReady(member)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        CompletableFuture<Boolean> ready = readiness.get(serviceName);
+        return ready != null && ready.getNow(false) && isServiceRunning(serviceName);
+    }
+
+    /**
+     * Get the port of the instance of a service that is serving requests
+     * @param serviceName The name of the service
+     * @return The port, or null if the service is not running or does not use a port
+     */
+    public Integer getServicePort(String serviceName) {
+        List<Integer> ports = getServicePorts(serviceName);
+        if (ports.isEmpty()) {
+            return null;
+        }
+        return ports.get(0);
+    }
+
+    /**
+     * Get the ports of every instance serving requests for a service or pool.
+     * Instances that have passed their readiness probe are preferred; if none have, every running instance is listed.
+     * @param serviceName The name of the service or pool
+     * @return The ports
+     */
+    public List<Integer> getServicePorts(String serviceName) {
+        List<String> members = pools.getOrDefault(serviceName, List.of(serviceName));
+        List<Integer> ready = new ArrayList<>();
+        List<Integer> running = new ArrayList<>();
+        for (String member : members) {
+            ManagedProcess instance = runningProcesses.get(member);
+            if (instance == null || instance.getPort() == null || !instance.isAlive()) {
+                continue;
+            }
+            running.add(instance.getPort());
+            if (isServiceReady(member)) {
+                ready.add(instance.getPort());
+            }
+        }
+        return ready.isEmpty() ? running : ready;
+    }
+
+    /**
+     * Get the number of times the instances of a service have been restarted by the supervisor
+     * since they last passed their readiness probe or the service was started explicitly
+     * @param serviceName The name of the service
+     * @return The number of restarts, of the instance serving requests and its standby together
+     */
+    public int getRestartCount(String serviceName) {
+        return restartCounts.getOrDefault(serviceName, 0) + restartCounts.getOrDefault(standbyLabel(serviceName), 0);
+    }
+
+    /**
+     * Check if a service has a warm standby that is ready to take over
+     * @param serviceName The name of the service
+     * @return true if it has a ready standby
+     */
+    public boolean hasReadyStandby(String serviceName) {
+        ManagedProcess standby = standbys.get(serviceName);
+        return standby != null && standby.isAlive() && standby.getReady().getNow(false);
+    }
+
+    /**
+     * Get the most recent output of a service
+     * @param serviceName The name of the service
+     * @param lines The maximum number of lines
+     * @return The lines, oldest first, or null if the service has never been started
+     */
+    public List<String> getServiceOutput(String serviceName, int lines) {
+        ProcessOutputPump output = outputs.get(serviceName);
+        if (output == null) {
+            return null;
+        }
+        return output.tail(lines);
+    }
+
+    /**
+     * Stop a running service, along with its standby and any pending restart
      * @param serviceName The name of the service to stop
      * @return true if the service was stopped successfully
      */
-    public boolean stopService(String serviceName) {
-        Process process = runningProcesses.get(serviceName);
-        if (process == null) {
+    public synchronized boolean stopService(String serviceName) {
+        List<String> members = pools.get(serviceName);
+        if (members != null) {
+            boolean rVal = false;
+            for (String member : members) {
+                if (runningProcesses.containsKey(member) || readiness.containsKey(member)) {
+                    rVal |= stopService(member);
+                }
+            }
+            return rVal;
+        }
+
+        ManagedProcess instance = runningProcesses.remove(serviceName);
+        ManagedProcess standby = standbys.remove(serviceName);
+        CompletableFuture<Boolean> ready = readiness.remove(serviceName);
+        if (ready != null) {
+            ready.complete(false);
+        }
+        if (standby != null) {
+            this.kill(standby);
+        }
+        if (instance == null) {
             logger.warning("Service " + serviceName + " is not running");
             return false;
         }
+        return this.kill(instance);
+    }
 
+    /**
+     * Kills an instance of a service
+     * @param instance The instance
+     * @return true if the instance was killed
+     */
+    private boolean kill(ManagedProcess instance) {
+        instance.markStopping();
+        Process process = instance.getProcess();
         try {
             // For Windows, we need to use taskkill to ensure the process tree is terminated
             if (System.getProperty("os.name").toLowerCase().contains("windows")) {
@@ -138,11 +644,9 @@ public class ProcessManager {
                 // For Unix-like systems, we can use destroyForcibly
                 process.destroyForcibly().waitFor();
             }
-            
-            runningProcesses.remove(serviceName);
             return true;
         } catch (IOException | InterruptedException e) {
-            logger.log(Level.SEVERE, "Failed to stop service " + serviceName, e);
+            logger.log(Level.SEVERE, "Failed to stop service " + instance.getServiceName(), e);
             return false;
         }
     }
@@ -153,11 +657,20 @@ public class ProcessManager {
      * @return true if the service is running
      */
     public boolean isServiceRunning(String serviceName) {
-        Process process = runningProcesses.get(serviceName);
-        if (process == null) {
+        List<String> members = pools.get(serviceName);
+        if (members != null) {
+            for (String member : members) {
+                if (isServiceRunning(member)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        ManagedProcess instance = runningProcesses.get(serviceName);
+        if (instance == null) {
             return false;
         }
-        return process.isAlive();
+        return instance.isAlive();
     }
 
     /**
@@ -175,11 +688,14 @@ public class ProcessManager {
     /**
      * Shuts down all currently running processes
      */
-    public void shutdownAll() {
+    public synchronized void shutdownAll() {
         logger.info("Shutting down all running processes...");
+        for (String serviceName : new ArrayList<>(readiness.keySet())) {
+            stopService(serviceName);
+        }
         for (String serviceName : new ArrayList<>(runningProcesses.keySet())) {
             stopService(serviceName);
         }
         runningProcesses.clear();
     }
-} 
\ No newline at end of file
+}
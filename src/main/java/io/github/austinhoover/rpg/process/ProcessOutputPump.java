@@ -0,0 +1,245 @@
+package io.github.austinhoover.rpg.process;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Continuously drains the output of a managed process so it can never block on a full pipe.
+ * The most recent lines are kept in a bounded ring buffer, and can optionally be written to a rolling log file.
+ */
+public class ProcessOutputPump implements Runnable {
+    private static final Logger logger = Logger.getLogger(ProcessOutputPump.class.getName());
+
+    /**
+     * Name of the service whose output is drained
+     */
+    private final String serviceName;
+
+    /**
+     * The output of the process
+     */
+    private final InputStream stream;
+
+    /**
+     * The most recent lines, oldest at {@link #head} once the buffer is full
+     */
+    private final String[] lines;
+
+    /**
+     * Index the next line is written to
+     */
+    private int head = 0;
+
+    /**
+     * Number of lines in the buffer
+     */
+    private int size = 0;
+
+    /**
+     * Total number of lines drained
+     */
+    private long lineCount = 0;
+
+    /**
+     * The log file, or null if output is not written to disk
+     */
+    private final Path logFile;
+
+    /**
+     * Size at which the log file is rolled over
+     */
+    private final long logMaxBytes;
+
+    /**
+     * Number of rolled over log files that are kept
+     */
+    private final int logBackups;
+
+    /**
+     * Writer to the log file
+     */
+    private BufferedWriter logWriter;
+
+    /**
+     * Number of bytes written to the current log file
+     */
+    private long logBytes;
+
+    /**
+     * Whether writing to the log file failed and was given up on
+     */
+    private boolean logDisabled = false;
+
+    /**
+     * Creates a pump
+     * @param serviceName Name of the service whose output is drained
+     * @param stream The output of the process
+     * @param config The configuration of the service
+     */
+    public ProcessOutputPump(String serviceName, InputStream stream, ServiceConfig config) {
+        this.serviceName = serviceName;
+        this.stream = stream;
+        this.lines = new String[config.getOutputBufferLines()];
+        this.logFile = config.getOutputLogFile() != null ? Path.of(config.getOutputLogFile()) : null;
+        this.logMaxBytes = config.getOutputLogMaxBytes();
+        this.logBackups = config.getOutputLogBackups();
+    }
+
+    /**
+     * Starts draining on a daemon thread
+     */
+    public void start() {
+        Thread thread = new Thread(this, "service-output-" + serviceName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                this.append(line);
+                this.writeToLog(line);
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Output of service " + serviceName + " closed", e);
+        } finally {
+            this.closeLog();
+        }
+    }
+
+    /**
+     * Adds a line to the ring buffer
+     * @param line The line
+     */
+    private synchronized void append(String line) {
+        lines[head] = line;
+        head = (head + 1) % lines.length;
+        if (size < lines.length) {
+            size++;
+        }
+        lineCount++;
+    }
+
+    /**
+     * Gets the most recent lines of output
+     * @param count The maximum number of lines
+     * @return The lines, oldest first
+     */
+    public synchronized List<String> tail(int count) {
+        int n = Math.max(0, Math.min(count, size));
+        List<String> rVal = new ArrayList<>(n);
+        int start = head - n;
+        if (start < 0) {
+            start += lines.length;
+        }
+        for (int i = 0; i < n; i++) {
+            rVal.add(lines[(start + i) % lines.length]);
+        }
+        return rVal;
+    }
+
+    /**
+     * Gets the total number of lines drained, including lines that have since fallen out of the buffer
+     * @return The number of lines
+     */
+    public synchronized long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Writes a line to the log file, rolling the file over once it is full. Failures disable the log rather than stop the pump.
+     * @param line The line
+     */
+    private void writeToLog(String line) {
+        if (logFile == null || logDisabled) {
+            return;
+        }
+        try {
+            if (logWriter == null) {
+                this.openLog();
+            }
+            logWriter.write(line);
+            logWriter.newLine();
+            logWriter.flush();
+            logBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            if (logBytes >= logMaxBytes) {
+                this.closeLog();
+                this.rollLog();
+                this.openLog();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write output log of service " + serviceName + ", disabling it", e);
+            this.closeLog();
+            logDisabled = true;
+        }
+    }
+
+    /**
+     * Opens the log file for appending
+     * @throws IOException If the file can't be opened
+     */
+    private void openLog() throws IOException {
+        if (logFile.getParent() != null) {
+            Files.createDirectories(logFile.getParent());
+        }
+        logWriter = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        logBytes = Files.size(logFile);
+    }
+
+    /**
+     * Closes the log file if it is open
+     */
+    private void closeLog() {
+        if (logWriter == null) {
+            return;
+        }
+        try {
+            logWriter.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Failed to close output log of service " + serviceName, e);
+        }
+        logWriter = null;
+    }
+
+    /**
+     * Shifts the log file and its backups along by one, dropping the oldest
+     * @throws IOException If a file can't be moved
+     */
+    private void rollLog() throws IOException {
+        if (logBackups < 1) {
+            Files.deleteIfExists(logFile);
+            return;
+        }
+        Files.deleteIfExists(this.getBackup(logBackups));
+        for (int i = logBackups - 1; i >= 1; i--) {
+            Path backup = this.getBackup(i);
+            if (Files.exists(backup)) {
+                Files.move(backup, this.getBackup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(logFile, this.getBackup(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Gets the path of a rolled over log file
+     * @param index The index of the backup, 1 being the most recent
+     * @return The path
+     */
+    private Path getBackup(int index) {
+        return logFile.resolveSibling(logFile.getFileName() + "." + index);
+    }
+}
@@ -0,0 +1,197 @@
+package io.github.austinhoover.rpg.process;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+
+/**
+ * Configuration for checking whether a service is ready to accept work, as opposed to merely having been spawned.
+ * If a health url is configured it must answer with a 2xx status, otherwise a connection to the tcp port must succeed.
+ * The health url may contain {@link ServiceConfig#PORT_PLACEHOLDER}, and the tcp port defaults to the port of the instance being probed.
+ */
+public class ReadinessProbe {
+
+    /**
+     * Default host to probe
+     */
+    private static final String DEFAULT_HOST = "localhost";
+
+    /**
+     * Default time a single probe may take, in milliseconds
+     */
+    private static final int DEFAULT_TIMEOUT_MS = 2000;
+
+    /**
+     * Default time between probes, in milliseconds
+     */
+    private static final int DEFAULT_INTERVAL_MS = 500;
+
+    /**
+     * Default time the service has to become ready after being spawned, in milliseconds
+     */
+    private static final long DEFAULT_STARTUP_TIMEOUT_MS = 5 * 60 * 1000;
+
+    private String host;
+    private Integer port;
+    private String healthUrl;
+    private Integer timeoutMs;
+    private Integer intervalMs;
+    private Long startupTimeoutMs;
+
+    /**
+     * Creates a probe that checks the port of the instance being probed
+     */
+    public ReadinessProbe() {
+    }
+
+    /**
+     * Creates a probe that checks a tcp port
+     * @param port The port
+     */
+    public ReadinessProbe(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Creates a probe that checks an http health url
+     * @param healthUrl The url
+     */
+    public ReadinessProbe(String healthUrl) {
+        this.healthUrl = healthUrl;
+    }
+
+    /**
+     * Checks once whether an instance of the service is ready
+     * @param instancePort The port of the instance, or null if it does not use a port
+     * @return true if the instance is ready
+     */
+    public boolean probe(Integer instancePort) {
+        if (healthUrl != null) {
+            String url = instancePort != null ? healthUrl.replace(ServiceConfig.PORT_PLACEHOLDER, String.valueOf(instancePort)) : healthUrl;
+            return this.probeHttp(url);
+        }
+        Integer probePort = port != null ? port : instancePort;
+        if (probePort != null) {
+            return this.probeTcp(probePort);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a health url answers with a 2xx status
+     * @param url The url
+     * @return true if it does
+     */
+    private boolean probeHttp(String url) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            connection.setConnectTimeout(this.getTimeoutMs());
+            connection.setReadTimeout(this.getTimeoutMs());
+            int status = connection.getResponseCode();
+            return status >= 200 && status < 300;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Checks whether a tcp port accepts connections
+     * @param probePort The port
+     * @return true if it does
+     */
+    private boolean probeTcp(int probePort) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(this.getHost(), probePort), this.getTimeoutMs());
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the host to probe
+     * @return The host
+     */
+    public String getHost() {
+        return host != null ? host : DEFAULT_HOST;
+    }
+
+    /**
+     * Set the host to probe
+     * @param host The host
+     */
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    /**
+     * Get the tcp port to probe
+     * @return The port, or null if the port of the instance is probed
+     */
+    public Integer getPort() {
+        return port;
+    }
+
+    /**
+     * Get the http health url to probe
+     * @return The url, or null if no url is probed
+     */
+    public String getHealthUrl() {
+        return healthUrl;
+    }
+
+    /**
+     * Get the time a single probe may take
+     * @return The time in milliseconds
+     */
+    public int getTimeoutMs() {
+        return timeoutMs != null ? timeoutMs : DEFAULT_TIMEOUT_MS;
+    }
+
+    /**
+     * Set the time a single probe may take
+     * @param timeoutMs The time in milliseconds
+     */
+    public void setTimeoutMs(int timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Get the time between probes
+     * @return The time in milliseconds
+     */
+    public int getIntervalMs() {
+        return intervalMs != null ? intervalMs : DEFAULT_INTERVAL_MS;
+    }
+
+    /**
+     * Set the time between probes
+     * @param intervalMs The time in milliseconds
+     */
+    public void setIntervalMs(int intervalMs) {
+        this.intervalMs = intervalMs;
+    }
+
+    /**
+     * Get the time the service has to become ready after being spawned
+     * @return The time in milliseconds
+     */
+    public long getStartupTimeoutMs() {
+        return startupTimeoutMs != null ? startupTimeoutMs : DEFAULT_STARTUP_TIMEOUT_MS;
+    }
+
+    /**
+     * Set the time the service has to become ready after being spawned
+     * @param startupTimeoutMs The time in milliseconds
+     */
+    public void setStartupTimeoutMs(long startupTimeoutMs) {
+        this.startupTimeoutMs = startupTimeoutMs;
+    }
+}
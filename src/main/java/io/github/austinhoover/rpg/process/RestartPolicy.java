@@ -0,0 +1,38 @@
+package io.github.austinhoover.rpg.process;
+
+/**
+ * When a supervised service is restarted after it exits on its own
+ */
+public enum RestartPolicy {
+
+    /**
+     * Never restart the service
+     */
+    NEVER,
+
+    /**
+     * Restart the service if it exits with a non-zero code
+     */
+    ON_FAILURE,
+
+    /**
+     * Restart the service whenever it exits
+     */
+    ALWAYS;
+
+    /**
+     * Checks whether a service that exited should be restarted
+     * @param exitCode The exit code of the service
+     * @return true if it should be restarted
+     */
+    public boolean shouldRestart(int exitCode) {
+        switch (this) {
+            case ALWAYS:
+                return true;
+            case ON_FAILURE:
+                return exitCode != 0;
+            default:
+                return false;
+        }
+    }
+}
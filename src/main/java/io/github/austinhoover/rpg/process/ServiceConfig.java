@@ -7,11 +7,36 @@ import java.util.ArrayList;
  * Configuration for a service that can be managed by the ProcessManager
  */
 public class ServiceConfig {
+
+    /**
+     * Placeholder in the arguments that is replaced with the port of the instance being started
+     */
+    public static final String PORT_PLACEHOLDER = "{port}";
+
     private String name;
     private String command;
     private List<String> arguments;
     private String workingDirectory;
     private List<String> mutuallyExclusiveServices;
+    private Integer concurrentSlots;
+    private ReadinessProbe readiness;
+    private Integer outputBufferLines;
+    private String outputLogFile;
+    private Long outputLogMaxBytes;
+    private Integer outputLogBackups;
+    private Integer port;
+    private Boolean warmStandby;
+    private Integer standbyPort;
+    private RestartPolicy restartPolicy;
+    private Integer maxRestarts;
+    private Long restartBackoffMs;
+    private Long restartBackoffMaxMs;
+    private Integer instances;
+
+    /**
+     * Name of the pool this config is a member of, or null if it was not created from a pool template
+     */
+    private transient String poolName;
 
     public ServiceConfig(String name, String command) {
         this.name = name;
@@ -29,12 +54,36 @@ public class ServiceConfig {
         return command;
     }
 
+    /**
+     * Get the arguments the service is started with
+     * @return The arguments, empty if not configured
+     */
     public List<String> getArguments() {
+        if (arguments == null) {
+            arguments = new ArrayList<>();
+        }
         return arguments;
     }
 
+    /**
+     * Get the arguments for an instance of the service, with the port placeholder filled in
+     * @param port The port of the instance, or null to leave the arguments as they are
+     * @return The arguments
+     */
+    public List<String> getArguments(Integer port) {
+        List<String> arguments = this.getArguments();
+        if (port == null) {
+            return arguments;
+        }
+        List<String> rVal = new ArrayList<>(arguments.size());
+        for (String argument : arguments) {
+            rVal.add(argument.replace(PORT_PLACEHOLDER, String.valueOf(port)));
+        }
+        return rVal;
+    }
+
     public void addArgument(String argument) {
-        this.arguments.add(argument);
+        this.getArguments().add(argument);
     }
 
     public String getWorkingDirectory() {
@@ -45,11 +94,303 @@ public class ServiceConfig {
         this.workingDirectory = workingDirectory;
     }
 
+    /**
+     * Get the number of requests the service can work on at once (ie koboldcpp's --multiuser)
+     * @return The number of slots, 1 if not configured
+     */
+    public int getConcurrentSlots() {
+        if (concurrentSlots == null || concurrentSlots < 1) {
+            return 1;
+        }
+        return concurrentSlots;
+    }
+
+    /**
+     * Set the number of requests the service can work on at once
+     * @param concurrentSlots The number of slots
+     */
+    public void setConcurrentSlots(int concurrentSlots) {
+        this.concurrentSlots = concurrentSlots;
+    }
+
+    /**
+     * Get the probe used to decide when the service is ready to accept work
+     * @return The probe, or null if the service is ready as soon as it is spawned
+     */
+    public ReadinessProbe getReadiness() {
+        return readiness;
+    }
+
+    /**
+     * Set the probe used to decide when the service is ready to accept work
+     * @param readiness The probe
+     */
+    public void setReadiness(ReadinessProbe readiness) {
+        this.readiness = readiness;
+    }
+
+    /**
+     * Get the number of lines of output kept in memory
+     * @return The number of lines, 1000 if not configured
+     */
+    public int getOutputBufferLines() {
+        if (outputBufferLines == null || outputBufferLines < 1) {
+            return 1000;
+        }
+        return outputBufferLines;
+    }
+
+    /**
+     * Set the number of lines of output kept in memory
+     * @param outputBufferLines The number of lines
+     */
+    public void setOutputBufferLines(int outputBufferLines) {
+        this.outputBufferLines = outputBufferLines;
+    }
+
+    /**
+     * Get the file the output is written to
+     * @return The path of the file, or null if output is only kept in memory
+     */
+    public String getOutputLogFile() {
+        return outputLogFile;
+    }
+
+    /**
+     * Set the file the output is written to
+     * @param outputLogFile The path of the file
+     */
+    public void setOutputLogFile(String outputLogFile) {
+        this.outputLogFile = outputLogFile;
+    }
+
+    /**
+     * Get the size at which the output file is rolled over
+     * @return The size in bytes, 10MB if not configured
+     */
+    public long getOutputLogMaxBytes() {
+        if (outputLogMaxBytes == null || outputLogMaxBytes < 1) {
+            return 10L * 1024 * 1024;
+        }
+        return outputLogMaxBytes;
+    }
+
+    /**
+     * Set the size at which the output file is rolled over
+     * @param outputLogMaxBytes The size in bytes
+     */
+    public void setOutputLogMaxBytes(long outputLogMaxBytes) {
+        this.outputLogMaxBytes = outputLogMaxBytes;
+    }
+
+    /**
+     * Get the number of rolled over output files that are kept
+     * @return The number of files, 3 if not configured
+     */
+    public int getOutputLogBackups() {
+        if (outputLogBackups == null || outputLogBackups < 0) {
+            return 3;
+        }
+        return outputLogBackups;
+    }
+
+    /**
+     * Set the number of rolled over output files that are kept
+     * @param outputLogBackups The number of files
+     */
+    public void setOutputLogBackups(int outputLogBackups) {
+        this.outputLogBackups = outputLogBackups;
+    }
+
+    /**
+     * Get the port the service serves on
+     * @return The port, or null if the service does not use a port
+     */
+    public Integer getPort() {
+        return port;
+    }
+
+    /**
+     * Set the port the service serves on
+     * @param port The port
+     */
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Check if a second, already loaded instance is kept running to take over the moment the first one exits
+     * @return true if a warm standby is kept
+     */
+    public boolean isWarmStandby() {
+        return warmStandby != null && warmStandby && standbyPort != null;
+    }
+
+    /**
+     * Set whether a warm standby is kept
+     * @param warmStandby true to keep a warm standby
+     */
+    public void setWarmStandby(boolean warmStandby) {
+        this.warmStandby = warmStandby;
+    }
+
+    /**
+     * Get the second port the service can serve on, used by whichever instance is not on the main port
+     * @return The port
+     */
+    public Integer getStandbyPort() {
+        return standbyPort;
+    }
+
+    /**
+     * Set the second port the service can serve on
+     * @param standbyPort The port
+     */
+    public void setStandbyPort(int standbyPort) {
+        this.standbyPort = standbyPort;
+    }
+
+    /**
+     * Get when the service is restarted after it exits on its own
+     * @return The policy, never if not configured
+     */
+    public RestartPolicy getRestartPolicy() {
+        return restartPolicy != null ? restartPolicy : RestartPolicy.NEVER;
+    }
+
+    /**
+     * Set when the service is restarted after it exits on its own
+     * @param restartPolicy The policy
+     */
+    public void setRestartPolicy(RestartPolicy restartPolicy) {
+        this.restartPolicy = restartPolicy;
+    }
+
+    /**
+     * Get the number of times the supervisor restarts the service before giving up
+     * @return The number of restarts, 5 if not configured
+     */
+    public int getMaxRestarts() {
+        if (maxRestarts == null || maxRestarts < 0) {
+            return 5;
+        }
+        return maxRestarts;
+    }
+
+    /**
+     * Set the number of times the supervisor restarts the service before giving up
+     * @param maxRestarts The number of restarts
+     */
+    public void setMaxRestarts(int maxRestarts) {
+        this.maxRestarts = maxRestarts;
+    }
+
+    /**
+     * Get the delay before the first restart, doubled for every restart after it
+     * @return The delay in milliseconds, 1 second if not configured
+     */
+    public long getRestartBackoffMs() {
+        if (restartBackoffMs == null || restartBackoffMs < 0) {
+            return 1000;
+        }
+        return restartBackoffMs;
+    }
+
+    /**
+     * Set the delay before the first restart
+     * @param restartBackoffMs The delay in milliseconds
+     */
+    public void setRestartBackoffMs(long restartBackoffMs) {
+        this.restartBackoffMs = restartBackoffMs;
+    }
+
+    /**
+     * Get the longest delay between restarts
+     * @return The delay in milliseconds, 1 minute if not configured
+     */
+    public long getRestartBackoffMaxMs() {
+        if (restartBackoffMaxMs == null || restartBackoffMaxMs < 0) {
+            return 60 * 1000;
+        }
+        return restartBackoffMaxMs;
+    }
+
+    /**
+     * Set the longest delay between restarts
+     * @param restartBackoffMaxMs The delay in milliseconds
+     */
+    public void setRestartBackoffMaxMs(long restartBackoffMaxMs) {
+        this.restartBackoffMaxMs = restartBackoffMaxMs;
+    }
+
+    /**
+     * Get the number of instances launched from this config, each on its own port
+     * @return The number of instances, 1 if not configured
+     */
+    public int getInstances() {
+        if (instances == null || instances < 1) {
+            return 1;
+        }
+        return instances;
+    }
+
+    /**
+     * Set the number of instances launched from this config
+     * @param instances The number of instances
+     */
+    public void setInstances(int instances) {
+        this.instances = instances;
+    }
+
+    /**
+     * Get the name of the pool this config belongs to
+     * @return The name of the pool, which is the name of the service itself if it is not a pool member
+     */
+    public String getPoolName() {
+        return poolName != null ? poolName : name;
+    }
+
+    /**
+     * Creates the config of one member of the pool this config is a template for.
+     * Member i is named "name-i" and its ports are offset by i, so the members never collide.
+     * @param index The index of the member
+     * @return The config of the member
+     */
+    public ServiceConfig forInstance(int index) {
+        ServiceConfig rVal = new ServiceConfig(name + "-" + index, command);
+        rVal.poolName = name;
+        rVal.arguments.addAll(this.getArguments());
+        rVal.workingDirectory = workingDirectory;
+        rVal.mutuallyExclusiveServices.addAll(this.getMutuallyExclusiveServices());
+        rVal.concurrentSlots = concurrentSlots;
+        rVal.readiness = readiness;
+        rVal.outputBufferLines = outputBufferLines;
+        if (outputLogFile != null) {
+            int extension = outputLogFile.lastIndexOf('.');
+            rVal.outputLogFile = extension > 0
+                ? outputLogFile.substring(0, extension) + "-" + index + outputLogFile.substring(extension)
+                : outputLogFile + "-" + index;
+        }
+        rVal.outputLogMaxBytes = outputLogMaxBytes;
+        rVal.outputLogBackups = outputLogBackups;
+        rVal.port = port != null ? port + index : null;
+        rVal.warmStandby = warmStandby;
+        rVal.standbyPort = standbyPort != null ? standbyPort + index : null;
+        rVal.restartPolicy = restartPolicy;
+        rVal.maxRestarts = maxRestarts;
+        rVal.restartBackoffMs = restartBackoffMs;
+        rVal.restartBackoffMaxMs = restartBackoffMaxMs;
+        return rVal;
+    }
+
     /**
      * Get the list of services that are mutually exclusive with this service
-     * @return List of service names that cannot run alongside this service
+     * @return List of service names that cannot run alongside this service, empty if not configured
      */
     public List<String> getMutuallyExclusiveServices() {
+        if (mutuallyExclusiveServices == null) {
+            mutuallyExclusiveServices = new ArrayList<>();
+        }
         return mutuallyExclusiveServices;
     }
 
@@ -58,8 +399,9 @@ public class ServiceConfig {
      * @param serviceName The name of the service that cannot run alongside this service
      */
     public void addMutuallyExclusiveService(String serviceName) {
-        if (!mutuallyExclusiveServices.contains(serviceName)) {
-            mutuallyExclusiveServices.add(serviceName);
+        List<String> services = this.getMutuallyExclusiveServices();
+        if (!services.contains(serviceName)) {
+            services.add(serviceName);
         }
     }
 
@@ -69,14 +411,14 @@ public class ServiceConfig {
      * @return true if the service cannot run alongside this service
      */
     public boolean isMutuallyExclusiveWith(String serviceName) {
-        return mutuallyExclusiveServices.contains(serviceName);
+        return mutuallyExclusiveServices != null && mutuallyExclusiveServices.contains(serviceName);
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(command);
-        for (String arg : arguments) {
+        for (String arg : this.getArguments()) {
             sb.append(" ").append(arg);
         }
         return sb.toString();
@@ -24,9 +24,8 @@ public class CharacterController {
 
     @GetMapping("/location/{locationId}/characters")
     public ResponseEntity<List<CharacterDTO>> getCharactersAtLocation(@PathVariable long locationId) {
-        // Get all characters and filter by location
-        List<CharacterDTO> characters = Global.world.getCharacterMap().getAllCharacters().stream()
-            .filter(character -> character.getCurrentLocationId() == locationId)
+        // Only reads the occupants: a town nobody has visited yet has none until its residents are generated on the turn thread
+        List<CharacterDTO> characters = Global.world.getCharacterMap().getCharactersAt(locationId).stream()
             .map(CharacterDTO::new)
             .collect(Collectors.toList());
         
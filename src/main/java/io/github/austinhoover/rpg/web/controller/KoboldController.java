@@ -0,0 +1,55 @@
+package io.github.austinhoover.rpg.web.controller;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.github.austinhoover.rpg.game.Global;
+import io.github.austinhoover.rpg.kobold.Kobold;
+import io.github.austinhoover.rpg.kobold.KoboldEndpoint;
+import io.github.austinhoover.rpg.kobold.KoboldPriority;
+import io.github.austinhoover.rpg.kobold.KoboldResponseCache;
+import io.github.austinhoover.rpg.kobold.KoboldScheduler;
+
+@RestController
+public class KoboldController {
+
+    @GetMapping("/kobold/stats")
+    public Map<String, Object> getStats() {
+        Kobold kobold = Global.kobold;
+        KoboldResponseCache cache = kobold.getResponseCache();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        KoboldScheduler scheduler = kobold.getScheduler();
+        stats.put("slots", scheduler.getSlots());
+        stats.put("running", scheduler.getRunning());
+        for (KoboldPriority priority : KoboldPriority.values()) {
+            stats.put("queued" + priority, scheduler.getQueued(priority));
+        }
+        List<Map<String, Object>> instances = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (KoboldEndpoint endpoint : kobold.getPool().getEndpoints()) {
+            Map<String, Object> instance = new LinkedHashMap<>();
+            instance.put("port", endpoint.getPort());
+            instance.put("healthy", endpoint.isHealthy(now));
+            instance.put("outstanding", endpoint.getOutstanding());
+            instance.put("served", endpoint.getServed());
+            instance.put("consecutiveFailures", endpoint.getConsecutiveFailures());
+            instances.add(instance);
+        }
+        stats.put("instances", instances);
+        stats.put("preempted", scheduler.getPreemptedCount());
+        stats.put("abortedRequests", kobold.getAbortedRequestCount());
+        stats.put("coalescableRequests", kobold.getCoalescableRequestCount());
+        stats.put("coalescedRequests", kobold.getCoalescedRequestCount());
+        stats.put("cacheMemoryHits", cache.getMemoryHits());
+        stats.put("cacheDiskHits", cache.getDiskHits());
+        stats.put("cacheMisses", cache.getMisses());
+        stats.put("cacheEvictions", cache.getEvictions());
+        stats.put("cacheMemorySize", cache.getMemorySize());
+        return stats;
+    }
+}
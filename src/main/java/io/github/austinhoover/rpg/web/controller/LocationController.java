@@ -17,7 +17,7 @@ public class LocationController {
         if (currentLocation == null) {
             throw new RuntimeException("Current location not found");
         }
-        return new LocationDTO(currentLocation);
+        return new LocationDTO(currentLocation, Global.world.getCharacterMap());
     }
 
     @GetMapping("/location/{id}")
@@ -26,6 +26,6 @@ public class LocationController {
         if (location == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(new LocationDTO(location));
+        return ResponseEntity.ok(new LocationDTO(location, Global.world.getCharacterMap()));
     }
 } 
\ No newline at end of file
@@ -0,0 +1,39 @@
+package io.github.austinhoover.rpg.web.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import io.github.austinhoover.rpg.process.ProcessManager;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+public class ServiceController {
+
+    /**
+     * Most lines of output that can be requested at once
+     */
+    private static final int MAX_OUTPUT_LINES = 10000;
+
+    @GetMapping("/services")
+    public Map<String, Boolean> getServices() {
+        return ProcessManager.INSTANCE.getRunningServices();
+    }
+
+    /**
+     * Gets the most recent output of a managed service
+     * @param name The name of the service
+     * @param lines The maximum number of lines
+     * @return The lines, oldest first
+     */
+    @GetMapping("/services/{name}/output")
+    public ResponseEntity<List<String>> getOutput(@PathVariable String name, @RequestParam(defaultValue = "100") int lines) {
+        List<String> output = ProcessManager.INSTANCE.getServiceOutput(name, Math.min(lines, MAX_OUTPUT_LINES));
+        if (output == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(output);
+    }
+}
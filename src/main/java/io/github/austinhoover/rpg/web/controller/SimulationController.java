@@ -1,16 +1,93 @@
 package io.github.austinhoover.rpg.web.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import io.github.austinhoover.rpg.game.sim.Simulation;
 
 @RestController
 public class SimulationController {
-    
+
+    /**
+     * How long a streamed turn may run before the connection is closed
+     */
+    private static final long STREAM_TIMEOUT_MS = 5 * 60 * 1000;
+
+    /**
+     * The client a request is submitted as when it doesn't name one
+     */
+    private static final String DEFAULT_CLIENT = "web";
+
+    /**
+     * Simulates a turn. The turn is cancelled if the request times out, the client goes away, or the client submits another turn.
+     * @param client The id of the client, so that its turns only supersede each other
+     * @param input The player's input
+     * @return The turn's response
+     */
     @PostMapping("/simulate")
-    public String simulate(@RequestBody String input) {
-        return Simulation.simulate(input);
+    public DeferredResult<String> simulate(
+        @RequestHeader(value = "X-Client-Id", defaultValue = DEFAULT_CLIENT) String client,
+        @RequestBody String input
+    ) {
+        DeferredResult<String> result = new DeferredResult<String>(STREAM_TIMEOUT_MS);
+        CompletableFuture<String> turn = Simulation.simulateAsync(client, input);
+        result.onTimeout(() -> turn.cancel(true));
+        result.onError((Throwable error) -> turn.cancel(true));
+        turn.whenComplete((String response, Throwable error) -> {
+            if (error != null) {
+                result.setErrorResult(error);
+            } else {
+                result.setResult(response);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Simulates a turn, streaming narration as server-sent events.
+     * Sends a "token" event for each chunk of generated text, then a "done" event with the full response.
+     * The turn is cancelled if the stream times out, the client goes away, or the client submits another turn.
+     * @param client The id of the client, so that its turns only supersede each other
+     * @param input The player's input
+     * @return The event stream
+     */
+    @PostMapping(value = "/simulate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter simulateStream(
+        @RequestHeader(value = "X-Client-Id", defaultValue = DEFAULT_CLIENT) String client,
+        @RequestBody String input
+    ) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        CompletableFuture<String> turn = Simulation.simulateAsync(client, input, (String token) -> {
+            try {
+                emitter.send(SseEmitter.event().name("token").data(Map.of("text", token), MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        emitter.onTimeout(() -> turn.cancel(true));
+        emitter.onError((Throwable error) -> turn.cancel(true));
+        turn.whenComplete((String response, Throwable error) -> {
+            if (error != null) {
+                emitter.completeWithError(error);
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name("done").data(Map.of("text", response), MediaType.APPLICATION_JSON));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
     }
-} 
\ No newline at end of file
+}
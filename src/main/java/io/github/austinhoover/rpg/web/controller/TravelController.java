@@ -0,0 +1,46 @@
+package io.github.austinhoover.rpg.web.controller;
+
+import org.springframework.web.bind.annotation.*;
+import org.springframework.http.ResponseEntity;
+
+import io.github.austinhoover.rpg.game.Global;
+import io.github.austinhoover.rpg.game.location.Location;
+import io.github.austinhoover.rpg.web.dto.RouteDTO;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+public class TravelController {
+
+    /**
+     * Gets the shortest route between two locations
+     * @param from The id of the starting location, the player's location if absent
+     * @param to The id of the destination
+     * @param target The name of the destination, ie "the capital of the kingdom of elves", resolved from the starting location, used if to is absent
+     * @return The route, 404 if the destination is unknown or unreachable, 400 if no destination was given
+     */
+    @GetMapping("/travel/route")
+    public ResponseEntity<RouteDTO> getRoute(
+        @RequestParam(required = false) Long from,
+        @RequestParam(required = false) Long to,
+        @RequestParam(required = false) String target
+    ) {
+        long fromId = from != null ? from : Global.player.currentLocationId;
+        long toId;
+        if (to != null) {
+            toId = to;
+        } else if (target != null) {
+            Location destination = Global.mover.findDestination(fromId, target);
+            if (destination == null) {
+                return ResponseEntity.notFound().build();
+            }
+            toId = destination.getId();
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+        long[] route = Global.world.getLocationMap().findRoute(fromId, toId);
+        if (route == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new RouteDTO(route, Global.world.getLocationMap()));
+    }
+}
@@ -1,7 +1,10 @@
 package io.github.austinhoover.rpg.web.dto;
 
+import io.github.austinhoover.rpg.game.character.CharacterMap;
 import io.github.austinhoover.rpg.game.location.Location;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 public class LocationDTO {
     private long id;
@@ -10,12 +13,12 @@ public class LocationDTO {
     private List<Long> neighborIds;
     private List<Long> characterIds;
 
-    public LocationDTO(Location location) {
+    public LocationDTO(Location location, CharacterMap characterMap) {
         this.id = location.getId();
         this.type = location.getType();
         this.description = location.getDescription();
         this.neighborIds = location.getNeighborIds();
-        this.characterIds = location.getCharacterIds();
+        this.characterIds = Arrays.stream(characterMap.getCharacterIdsAt(location.getId())).boxed().collect(Collectors.toList());
     }
 
     public long getId() {
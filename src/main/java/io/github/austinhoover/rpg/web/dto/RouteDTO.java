@@ -0,0 +1,48 @@
+package io.github.austinhoover.rpg.web.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.austinhoover.rpg.game.location.Location;
+import io.github.austinhoover.rpg.game.location.LocationMap;
+
+public class RouteDTO {
+    private long fromId;
+    private long toId;
+    private int hops;
+    private List<Long> locationIds;
+    private List<String> locationTypes;
+
+    public RouteDTO(long[] route, LocationMap locationMap) {
+        this.fromId = route[0];
+        this.toId = route[route.length - 1];
+        this.hops = route.length - 1;
+        this.locationIds = new ArrayList<>(route.length);
+        this.locationTypes = new ArrayList<>(route.length);
+        for (long id : route) {
+            Location location = locationMap.getLocationById(id);
+            this.locationIds.add(id);
+            this.locationTypes.add(location != null ? location.getType() : null);
+        }
+    }
+
+    public long getFromId() {
+        return fromId;
+    }
+
+    public long getToId() {
+        return toId;
+    }
+
+    public int getHops() {
+        return hops;
+    }
+
+    public List<Long> getLocationIds() {
+        return locationIds;
+    }
+
+    public List<String> getLocationTypes() {
+        return locationTypes;
+    }
+}
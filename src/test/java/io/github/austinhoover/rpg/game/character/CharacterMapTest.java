@@ -0,0 +1,49 @@
+package io.github.austinhoover.rpg.game.character;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class CharacterMapTest {
+
+    @Test
+    public void testOccupancy_FollowsMoves() {
+        CharacterMap map = new CharacterMap();
+        Character smith = Character.create(map, "Aelar", "blacksmith", "male", 3);
+        Character baker = Character.create(map, "Brisa", "baker", "female", 3);
+        Character guard = Character.create(map, "Caelum", "guard", "male", 4);
+        assertArrayEquals(new long[]{smith.getId(), baker.getId()}, map.getCharacterIdsAt(3));
+        assertEquals(List.of(guard), map.getCharactersAt(4));
+
+        baker.moveToLocation(4, map);
+        assertEquals(4, baker.getCurrentLocationId());
+        assertEquals(List.of(smith), map.getCharactersAt(3));
+        assertEquals(List.of(baker, guard), map.getCharactersAt(4));
+        assertEquals(0, map.countCharactersAt(5));
+    }
+
+    @Test
+    public void testFindCharactersAt_MatchesNamesAndRoles() {
+        CharacterMap map = new CharacterMap();
+        Character smith = Character.create(map, "Aelar Stonehand", "blacksmith", "male", 3);
+        Character first = Character.create(map, "Brisa", "guard", "female", 3);
+        Character second = Character.create(map, "Caelum", "guard", "male", 3);
+        Character elsewhere = Character.create(map, "Aelara", "baker", "female", 4);
+
+        assertEquals(List.of(smith), map.findCharactersAt(3, "aelar stonehand"));
+        assertEquals(List.of(smith), map.findCharactersAt(3, "Stonehand"));
+        assertEquals(List.of(smith), map.findCharactersAt(3, "black"));
+        assertEquals(List.of(smith), map.findCharactersAt(3, "Aelr"));
+        assertEquals(List.of(first, second), map.findCharactersAt(3, "guard"));
+        assertEquals(List.of(first, second), map.findCharactersAt(3, "gaurd"));
+        assertEquals(List.of(), map.findCharactersAt(3, "baker"));
+        assertEquals(List.of(elsewhere), map.findCharactersAt(4, "Aelara"));
+
+        second.moveToLocation(4, map);
+        assertEquals(List.of(first), map.findCharactersAt(3, "guard"));
+        assertEquals(List.of(second), map.findCharactersAt(4, "caelum"));
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.austinhoover.rpg.game.location;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LocationGraphTest {
+
+    @Test
+    public void testAddEdge_KeepsOrderAcrossCompaction() {
+        LocationGraph graph = new LocationGraph();
+        assertTrue(graph.addEdge(3, 1));
+        assertTrue(graph.addEdge(3, 0));
+        assertFalse(graph.addEdge(3, 1));
+        graph.compact();
+        assertTrue(graph.addEdge(3, 7));
+        assertTrue(graph.addEdge(9, 3));
+
+        assertArrayEquals(new long[]{1, 0, 7}, graph.getNeighbors(3));
+        assertEquals(3, graph.getDegree(3));
+        assertEquals(7, graph.getNeighbor(3, 2));
+        assertArrayEquals(new long[]{3}, graph.getNeighbors(9));
+        assertArrayEquals(new long[0], graph.getNeighbors(4));
+        assertTrue(graph.hasEdge(3, 0));
+        assertFalse(graph.hasEdge(0, 3));
+        assertEquals(4, graph.getEdgeCount());
+    }
+
+    @Test
+    public void testAddEdge_MergesOverflowIntoRows() {
+        LocationGraph graph = new LocationGraph();
+        for (long node = 0; node < 200; node++) {
+            graph.addEdge(node, (node + 1) % 200);
+            graph.addEdge(node, (node + 7) % 200);
+        }
+        for (long node = 0; node < 200; node++) {
+            List<Long> neighbors = new ArrayList<>();
+            graph.forEachNeighbor(node, neighbors::add);
+            assertEquals(List.of((node + 1) % 200, (node + 7) % 200), neighbors);
+        }
+    }
+
+    @Test
+    public void testLocation_BackedByGraph() {
+        LocationMap map = new LocationMap();
+        Location square = Location.create(map, "square", "", 0);
+        Location tavern = Location.create(map, "tavern", "", 0);
+        Location alley = Location.create(map, "alley", "", 0);
+        square.addNeighbor(tavern);
+        square.addNeighbor(alley);
+        square.addNeighbor(tavern);
+
+        assertEquals(List.of(tavern, alley), square.getNeighbors(map));
+        assertEquals(List.of(square.getId()), tavern.getNeighborIds());
+        assertTrue(alley.hasNeighbor(square.getId()));
+        assertEquals(alley, square.findConnectionTo(map, "Alley"));
+        assertEquals(2, map.getGraph().getDegree(square.getId()));
+    }
+}
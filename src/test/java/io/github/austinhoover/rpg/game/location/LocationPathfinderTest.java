@@ -0,0 +1,124 @@
+package io.github.austinhoover.rpg.game.location;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LocationPathfinderTest {
+
+    /**
+     * Connects two locations both ways
+     */
+    private void connect(LocationGraph graph, long a, long b) {
+        graph.addEdge(a, b);
+        graph.addEdge(b, a);
+    }
+
+    /**
+     * Counts hops with a plain breadth first search
+     */
+    private int[] breadthFirst(LocationGraph graph, int start) {
+        int[] rVal = new int[graph.getNodeBound()];
+        Arrays.fill(rVal, -1);
+        rVal[start] = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (long neighbor : graph.getNeighbors(node)) {
+                if (rVal[(int) neighbor] < 0) {
+                    rVal[(int) neighbor] = rVal[node] + 1;
+                    queue.add((int) neighbor);
+                }
+            }
+        }
+        return rVal;
+    }
+
+    @Test
+    public void testFindRoute_MatchesBreadthFirst() {
+        Random random = new Random(5);
+        LocationGraph graph = new LocationGraph();
+        // two separate parts, each a random tree with a few extra connections
+        for (int node = 1; node < 500; node++) {
+            this.connect(graph, node, random.nextInt(node));
+        }
+        for (int node = 501; node < 600; node++) {
+            this.connect(graph, node, 500 + random.nextInt(node - 500));
+        }
+        for (int i = 0; i < 100; i++) {
+            this.connect(graph, random.nextInt(500), random.nextInt(500));
+        }
+        LocationPathfinder pathfinder = new LocationPathfinder(graph);
+        for (int start = 0; start < 600; start += 37) {
+            int[] expected = this.breadthFirst(graph, start);
+            for (int end = 0; end < 600; end += 13) {
+                long[] route = pathfinder.findRoute(start, end);
+                if (expected[end] < 0) {
+                    assertNull(route);
+                    continue;
+                }
+                assertEquals(expected[end], route.length - 1);
+                assertEquals(start, route[0]);
+                assertEquals(end, route[route.length - 1]);
+                for (int i = 1; i < route.length; i++) {
+                    assertTrue(graph.hasEdge(route[i - 1], route[i]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFindRoute_FollowsGraphChanges() {
+        LocationGraph graph = new LocationGraph();
+        for (int node = 1; node < 6; node++) {
+            this.connect(graph, node - 1, node);
+        }
+        LocationPathfinder pathfinder = new LocationPathfinder(graph);
+        assertArrayEquals(new long[]{0, 1, 2, 3, 4, 5}, pathfinder.findRoute(0, 5));
+        this.connect(graph, 1, 5);
+        assertArrayEquals(new long[]{0, 1, 5}, pathfinder.findRoute(0, 5));
+        assertEquals(-1, pathfinder.getDistance(0, 9));
+    }
+
+    @Test
+    public void testFindRoute_UpdatesLandmarksForNewEdges() {
+        Random random = new Random(11);
+        LocationGraph graph = new LocationGraph();
+        for (int node = 1; node < 400; node++) {
+            this.connect(graph, node, random.nextInt(node));
+        }
+        for (int node = 401; node < 500; node++) {
+            this.connect(graph, node, 400 + random.nextInt(node - 400));
+        }
+        LocationPathfinder pathfinder = new LocationPathfinder(graph);
+        long[] landmarks = pathfinder.getLandmarks();
+        for (int round = 0; round < 20; round++) {
+            // fill the cache, then add a few edges, joining the two parts and adding new locations along the way
+            for (int start = 0; start < 500; start += 41) {
+                for (int end = 0; end < 500; end += 17) {
+                    pathfinder.findRoute(start, end);
+                }
+            }
+            this.connect(graph, random.nextInt(500), random.nextInt(500));
+            if (round % 5 == 4) {
+                this.connect(graph, random.nextInt(500), 500 + round);
+            }
+            for (int start = 0; start < graph.getNodeBound(); start += 41) {
+                int[] expected = this.breadthFirst(graph, start);
+                for (int end = 0; end < graph.getNodeBound(); end += 17) {
+                    assertEquals(expected[end], pathfinder.getDistance(start, end));
+                }
+            }
+        }
+        // the edges were few enough that the landmarks were updated rather than picked again
+        assertArrayEquals(landmarks, pathfinder.getLandmarks());
+    }
+}
@@ -102,4 +102,19 @@ public class LocationTest {
         assertTrue(result.contains("alleyway"));
         assertTrue(result.contains("warehouse"));
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testAddNeighbor_StoredInGraphOnly() {
+        LocationMap map = new LocationMap();
+        Location a = Location.create(map, "town", "A town", 0);
+        Location b = Location.create(map, "village", "A village", 0);
+        a.addNeighbor(b);
+        assertTrue(a.hasNeighbor(b.getId()));
+        assertEquals(List.of(a.getId()), b.getNeighborIds());
+        assertTrue(a.getSavedNeighborIds().isEmpty());
+
+        // filled in only when the world is saved as json
+        map.syncSavedNeighbors();
+        assertEquals(List.of(b.getId()), a.getSavedNeighborIds());
+    }
+}
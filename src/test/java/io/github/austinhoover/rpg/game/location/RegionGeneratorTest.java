@@ -0,0 +1,101 @@
+package io.github.austinhoover.rpg.game.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.austinhoover.rpg.game.character.Character;
+import io.github.austinhoover.rpg.game.model.DefaultGameData;
+import io.github.austinhoover.rpg.game.name.NameSource;
+import io.github.austinhoover.rpg.game.world.World;
+
+public class RegionGeneratorTest {
+
+    private NameSource previousSource;
+
+    @Before
+    public void setUp() {
+        previousSource = RegionGenerator.getNameSource();
+        RegionGenerator.setNameSource(NameSource.SYNTHESIZED);
+    }
+
+    @After
+    public void tearDown() {
+        RegionGenerator.setNameSource(previousSource);
+    }
+
+    /**
+     * Visits every location of a world in id order, generating its residents
+     */
+    private World visitAll(World world) {
+        Location location;
+        for (long id = 0; (location = world.getLocationMap().getLocationById(id)) != null; id++) {
+            RegionGenerator.ensureResidents(world, location);
+        }
+        return world;
+    }
+
+    /**
+     * Describes every character of a world in id order
+     */
+    private List<String> describeCharacters(World world) {
+        List<Character> characters = new ArrayList<>(world.getCharacterMap().getAllCharacters());
+        characters.sort(Comparator.comparingLong(Character::getId));
+        List<String> rVal = new ArrayList<>();
+        for (Character character : characters) {
+            rVal.add(character.getId() + " " + character.getName() + " " + character.getRole() + " " + character.getGender() + " " + character.getCurrentLocationId());
+        }
+        return rVal;
+    }
+
+    @Test
+    public void testGenerateContinent_SameSeedSameWorld() {
+        DefaultGameData data = DefaultGameData.loadFromFile("data/defaultData.json");
+        World first = visitAll(new World(data, 42L));
+        World second = visitAll(new World(data, 42L));
+        List<String> firstCharacters = describeCharacters(first);
+        assertTrue(firstCharacters.size() > 0);
+        assertEquals(firstCharacters, describeCharacters(second));
+        for (long id = 0; id < first.getRegionMap().getAllRegions().size(); id++) {
+            assertEquals(first.getRegionMap().getRegionById(id).get().getName(), second.getRegionMap().getRegionById(id).get().getName());
+        }
+        assertNotEquals(firstCharacters, describeCharacters(visitAll(new World(data, 43L))));
+    }
+
+    @Test
+    public void testEnsureResidents_OnlyOnFirstVisit() {
+        World world = new World(DefaultGameData.loadFromFile("data/defaultData.json"), 42L);
+        assertEquals(0, world.getCharacterMap().getAllCharacters().size());
+        Location town = null;
+        for (long id = 0; town == null; id++) {
+            Location location = world.getLocationMap().getLocationById(id);
+            if (location.hasPendingResidents()) {
+                town = location;
+            }
+        }
+        RegionGenerator.ensureResidents(world, town);
+        int residents = world.getCharacterMap().countCharactersAt(town.getId());
+        assertTrue(residents >= 3);
+        assertEquals(residents, world.getCharacterMap().getAllCharacters().size());
+        RegionGenerator.ensureResidents(world, town);
+        assertEquals(residents, world.getCharacterMap().getAllCharacters().size());
+    }
+
+    @Test
+    public void testGenerateContinent_NamesAreUnique() {
+        World world = visitAll(new World(DefaultGameData.loadFromFile("data/defaultData.json"), 7L));
+        HashSet<String> names = new HashSet<>();
+        for (Character character : world.getCharacterMap().getAllCharacters()) {
+            assertTrue(names.add(character.getName().toLowerCase()));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.austinhoover.rpg.game.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import io.github.austinhoover.rpg.game.world.World;
+
+public class RegionMapTest {
+
+    @Test
+    public void testContainment_CoversSubregions() {
+        World world = new World();
+        RegionMap regions = world.getRegionMap();
+        LocationMap locations = world.getLocationMap();
+        Region continent = Region.create(regions, "continent", Optional.empty());
+        Region territory = Region.create(regions, "territory", Optional.empty());
+        Region town = Region.create(regions, "town", Optional.empty());
+        Region otherTerritory = Region.create(regions, "territory", Optional.empty());
+        continent.addSubregion(territory);
+        territory.addSubregion(town);
+        continent.addSubregion(otherTerritory);
+
+        Location capital = Location.create(locations, "capital", "", territory.getId());
+        territory.addLocation(capital);
+        Location square = Location.create(locations, "town", "", town.getId());
+        town.addLocation(square);
+        Location fort = Location.create(locations, "fort", "", otherTerritory.getId());
+        otherTerritory.addLocation(fort);
+
+        assertEquals(Optional.of(town), regions.findRegionForLocation(square));
+        assertTrue(continent.containsLocation(square));
+        assertTrue(territory.containsLocation(square));
+        assertFalse(otherTerritory.containsLocation(square));
+        assertFalse(town.containsLocation(capital));
+        assertEquals(Set.of(capital.getId(), square.getId(), fort.getId()), continent.getAllLocationIds());
+        assertEquals(Set.of(capital.getId(), square.getId()), territory.getAllLocationIds());
+
+        // moving the town keeps the index in step with the tree
+        otherTerritory.addSubregion(town);
+        assertFalse(territory.containsLocation(square));
+        assertTrue(otherTerritory.containsLocation(square));
+        assertEquals(Set.of(capital.getId()), territory.getAllLocationIds());
+
+        town.removeLocation(square);
+        assertEquals(Optional.empty(), regions.findRegionForLocation(square));
+        assertFalse(continent.containsLocation(square));
+    }
+
+    @Test
+    public void testContainment_AfterLoad() throws Exception {
+        World world = new World();
+        Region continent = Region.create(world.getRegionMap(), "continent", Optional.empty());
+        Region town = Region.create(world.getRegionMap(), "town", Optional.empty());
+        continent.addSubregion(town);
+        Location square = Location.create(world.getLocationMap(), "town", "", town.getId());
+        town.addLocation(square);
+
+        Path file = Files.createTempFile("world", ".json");
+        try {
+            Files.writeString(file, new Gson().toJson(world));
+            World loaded = World.loadWorld(file.toString());
+            Region loadedContinent = loaded.getRegionMap().getTopLevelRegion();
+            Location loadedSquare = loaded.getLocationMap().getLocationById(square.getId());
+            assertTrue(loadedContinent.containsLocation(loadedSquare));
+            assertEquals(town.getId(), loaded.getRegionMap().findRegionForLocation(loadedSquare).get().getId());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFindRegionNamedIn_LongestWholeName() {
+        RegionMap regions = new RegionMap();
+        Region continent = Region.create(regions, "continent", Optional.of("Elves"));
+        Region kingdom = Region.create(regions, "territory", Optional.of("Kingdom of Elves"));
+        Region shelf = Region.create(regions, "town", Optional.of("Shelf"));
+        continent.addSubregion(kingdom);
+
+        assertEquals(Optional.of(kingdom), regions.findRegionNamedIn("the capital of the kingdom of elves!"));
+        assertEquals(Optional.of(continent), regions.findRegionNamedIn("somewhere among the elves"));
+        assertEquals(Optional.empty(), regions.findRegionNamedIn("the shelves"));
+
+        shelf.setName(Optional.of("Elf Harbor"));
+        assertEquals(Optional.of(shelf), regions.findRegionNamedIn("elf harbor"));
+        regions.removeRegion(kingdom);
+        assertEquals(Optional.of(continent), regions.findRegionNamedIn("the kingdom of elves"));
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.austinhoover.rpg.game.name;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class NameAllocatorTest {
+
+    @Test
+    public void testTryReserve_IgnoresCase() {
+        NameAllocator allocator = new NameAllocator();
+        assertTrue(allocator.tryReserve("Aelar"));
+        assertFalse(allocator.tryReserve("aelar"));
+        assertTrue(allocator.isTaken("AELAR"));
+        assertFalse(allocator.isTaken("Brisa"));
+        assertEquals(1, allocator.size());
+    }
+
+    @Test
+    public void testTryReserve_NoFalseNegativesAfterGrowing() {
+        NameAllocator allocator = new NameAllocator();
+        int count = 50000;
+        for (int i = 0; i < count; i++) {
+            assertTrue(allocator.tryReserve("Name" + i));
+        }
+        for (int i = 0; i < count; i++) {
+            assertTrue(allocator.isTaken("name" + i));
+        }
+        for (int i = count; i < 2 * count; i++) {
+            assertFalse(allocator.isTaken("Name" + i));
+        }
+        // the filter should rule out the vast majority of unused names by itself
+        assertTrue(allocator.getFalsePositives() < count / 20);
+        assertEquals(count, allocator.size());
+    }
+
+    @Test
+    public void testTryReserve_ComparesWholeNames() {
+        NameAllocator allocator = new NameAllocator();
+        assertTrue(allocator.tryReserve("\u00c9lise"));
+        assertTrue(allocator.isTaken("\u00e9LISE"));
+        assertFalse(allocator.isTaken("\u00c9lis"));
+        assertFalse(allocator.isTaken("\u00c9lisee"));
+        assertTrue(allocator.tryReserve(""));
+        assertFalse(allocator.tryReserve(""));
+        assertEquals("\u00c9lise II", allocator.reserveNumbered("\u00c9lise"));
+        assertEquals(3, allocator.size());
+    }
+}
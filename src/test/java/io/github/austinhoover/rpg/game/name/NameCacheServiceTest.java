@@ -0,0 +1,27 @@
+package io.github.austinhoover.rpg.game.name;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class NameCacheServiceTest {
+    @Test
+    public void testParseNameList_NumberedList() {
+        String response = "1. Aldric\n2) Brenna\n3 - Corwin\n\n4.Dara";
+        assertEquals(List.of("Aldric", "Brenna", "Corwin", "Dara"), NameCacheService.parseNameList(response));
+    }
+
+    @Test
+    public void testParseNameList_StripsDecoration() {
+        String response = "Here are some names:\n**1.** \"Elowen\"\n- Fenwick Thorne (a blacksmith's name)\n3. Garrick - strong and proud";
+        assertEquals(List.of("Elowen", "Fenwick Thorne", "Garrick"), NameCacheService.parseNameList(response));
+    }
+
+    @Test
+    public void testParseNameList_DropsDuplicatesAndSentences() {
+        String response = "1. Hild\n2. hild\n3. This is not really a name at all, it is a sentence\n4. Ivo";
+        assertEquals(List.of("Hild", "Ivo"), NameCacheService.parseNameList(response));
+    }
+}
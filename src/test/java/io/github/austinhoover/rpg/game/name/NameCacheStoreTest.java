@@ -0,0 +1,107 @@
+package io.github.austinhoover.rpg.game.name;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class NameCacheStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testLoad_ReplaysLogOverSnapshot() {
+        Path directory = folder.getRoot().toPath();
+        NameCacheStore store = new NameCacheStore(directory);
+        store.append("elf", List.of("Aelar", "Brisa"));
+        store.compact(Map.of("elf", List.of("Aelar", "Brisa")));
+        store.append("elf", List.of("Caelum"));
+        store.append("dwarf", List.of("Dorn"));
+        store.close();
+
+        Map<String, List<String>> loaded = new NameCacheStore(directory).load();
+        assertEquals(List.of("Aelar", "Brisa", "Caelum"), loaded.get("elf"));
+        assertEquals(List.of("Dorn"), loaded.get("dwarf"));
+    }
+
+    @Test
+    public void testLoad_DropsNamesAlreadyInSnapshot() {
+        Path directory = folder.getRoot().toPath();
+        NameCacheStore store = new NameCacheStore(directory);
+        // as if the process died after writing the snapshot but before clearing the log
+        store.append("elf", List.of("Aelar", "Brisa"));
+        store.close();
+        new NameCacheStore(directory).compact(Map.of("elf", List.of("Aelar", "Brisa")));
+        store.append("elf", List.of("aelar", "Caelum"));
+        store.close();
+
+        assertEquals(List.of("Aelar", "Brisa", "Caelum"), new NameCacheStore(directory).load().get("elf"));
+    }
+
+    @Test
+    public void testLoad_IgnoresTornLogEntry() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        NameCacheStore store = new NameCacheStore(directory);
+        store.append("elf", List.of("Aelar"));
+        store.close();
+        Files.writeString(directory.resolve("name_cache.log"), "{\"q\":\"elf\",\"n\":[\"Bri", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        NameCacheStore reloaded = new NameCacheStore(directory);
+        assertEquals(List.of("Aelar"), reloaded.load().get("elf"));
+        // the torn entry is compacted away so new entries aren't glued onto it
+        assertFalse(Files.exists(directory.resolve("name_cache.log")));
+        reloaded.append("elf", List.of("Caelum"));
+        reloaded.close();
+        assertEquals(List.of("Aelar", "Caelum"), new NameCacheStore(directory).load().get("elf"));
+    }
+
+    @Test
+    public void testCompact_KeepsNamesAppendedWhileSnapshotting() throws InterruptedException {
+        Path directory = folder.getRoot().toPath();
+        NameCacheStore store = new NameCacheStore(directory);
+        Thread appender = new Thread(() -> store.append("dwarf", List.of("Dorn")));
+        store.compact(() -> {
+            // a refill logging names the snapshot was taken without
+            appender.start();
+            try {
+                appender.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Map.of("elf", List.of("Aelar"));
+        });
+        appender.join();
+        store.close();
+
+        Map<String, List<String>> loaded = new NameCacheStore(directory).load();
+        assertEquals(List.of("Aelar"), loaded.get("elf"));
+        assertEquals(List.of("Dorn"), loaded.get("dwarf"));
+    }
+
+    @Test
+    public void testAppend_ReportsWhenCompactionIsDue() {
+        NameCacheStore store = new NameCacheStore(folder.getRoot().toPath());
+        boolean due = false;
+        int appends = 0;
+        while (!due) {
+            due = store.append("elf", List.of("Name" + appends));
+            appends++;
+            assertTrue(appends < 10000);
+        }
+        store.compact(Map.of());
+        assertEquals(0, store.getLogEntries());
+        store.close();
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.austinhoover.rpg.game.name;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NameSynthesizerTest {
+
+    private static final List<String> NAMES = List.of(
+        "Aelar", "Aelindra", "Caelum", "Elaria", "Faelar", "Galinndan", "Ilyrana", "Laelithar",
+        "Mialee", "Naevys", "Quelenna", "Sariel", "Thamior", "Valanthe", "Aerdrie", "Theren"
+    );
+
+    @Test
+    public void testGenerate_ProducesNewNames() {
+        NameSynthesizer synthesizer = new NameSynthesizer(NAMES);
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            String name = synthesizer.generate(random);
+            assertNotNull(name);
+            assertFalse(NAMES.stream().anyMatch(name::equalsIgnoreCase));
+            assertTrue(java.lang.Character.isUpperCase(name.charAt(0)));
+            assertTrue(name.length() >= 5 && name.length() <= 9);
+            assertEquals(name.substring(1), name.substring(1).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    @Test
+    public void testGenerate_SameSeedSameNames() {
+        NameSynthesizer synthesizer = new NameSynthesizer(NAMES);
+        Random first = new Random(7);
+        Random second = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(synthesizer.generate(first), synthesizer.generate(second));
+        }
+    }
+
+    @Test
+    public void testGenerate_NoTrainingNames() {
+        assertNull(new NameSynthesizer(List.of()).generate(new Random(1)));
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.austinhoover.rpg.game.organization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import io.github.austinhoover.rpg.game.character.Character;
+import io.github.austinhoover.rpg.game.character.CharacterMap;
+
+public class OrganizationMapTest {
+
+    @Test
+    public void testMembership_IndexedBothWays() {
+        CharacterMap characters = new CharacterMap();
+        Character anna = Character.create(characters, "Anna", "guard", "female", 1);
+        Character bram = Character.create(characters, "Bram", "smith", "male", 1);
+        Character cole = Character.create(characters, "Cole", "guard", "male", 2);
+        OrganizationMap map = new OrganizationMap();
+        Organization watch = Organization.create(map, "City Watch");
+        Organization guild = Organization.create(map, "Smiths' Guild");
+        watch.addMember(anna);
+        watch.addMember(cole);
+        guild.addMember(anna);
+        guild.addMember(bram);
+
+        assertEquals(List.of(watch, guild), map.getOrganizationsOf(anna.getId()));
+        assertArrayEquals(new long[]{anna.getId()}, map.getSharedMembers(watch, guild).toArray());
+        assertEquals(3, map.getMembersOfAny(List.of(watch, guild)).size());
+        assertArrayEquals(new long[]{anna.getId()}, map.getMembersAt(watch, 1, characters).toArray());
+
+        guild.removeMember(anna);
+        assertEquals(List.of(watch), map.getOrganizationsOf(anna.getId()));
+        assertFalse(guild.isMember(anna));
+        assertTrue(guild.isMember(bram));
+    }
+
+    @Test
+    public void testRebuildIndices_AfterLoading() {
+        CharacterMap characters = new CharacterMap();
+        Character anna = Character.create(characters, "Anna", "guard", "female", 1);
+        OrganizationMap map = new OrganizationMap();
+        Organization watch = Organization.create(map, "City Watch");
+        watch.addMember(anna);
+
+        Gson gson = new Gson();
+        OrganizationMap loaded = gson.fromJson(gson.toJson(map), OrganizationMap.class);
+        loaded.rebuildIndices();
+        Organization loadedWatch = loaded.getOrganizationById(watch.getId());
+        assertTrue(loadedWatch.isMember(anna));
+        assertEquals(List.of(loadedWatch), loaded.getOrganizationsOf(anna.getId()));
+
+        Character bram = Character.create(characters, "Bram", "smith", "male", 1);
+        loadedWatch.addMember(bram);
+        assertEquals(List.of(loadedWatch), loaded.getOrganizationsOf(bram.getId()));
+    }
+}
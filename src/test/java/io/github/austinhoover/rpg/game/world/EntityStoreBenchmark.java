@@ -0,0 +1,91 @@
+package io.github.austinhoover.rpg.game.world;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares lookups and iteration of an {@link EntityStore} against the {@code HashMap<Long, T>} it replaced.
+ * Not a unit test, run it by hand with: java -cp target/classes:target/test-classes io.github.austinhoover.rpg.game.world.EntityStoreBenchmark
+ */
+public class EntityStoreBenchmark {
+
+    /**
+     * Number of entities stored
+     */
+    private static final int ENTITIES = 1_000_000;
+
+    /**
+     * Number of random lookups timed per round
+     */
+    private static final int LOOKUPS = 10_000_000;
+
+    /**
+     * Number of rounds, the first ones warm up the jit
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Stand-in for a game entity
+     */
+    private static class Entity {
+        private final long id;
+
+        private Entity(long id) {
+            this.id = id;
+        }
+    }
+
+    public static void main(String[] args) {
+        Map<Long, Entity> map = new HashMap<Long, Entity>();
+        EntityStore<Entity> store = new EntityStore<Entity>();
+        for (long i = 0; i < ENTITIES; i++) {
+            Entity entity = new Entity(i);
+            map.put(i, entity);
+            store.put(store.allocateId(), entity);
+        }
+        long[] ids = new long[LOOKUPS];
+        Random random = new Random(1);
+        for (int i = 0; i < LOOKUPS; i++) {
+            ids[i] = random.nextInt(ENTITIES);
+        }
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long checksum = 0;
+
+            long start = System.nanoTime();
+            for (long id : ids) {
+                checksum += map.get(id).id;
+            }
+            long mapLookup = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (long id : ids) {
+                checksum += store.get(id).id;
+            }
+            long storeLookup = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Entity entity : map.values()) {
+                checksum += entity.id;
+            }
+            long mapIterate = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Entity entity : store.values()) {
+                checksum += entity.id;
+            }
+            long storeIterate = System.nanoTime() - start;
+
+            System.out.println(String.format(
+                "round %d: lookup map %.1f ns, store %.1f ns | iterate map %.1f ms, store %.1f ms (checksum %d)",
+                round,
+                (double) mapLookup / LOOKUPS,
+                (double) storeLookup / LOOKUPS,
+                mapIterate / 1e6,
+                storeIterate / 1e6,
+                checksum
+            ));
+        }
+    }
+}
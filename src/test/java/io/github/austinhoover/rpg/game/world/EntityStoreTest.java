@@ -0,0 +1,58 @@
+package io.github.austinhoover.rpg.game.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+public class EntityStoreTest {
+
+    @Test
+    public void testAdd_IdsAreSequentialAcrossChunks() {
+        EntityStore<String> store = new EntityStore<>();
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, store.add("entity " + i));
+        }
+        assertEquals(10000, store.size());
+        assertEquals("entity 0", store.get(0));
+        assertEquals("entity 4096", store.get(4096));
+        assertEquals("entity 9999", store.get(9999));
+        assertNull(store.get(10000));
+        assertNull(store.get(-1));
+    }
+
+    @Test
+    public void testRemove_IdIsNotReused() {
+        EntityStore<String> store = new EntityStore<>();
+        store.add("a");
+        store.add("b");
+        assertEquals("a", store.remove(0));
+        assertNull(store.get(0));
+        assertEquals(1, store.size());
+        assertEquals(2, store.add("c"));
+        List<String> values = new ArrayList<>(store.values());
+        assertEquals(List.of("b", "c"), values);
+    }
+
+    @Test
+    public void testGson_RoundTripsAsIdObject() {
+        EntityStore<String> store = new EntityStore<>();
+        store.add("a");
+        store.add("b");
+        store.remove(0);
+        Gson gson = new Gson();
+        String json = gson.toJson(store, new TypeToken<EntityStore<String>>(){}.getType());
+        assertEquals("{\"1\":\"b\"}", json);
+        EntityStore<String> loaded = gson.fromJson(json, new TypeToken<EntityStore<String>>(){}.getType());
+        assertEquals("b", loaded.get(1));
+        assertEquals(1, loaded.size());
+        // ids already loaded are not handed out again
+        assertEquals(2, loaded.add("c"));
+    }
+}
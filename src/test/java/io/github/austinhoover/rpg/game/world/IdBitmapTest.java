@@ -0,0 +1,93 @@
+package io.github.austinhoover.rpg.game.world;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+public class IdBitmapTest {
+
+    /**
+     * Copies a set of ids into an array
+     */
+    private long[] toArray(TreeSet<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Fills a bitmap and a plain set with the same ids: a dense run, a sparse run, and a few far apart
+     */
+    private IdBitmap fill(Random random, TreeSet<Long> expected, long denseStart) {
+        IdBitmap rVal = new IdBitmap();
+        for (int i = 0; i < 20000; i++) {
+            long id = denseStart + random.nextInt(30000);
+            assertEquals(expected.add(id), rVal.add(id));
+        }
+        for (int i = 0; i < 500; i++) {
+            long id = 200000 + random.nextInt(60000);
+            assertEquals(expected.add(id), rVal.add(id));
+        }
+        for (int i = 0; i < 50; i++) {
+            long id = random.nextInt(Integer.MAX_VALUE);
+            assertEquals(expected.add(id), rVal.add(id));
+        }
+        return rVal;
+    }
+
+    @Test
+    public void testAddRemove_MatchesPlainSet() {
+        Random random = new Random(3);
+        TreeSet<Long> expected = new TreeSet<>();
+        IdBitmap bitmap = this.fill(random, expected, 0);
+        // empty the dense run until it turns back into an array
+        for (int i = 0; i < 60000; i++) {
+            long id = random.nextInt(30000);
+            assertEquals(expected.remove(id), bitmap.remove(id));
+        }
+        assertEquals(expected.size(), bitmap.size());
+        assertArrayEquals(this.toArray(expected), bitmap.toArray());
+        for (long id = 0; id < 70000; id++) {
+            assertEquals(expected.contains(id), bitmap.contains(id));
+        }
+        assertFalse(bitmap.contains(-1));
+        assertFalse(bitmap.remove(1L << 40));
+    }
+
+    @Test
+    public void testSetOperations_MatchPlainSets() {
+        Random random = new Random(8);
+        TreeSet<Long> left = new TreeSet<>();
+        TreeSet<Long> right = new TreeSet<>();
+        IdBitmap a = this.fill(random, left, 0);
+        IdBitmap b = this.fill(random, right, 10000);
+
+        TreeSet<Long> both = new TreeSet<>(left);
+        both.retainAll(right);
+        TreeSet<Long> either = new TreeSet<>(left);
+        either.addAll(right);
+        TreeSet<Long> onlyLeft = new TreeSet<>(left);
+        onlyLeft.removeAll(right);
+
+        assertArrayEquals(this.toArray(both), IdBitmap.and(a, b).toArray());
+        assertEquals(both.size(), IdBitmap.andCardinality(a, b));
+        assertArrayEquals(this.toArray(either), IdBitmap.or(a, b).toArray());
+        assertArrayEquals(this.toArray(onlyLeft), IdBitmap.andNot(a, b).toArray());
+        assertEquals(either.size(), IdBitmap.or(a, b).size());
+        assertTrue(IdBitmap.andNot(a, a).isEmpty());
+    }
+
+    @Test
+    public void testGson_WritesArrayOfIds() {
+        Gson gson = new Gson();
+        IdBitmap bitmap = IdBitmap.of(70000, 3, 5);
+        assertEquals("[3,5,70000]", gson.toJson(bitmap));
+        assertEquals(bitmap, gson.fromJson("[5,70000,3]", IdBitmap.class));
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.austinhoover.rpg.game.world;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class LongHashSetTest {
+
+    @Test
+    public void testAddRemove_IncludingZero() {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(0));
+        assertTrue(set.add(5));
+        assertFalse(set.add(5));
+        assertEquals(2, set.size());
+        assertArrayEquals(new long[]{0, 5}, set.toSortedArray());
+        assertTrue(set.remove(0));
+        assertFalse(set.contains(0));
+        assertTrue(set.contains(5));
+        assertFalse(set.remove(7));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testMatchesHashSetUnderRandomChurn() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 200000; i++) {
+            long value = random.nextInt(5000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), set.add(value));
+            } else {
+                assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long value = 0; value < 5000; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package io.github.austinhoover.rpg.game.world;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.github.austinhoover.rpg.game.character.Character;
+import io.github.austinhoover.rpg.game.location.Location;
+import io.github.austinhoover.rpg.game.location.Region;
+import io.github.austinhoover.rpg.game.location.RegionGenerator;
+import io.github.austinhoover.rpg.game.model.DefaultGameData;
+import io.github.austinhoover.rpg.game.name.NameSource;
+import io.github.austinhoover.rpg.game.organization.Organization;
+import io.github.austinhoover.rpg.game.politics.PoliticalState;
+import io.github.austinhoover.rpg.game.race.Race;
+
+public class WorldSnapshotTest {
+
+    private NameSource previousSource;
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        previousSource = RegionGenerator.getNameSource();
+        RegionGenerator.setNameSource(NameSource.SYNTHESIZED);
+        file = Files.createTempFile("world", ".snapshot");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RegionGenerator.setNameSource(previousSource);
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Generates a world with residents in every other location and an organization
+     */
+    private World generate() {
+        World rVal = new World(DefaultGameData.loadFromFile("data/defaultData.json"), 42L);
+        Location location;
+        for (long id = 0; (location = rVal.getLocationMap().getLocationById(id)) != null; id += 2) {
+            RegionGenerator.ensureResidents(rVal, location);
+        }
+        rVal.getLocationMap().getLocationById(1).setDiscovered(true);
+        Organization guild = Organization.create(rVal.getOrganizationMap(), "Merchants' Guild");
+        for (Character character : rVal.getCharacterMap().getAllCharacters()) {
+            if (character.getId() % 3 == 0) {
+                guild.addMember(character);
+            }
+        }
+        return rVal;
+    }
+
+    /**
+     * Describes everything in a world, one line per entity
+     */
+    private List<String> describe(World world) {
+        List<String> rVal = new ArrayList<>();
+        rVal.add("seed " + world.getSeed() + " top " + world.getRegionMap().getTopLevelRegion().getId());
+        for (Race race : world.getRaceMap().getAllRaces()) {
+            rVal.add("race " + race.getId() + " " + race.getName());
+        }
+        for (PoliticalState state : world.getPoliticalStateMap().getAllStates()) {
+            rVal.add("state " + state.getId() + " " + state.getName() + " " + state.getRace() + " " + state.getCitizenIds());
+        }
+        for (long id = 0; id < world.getRegionMap().getAllRegions().size(); id++) {
+            Region region = world.getRegionMap().getRegionById(id).get();
+            rVal.add("region " + id + " " + region.getType() + " " + region.getName() + " " + region.getParentRegionId()
+                + " " + region.getLocationIds() + " " + region.getSubregionIds());
+        }
+        Location location;
+        for (long id = 0; (location = world.getLocationMap().getLocationById(id)) != null; id++) {
+            rVal.add("location " + id + " " + location.getType() + " " + location.getDescription() + " " + location.getParentRegionId()
+                + " " + location.hasGeneratedNeighbors() + " " + location.isDiscovered() + " " + location.getResidentSeed()
+                + " " + location.getResidentStateId() + " " + location.getNeighborIds()
+                + " " + world.getRegionMap().findRegionForLocation(location).map(Region::getId));
+        }
+        for (Character character : world.getCharacterMap().getAllCharacters()) {
+            rVal.add("character " + character.getId() + " " + character.getName() + " " + character.getRole() + " " + character.getGender()
+                + " " + character.getCurrentLocationId() + " " + world.getOrganizationMap().getOrganizationIdsOf(character.getId()));
+        }
+        for (Organization organization : world.getOrganizationMap().getAllOrganizations()) {
+            rVal.add("organization " + organization.getId() + " " + organization.getName() + " " + organization.getMemberIds());
+        }
+        return rVal;
+    }
+
+    @Test
+    public void testSnapshot_RoundTrip() {
+        World world = this.generate();
+        world.saveSnapshot(file.toString());
+        World loaded = World.loadSnapshot(file.toString());
+
+        List<String> expected = this.describe(world);
+        assertEquals(expected, this.describe(loaded));
+        long last = world.getLocationMap().getGraph().getNodeBound() - 1;
+        assertArrayEquals(world.getLocationMap().findRoute(0, last), loaded.getLocationMap().findRoute(0, last));
+
+        // new entities carry on from the saved ids, and the loaded indices follow changes
+        Character newcomer = Character.create(loaded.getCharacterMap(), "Newcomer", "bard", "female", 0);
+        assertEquals(world.getCharacterMap().getAllCharacters().size(), newcomer.getId());
+        assertTrue(Arrays.stream(loaded.getCharacterMap().getCharacterIdsAt(0)).anyMatch((long id) -> id == newcomer.getId()));
+        Location first = loaded.getLocationMap().getLocationById(0);
+        first.addNeighbor(loaded.getLocationMap().getLocationById(last));
+        assertEquals(2, loaded.getLocationMap().findRoute(0, last).length);
+
+        // json export still carries the connections of a snapshot-loaded world
+        loaded.saveWorld(file.toString());
+        World reloaded = World.loadWorld(file.toString());
+        assertEquals(first.getNeighborIds(), reloaded.getLocationMap().getLocationById(0).getNeighborIds());
+    }
+
+    @Test
+    public void testLoadSnapshot_RejectsDamagedFiles() throws Exception {
+        this.generate().saveSnapshot(file.toString());
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        this.assertLoadFails();
+
+        byte[] otherVersion = bytes.clone();
+        otherVersion[4] = (byte) (WorldSnapshot.VERSION + 1);
+        Files.write(file, otherVersion);
+        this.assertLoadFails();
+
+        Files.write(file, "{\"seed\": 1}".getBytes());
+        this.assertLoadFails();
+    }
+
+    @Test
+    public void testIdBitmap_RoundTripsContainers() throws Exception {
+        IdBitmap ids = new IdBitmap();
+        for (long id = 0; id < 10000; id++) {
+            ids.add(id);
+        }
+        ids.add(1L << 20);
+        ids.add((1L << 20) + 5);
+        ids.add(0xFFFFFFFFL);
+        try (SnapshotWriter out = new SnapshotWriter(file)) {
+            out.writeIdBitmap(ids);
+            out.writeIdBitmap(new IdBitmap());
+        }
+        SnapshotReader in = new SnapshotReader(ByteBuffer.wrap(Files.readAllBytes(file)));
+        assertEquals(ids, in.readIdBitmap());
+        assertTrue(in.readIdBitmap().isEmpty());
+    }
+
+    @Test
+    public void testReader_RejectsArraysPastTheEnd() {
+        for (int length : new int[]{ Integer.MAX_VALUE, 3, -2 }) {
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(0, length);
+            try {
+                new SnapshotReader(buffer).readLongArray();
+                fail("Read an array of " + length + " longs from 16 bytes");
+            } catch (IOException e) {
+                // expected, without allocating the array first
+            }
+        }
+    }
+
+    /**
+     * Checks that loading the snapshot file fails
+     */
+    private void assertLoadFails() {
+        try {
+            World.loadSnapshot(file.toString());
+            fail("Loaded a damaged snapshot");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof java.io.IOException);
+        }
+    }
+}
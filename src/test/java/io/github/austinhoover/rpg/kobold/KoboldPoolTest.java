@@ -0,0 +1,55 @@
+package io.github.austinhoover.rpg.kobold;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Test;
+
+public class KoboldPoolTest {
+
+    @Test
+    public void testAcquire_PicksLeastOutstanding() {
+        KoboldPool pool = new KoboldPool("127.0.0.1", () -> List.of(5001, 5002, 5003));
+        KoboldEndpoint first = pool.acquire();
+        KoboldEndpoint second = pool.acquire();
+        KoboldEndpoint third = pool.acquire();
+        assertEquals(3, List.of(first.getPort(), second.getPort(), third.getPort()).stream().distinct().count());
+
+        pool.release(second, null);
+        assertEquals(second.getPort(), pool.acquire().getPort());
+    }
+
+    @Test
+    public void testAcquire_AvoidsUnreachableInstance() {
+        KoboldPool pool = new KoboldPool("127.0.0.1", () -> List.of(5001, 5002));
+        KoboldEndpoint endpoint = pool.acquire();
+        pool.release(endpoint, new CompletionException(new ConnectException("refused")));
+        assertFalse(endpoint.isHealthy(System.currentTimeMillis()));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(endpoint.getPort() != pool.acquire().getPort());
+        }
+    }
+
+    @Test
+    public void testAcquire_FallsBackWhenNothingIsHealthy() {
+        KoboldPool pool = new KoboldPool("127.0.0.1", () -> List.of(5001));
+        KoboldEndpoint endpoint = pool.acquire();
+        pool.release(endpoint, new ConnectException("refused"));
+        assertEquals(5001, pool.acquire().getPort());
+    }
+
+    @Test
+    public void testRelease_CancellationIsNotUnhealthy() {
+        KoboldPool pool = new KoboldPool("127.0.0.1", () -> List.of(5001));
+        KoboldEndpoint endpoint = pool.acquire();
+        pool.release(endpoint, new CompletionException(new CancellationException()));
+        assertTrue(endpoint.isHealthy(System.currentTimeMillis()));
+        assertEquals(0, endpoint.getOutstanding());
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.austinhoover.rpg.kobold;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KoboldResponseCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testComputeKey_DependsOnModel() {
+        String body = "{\"prompt\":\"hello\"}";
+        assertEquals(KoboldResponseCache.computeKey("model-a", body), KoboldResponseCache.computeKey("model-a", body));
+        assertNotEquals(KoboldResponseCache.computeKey("model-a", body), KoboldResponseCache.computeKey("model-b", body));
+    }
+
+    @Test
+    public void testGet_MissThenMemoryHit() {
+        KoboldResponseCache cache = new KoboldResponseCache(folder.getRoot().toPath(), 4);
+        String key = KoboldResponseCache.computeKey("model", "body");
+        assertNull(cache.get(key));
+        cache.put(key, "text");
+        assertEquals("text", cache.get(key));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getMemoryHits());
+    }
+
+    @Test
+    public void testPut_EvictsLeastRecentlyUsed() {
+        KoboldResponseCache cache = new KoboldResponseCache(folder.getRoot().toPath(), 2);
+        String first = KoboldResponseCache.computeKey("model", "1");
+        String second = KoboldResponseCache.computeKey("model", "2");
+        String third = KoboldResponseCache.computeKey("model", "3");
+        cache.put(first, "one");
+        cache.put(second, "two");
+        cache.get(first);
+        cache.put(third, "three");
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getMemorySize());
+        // the evicted entry is still served from disk
+        assertEquals("two", cache.get(second));
+        assertEquals(1, cache.getDiskHits());
+    }
+
+    @Test
+    public void testGet_SurvivesRestart() {
+        Path directory = folder.getRoot().toPath();
+        String key = KoboldResponseCache.computeKey("model", "body");
+        new KoboldResponseCache(directory, 4).put(key, "persisted");
+        KoboldResponseCache restarted = new KoboldResponseCache(directory, 4);
+        assertEquals("persisted", restarted.get(key));
+        assertEquals(1, restarted.getDiskHits());
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.austinhoover.rpg.kobold;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+public class KoboldSchedulerTest {
+
+    /**
+     * Names of the generations in the order they were started
+     */
+    private final List<String> started = new ArrayList<>();
+
+    /**
+     * Creates a generation that records when it starts and finishes when the returned future is completed
+     */
+    private Supplier<CompletableFuture<String>> work(String name, CompletableFuture<String> generation) {
+        return () -> {
+            started.add(name);
+            return generation;
+        };
+    }
+
+    @Test
+    public void testSubmit_InteractiveRunsBeforeWaitingBackground() {
+        KoboldScheduler scheduler = new KoboldScheduler(1);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        scheduler.submit(KoboldPriority.BACKGROUND, work("background-1", first));
+        scheduler.submit(KoboldPriority.BACKGROUND, work("background-2", new CompletableFuture<>()));
+        scheduler.submit(KoboldPriority.PREFETCH, work("prefetch", new CompletableFuture<>()));
+        CompletableFuture<String> turn = scheduler.submit(KoboldPriority.INTERACTIVE, work("interactive", CompletableFuture.completedFuture("done")));
+        assertEquals(List.of("background-1"), started);
+
+        first.complete("names");
+        assertEquals("done", turn.join());
+        assertEquals(List.of("background-1", "interactive", "prefetch"), started);
+    }
+
+    @Test
+    public void testSubmit_HoldsBackSlotForInteractive() {
+        KoboldScheduler scheduler = new KoboldScheduler(2);
+        scheduler.submit(KoboldPriority.BACKGROUND, work("background-1", new CompletableFuture<>()));
+        scheduler.submit(KoboldPriority.BACKGROUND, work("background-2", new CompletableFuture<>()));
+        assertEquals(1, scheduler.getRunning());
+        assertEquals(1, scheduler.getQueued(KoboldPriority.BACKGROUND));
+
+        scheduler.submit(KoboldPriority.INTERACTIVE, work("interactive", new CompletableFuture<>()));
+        assertEquals(List.of("background-1", "interactive"), started);
+    }
+
+    @Test
+    public void testSubmit_RejectsWhenQueueFull() {
+        KoboldScheduler scheduler = new KoboldScheduler(1);
+        scheduler.submit(KoboldPriority.INTERACTIVE, work("running", new CompletableFuture<>()));
+        for (int i = 0; i < KoboldPriority.INTERACTIVE.getQueueCapacity(); i++) {
+            scheduler.submit(KoboldPriority.INTERACTIVE, work("queued", new CompletableFuture<>()));
+        }
+        CompletableFuture<String> rejected = scheduler.submit(KoboldPriority.INTERACTIVE, work("rejected", new CompletableFuture<>()));
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.join();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void testCancel_RemovesWaitingGeneration() {
+        KoboldScheduler scheduler = new KoboldScheduler(1);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        scheduler.submit(KoboldPriority.INTERACTIVE, work("first", first));
+        CompletableFuture<String> second = scheduler.submit(KoboldPriority.INTERACTIVE, work("second", new CompletableFuture<>()));
+        second.cancel(true);
+        assertEquals(0, scheduler.getQueued(KoboldPriority.INTERACTIVE));
+
+        first.complete("done");
+        assertEquals(List.of("first"), started);
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    public void testCancel_CancelsRunningGeneration() {
+        KoboldScheduler scheduler = new KoboldScheduler(1);
+        CompletableFuture<String> generation = new CompletableFuture<>();
+        CompletableFuture<String> result = scheduler.submit(KoboldPriority.INTERACTIVE, work("running", generation));
+        result.cancel(true);
+        assertTrue(generation.isCancelled());
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    public void testSubmit_InteractivePreemptsRunningBackground() {
+        KoboldScheduler scheduler = new KoboldScheduler(1);
+        scheduler.setPreemptionEnabled(true);
+        List<CompletableFuture<String>> attempts = new ArrayList<>();
+        CompletableFuture<String> background = scheduler.submit(KoboldPriority.BACKGROUND, () -> {
+            started.add("background");
+            CompletableFuture<String> attempt = new CompletableFuture<>();
+            attempts.add(attempt);
+            return attempt;
+        });
+        CompletableFuture<String> interactive = new CompletableFuture<>();
+        scheduler.submit(KoboldPriority.INTERACTIVE, work("interactive", interactive));
+        assertTrue(attempts.get(0).isCancelled());
+        assertFalse(background.isDone());
+        assertEquals(List.of("background", "interactive"), started);
+        assertEquals(1, scheduler.getPreemptedCount());
+
+        interactive.complete("turn");
+        assertEquals(List.of("background", "interactive", "background"), started);
+        attempts.get(1).complete("names");
+        assertEquals("names", background.join());
+    }
+
+    @Test
+    public void testAwaitBackend_HoldsGenerationsUntilReady() {
+        KoboldScheduler scheduler = new KoboldScheduler(1);
+        CompletableFuture<Boolean> ready = new CompletableFuture<>();
+        scheduler.awaitBackend(ready);
+        CompletableFuture<String> turn = scheduler.submit(KoboldPriority.INTERACTIVE, work("interactive", CompletableFuture.completedFuture("done")));
+        assertTrue(scheduler.isAwaitingBackend());
+        assertEquals(List.of(), started);
+
+        ready.complete(true);
+        assertEquals("done", turn.join());
+        assertFalse(scheduler.isAwaitingBackend());
+    }
+}
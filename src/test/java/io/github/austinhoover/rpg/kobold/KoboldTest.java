@@ -0,0 +1,114 @@
+package io.github.austinhoover.rpg.kobold;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+public class KoboldTest {
+
+    /**
+     * Stands in for the endpoint: generations stay in flight until the test completes them
+     */
+    private static class StubTransport extends KoboldTransport {
+
+        /**
+         * The exchange of each generation posted, in order
+         */
+        private final List<CompletableFuture<String>> generations = new ArrayList<>();
+
+        /**
+         * Number of aborts posted
+         */
+        private int aborts = 0;
+
+        @Override
+        public synchronized CompletableFuture<String> postAsync(URI uri, String body) {
+            if (uri.getPath().endsWith("/abort")) {
+                aborts++;
+                return CompletableFuture.completedFuture("{}");
+            }
+            CompletableFuture<String> exchange = new CompletableFuture<>();
+            generations.add(exchange);
+            return exchange;
+        }
+    }
+
+    /**
+     * Creates a greedy request, which identical requests can share
+     */
+    private KoboldRequestBody deterministicRequest(String prompt) {
+        KoboldRequestBody rVal = new KoboldRequestBody(prompt);
+        rVal.setTemperature(0.0);
+        return rVal;
+    }
+
+    @Test
+    public void testGenerateAsync_CoalescesIdenticalDeterministicRequests() {
+        StubTransport transport = new StubTransport();
+        Kobold kobold = new Kobold("127.0.0.1", List.of(5001), transport);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(kobold.generateAsync(this.deterministicRequest("Name an elf")));
+        }
+        assertEquals(1, transport.generations.size());
+        assertEquals(1, kobold.getCoalescableRequestCount());
+        assertEquals(4, kobold.getCoalescedRequestCount());
+
+        transport.generations.get(0).complete("{\"results\":[{\"text\":\"Aelar\"}]}");
+        for (CompletableFuture<String> result : results) {
+            assertEquals("Aelar", result.join());
+        }
+
+        // once finished, the same request goes to the endpoint again
+        kobold.generateAsync(this.deterministicRequest("Name an elf"));
+        assertEquals(2, transport.generations.size());
+    }
+
+    @Test
+    public void testGenerateAsync_CancellingOneSubscriberKeepsTheOthers() {
+        StubTransport transport = new StubTransport();
+        Kobold kobold = new Kobold("127.0.0.1", List.of(5001), transport);
+        CompletableFuture<String> first = kobold.generateAsync(this.deterministicRequest("Name a dwarf"));
+        CompletableFuture<String> second = kobold.generateAsync(this.deterministicRequest("Name a dwarf"));
+        CompletableFuture<String> third = kobold.generateAsync(this.deterministicRequest("Name a dwarf"));
+        assertEquals(1, transport.generations.size());
+        CompletableFuture<String> exchange = transport.generations.get(0);
+
+        first.cancel(true);
+        assertFalse(exchange.isDone());
+        assertEquals(0, transport.aborts);
+
+        exchange.complete("{\"results\":[{\"text\":\"Dorn\"}]}");
+        assertEquals("Dorn", second.join());
+        assertEquals("Dorn", third.join());
+        assertEquals(0, kobold.getAbortedRequestCount());
+    }
+
+    @Test
+    public void testGenerateAsync_AbortsOnceEverySubscriberCancels() {
+        StubTransport transport = new StubTransport();
+        Kobold kobold = new Kobold("127.0.0.1", List.of(5001), transport);
+        CompletableFuture<String> first = kobold.generateAsync(this.deterministicRequest("Name an orc"));
+        CompletableFuture<String> second = kobold.generateAsync(this.deterministicRequest("Name an orc"));
+        CompletableFuture<String> exchange = transport.generations.get(0);
+
+        first.cancel(true);
+        second.cancel(true);
+        assertTrue(exchange.isCancelled());
+        assertEquals(1, transport.aborts);
+        assertEquals(1, kobold.getAbortedRequestCount());
+
+        // an abandoned generation isn't shared with a later request
+        CompletableFuture<String> third = kobold.generateAsync(this.deterministicRequest("Name an orc"));
+        assertEquals(2, transport.generations.size());
+        transport.generations.get(1).complete("{\"results\":[{\"text\":\"Grom\"}]}");
+        assertEquals("Grom", third.join());
+    }
+}
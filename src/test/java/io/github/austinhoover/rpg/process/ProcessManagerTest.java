@@ -0,0 +1,151 @@
+package io.github.austinhoover.rpg.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProcessManagerTest {
+
+    /**
+     * How long a test waits for the supervisor before failing
+     */
+    private static final long WAIT_MS = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ProcessManager manager;
+
+    @Before
+    public void setUp() {
+        manager = new ProcessManager();
+    }
+
+    @After
+    public void tearDown() {
+        manager.shutdownAll();
+    }
+
+    /**
+     * Creates a service that runs a shell script, restarted on failure
+     * @param name The name of the service
+     * @param script The script
+     * @param arguments Arguments to the script, as $0, $1, ...
+     */
+    private ServiceConfig shellService(String name, String script, String... arguments) {
+        ServiceConfig rVal = new ServiceConfig(name, "sh");
+        rVal.addArgument("-c");
+        rVal.addArgument(script);
+        for (String argument : arguments) {
+            rVal.addArgument(argument);
+        }
+        rVal.setRestartPolicy(RestartPolicy.ON_FAILURE);
+        rVal.setRestartBackoffMs(100);
+        rVal.setRestartBackoffMaxMs(1000);
+        return rVal;
+    }
+
+    /**
+     * Waits until a condition holds
+     * @param condition The condition
+     * @return true if it held before the wait ran out
+     */
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Counts the lines of a file the services append to
+     * @param file The file
+     * @return The number of lines, or -1 if it can't be read
+     */
+    private static int countLines(File file) {
+        try {
+            return Files.readAllLines(file.toPath()).size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Test
+    public void testSupervisor_BacksOffThenGivesUp() throws IOException, InterruptedException {
+        File starts = folder.newFile("starts");
+        ServiceConfig config = this.shellService("crasher", "echo started >> \"$0\"; exit 1", starts.getAbsolutePath());
+        config.setMaxRestarts(2);
+        manager.registerService(config);
+
+        long start = System.currentTimeMillis();
+        assertTrue(manager.startService("crasher"));
+        assertTrue(await(() -> countLines(starts) == 3 && !manager.isServiceRunning("crasher")));
+        // the second restart waits twice as long as the first
+        assertTrue(System.currentTimeMillis() - start >= 100 + 200);
+        assertEquals(2, manager.getRestartCount("crasher"));
+
+        // once the budget is spent the service stays down
+        Thread.sleep(500);
+        assertEquals(3, countLines(starts));
+        assertFalse(manager.isServiceRunning("crasher"));
+        assertFalse(manager.isServiceReady("crasher"));
+    }
+
+    @Test
+    public void testSupervisor_ReadinessRefillsRestartBudget() throws IOException, InterruptedException {
+        File starts = folder.newFile("starts");
+        try (ServerSocket health = new ServerSocket(0)) {
+            ServiceConfig config = this.shellService("flaky", "echo started >> \"$0\"; sleep 0.2; exit 1", starts.getAbsolutePath());
+            ReadinessProbe probe = new ReadinessProbe(health.getLocalPort());
+            probe.setIntervalMs(10);
+            config.setReadiness(probe);
+            config.setMaxRestarts(1);
+            config.setRestartBackoffMs(10);
+            manager.registerService(config);
+
+            assertTrue(manager.startService("flaky"));
+            // every instance passes its probe before crashing, so a budget of one restart is never spent
+            assertTrue(await(() -> countLines(starts) >= 4));
+            assertTrue(manager.getRestartCount("flaky") <= 1);
+        }
+    }
+
+    @Test
+    public void testSupervisor_FailsOverToStandby() throws IOException, InterruptedException {
+        // each instance runs until a file named after its port appears, then removes it and crashes
+        File directory = folder.newFolder("crash");
+        ServiceConfig config = this.shellService("pair", "while [ ! -e \"$0\" ]; do sleep 0.02; done; rm \"$0\"; exit 1",
+            new File(directory, ServiceConfig.PORT_PLACEHOLDER).getAbsolutePath());
+        config.setPort(1);
+        config.setStandbyPort(2);
+        config.setWarmStandby(true);
+        manager.registerService(config);
+
+        assertTrue(manager.startServiceAndAwaitReady("pair").join());
+        assertTrue(await(() -> manager.hasReadyStandby("pair")));
+        assertEquals(Integer.valueOf(1), manager.getServicePort("pair"));
+
+        assertTrue(new File(directory, "1").createNewFile());
+        // the standby takes over right away, and a new standby is started in its place
+        assertTrue(await(() -> Integer.valueOf(2).equals(manager.getServicePort("pair"))));
+        assertTrue(manager.isServiceRunning("pair"));
+        assertTrue(await(() -> manager.hasReadyStandby("pair")));
+        assertEquals(1, manager.getRestartCount("pair"));
+    }
+}
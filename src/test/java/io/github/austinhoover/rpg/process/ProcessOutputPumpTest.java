@@ -0,0 +1,64 @@
+package io.github.austinhoover.rpg.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProcessOutputPumpTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Builds the output of a process with the given number of lines
+     */
+    private ByteArrayInputStream output(int lineCount) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            builder.append("line ").append(i).append('\n');
+        }
+        return new ByteArrayInputStream(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testTail_KeepsMostRecentLines() {
+        ServiceConfig config = new ServiceConfig("test", "test");
+        config.setOutputBufferLines(3);
+        ProcessOutputPump pump = new ProcessOutputPump("test", output(5), config);
+        pump.run();
+        assertEquals(List.of("line 3", "line 4"), pump.tail(2));
+        assertEquals(List.of("line 2", "line 3", "line 4"), pump.tail(100));
+        assertEquals(5, pump.getLineCount());
+    }
+
+    @Test
+    public void testTail_BeforeBufferFills() {
+        ServiceConfig config = new ServiceConfig("test", "test");
+        ProcessOutputPump pump = new ProcessOutputPump("test", output(2), config);
+        pump.run();
+        assertEquals(List.of("line 0", "line 1"), pump.tail(10));
+    }
+
+    @Test
+    public void testRun_RollsLogFile() throws Exception {
+        File log = new File(folder.getRoot(), "service.log");
+        ServiceConfig config = new ServiceConfig("test", "test");
+        config.setOutputLogFile(log.getPath());
+        config.setOutputLogMaxBytes(20);
+        config.setOutputLogBackups(1);
+        new ProcessOutputPump("test", output(10), config).run();
+        File backup = new File(folder.getRoot(), "service.log.1");
+        assertTrue(backup.exists());
+        assertTrue(Files.size(backup.toPath()) <= 20 + "line 0\n".length());
+        assertEquals(false, new File(folder.getRoot(), "service.log.2").exists());
+    }
+}
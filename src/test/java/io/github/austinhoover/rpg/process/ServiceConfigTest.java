@@ -0,0 +1,42 @@
+package io.github.austinhoover.rpg.process;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+public class ServiceConfigTest {
+
+    @Test
+    public void testMutualExclusion_MissingFromJson() {
+        ServiceConfig config = new Gson().fromJson("{\"name\":\"kobold\",\"command\":\"koboldcpp\"}", ServiceConfig.class);
+        assertFalse(config.isMutuallyExclusiveWith("comfyui"));
+        assertEquals(List.of(), config.getMutuallyExclusiveServices());
+        config.addMutuallyExclusiveService("comfyui");
+        assertTrue(config.isMutuallyExclusiveWith("comfyui"));
+    }
+
+    @Test
+    public void testRegisterService_PoolFromMinimalJson() {
+        Gson gson = new Gson();
+        ServiceConfig withArguments = gson.fromJson("{\"name\":\"kobold\",\"command\":\"koboldcpp\",\"arguments\":[\"--port\",\"{port}\"],\"port\":5001,\"instances\":2}", ServiceConfig.class);
+        ServiceConfig member = withArguments.forInstance(1);
+        assertEquals("kobold-1", member.getName());
+        assertEquals("kobold", member.getPoolName());
+        assertEquals(List.of("--port", "5002"), member.getArguments(member.getPort()));
+        assertFalse(member.isMutuallyExclusiveWith("comfyui"));
+
+        ServiceConfig bare = gson.fromJson("{\"name\":\"comfyui\",\"command\":\"comfy\",\"instances\":2}", ServiceConfig.class);
+        assertEquals(List.of(), bare.forInstance(0).getArguments(null));
+
+        ProcessManager manager = new ProcessManager();
+        manager.registerService(withArguments);
+        manager.registerService(bare);
+        assertFalse(manager.isServiceRunning("kobold-0"));
+    }
+}